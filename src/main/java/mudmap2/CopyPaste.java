@@ -172,55 +172,64 @@ public final class CopyPaste {
                 places = ordered_places.toArray(new Place[ordered_places.size()]);
             }
 
-            // copy places
-            for (final Place place : places) {
-                try {
-                    if (place.getLayer().getWorld() != layer.getWorld()) {
-                        if (place.getPlaceGroup() != null && !layer.getWorld().getPlaceGroups().contains(place.getPlaceGroup())) {
-                            layer.getWorld().addPlaceGroup(place.getPlaceGroup());
+            // listeners get called once after pasting all places
+            layer.getWorld().beginBatch();
+            try {
+                // copy places
+                for (final Place place : places) {
+                    try {
+                        if (place.getLayer().getWorld() != layer.getWorld()) {
+                            if (place.getPlaceGroup() != null && !layer.getWorld().getPlaceGroups().contains(place.getPlaceGroup())) {
+                                layer.getWorld().addPlaceGroup(place.getPlaceGroup());
+                            }
                         }
+                        if (copyMode) { // copy places -> duplicate on new layer
+                            final Place new_place = place.duplicate();
+                            place_to_new_place.put(place, new_place);
+                            layer.put(new_place, place.getX() - copydx + x, place.getY() - copydy + y);
+                        } else if (place.getLayer() == layer) {
+                            // move place within its layer
+                            layer.move(place, place.getX() - copydx + x, place.getY() - copydy + y);
+                        } else {
+                            // remove place from old layer and add it to new one
+                            layer.put(place, place.getX() - copydx + x, place.getY() - copydy + y);
+                        }
+                    } catch (final Exception ex) {
+                        Logger.getLogger(Mudmap2.class.getName()).log(Level.SEVERE, null, ex);
+                        return false;
                     }
-                    if (copyMode) { // copy places -> duplicate on new layer
-                        final Place new_place = place.duplicate();
-                        place_to_new_place.put(place, new_place);
-                        layer.put(new_place, place.getX() - copydx + x, place.getY() - copydy + y);
-                    } else {
-                        // remove place from old layer and add it to new one
-                        layer.put(place, place.getX() - copydx + x, place.getY() - copydy + y);
-                    }
-                } catch (final Exception ex) {
-                    Logger.getLogger(Mudmap2.class.getName()).log(Level.SEVERE, null, ex);
-                    return false;
                 }
-            }
 
-            // recreate paths and child connections after copy-paste
-            if (copyMode) {
-                for (final Place place : copyPlaces) {
-                    final Place new_place = place_to_new_place.get(place);
-                    // connect paths
-                    for (final Path path : place.getPaths()) {
-                        // only check first place, because the other side will
-                        // check itself
-                        final Place path_end_place = path.getPlaces()[0];
-                        // if end place is not this place and is also copied
-                        if (path_end_place != place && copyPlaces.contains(path_end_place)) {
-                            final Place other_new_place = place_to_new_place.get(path_end_place);
-                            new_place.connectPath(new Path(other_new_place, path.getExitDirections()[0], new_place, path.getExitDirections()[1]));
+                // recreate paths and child connections after copy-paste
+                if (copyMode) {
+                    for (final Place place : copyPlaces) {
+                        final Place new_place = place_to_new_place.get(place);
+                        // connect paths
+                        for (final Path path : place.getPaths()) {
+                            // only check first place, because the other side will
+                            // check itself
+                            final Place path_end_place = path.getPlaces()[0];
+                            // if end place is not this place and is also copied
+                            if (path_end_place != place && copyPlaces.contains(path_end_place)) {
+                                final Place other_new_place = place_to_new_place.get(path_end_place);
+                                new_place.connectPath(new Path(other_new_place, path.getExitDirections()[0], new_place, path.getExitDirections()[1]));
+                            }
                         }
-                    }
-                    // connect children
-                    for (final Place child : place.getChildren()) {
-                        // if child is copied, too
-                        if (copyPlaces.contains(child)) {
-                            final Place new_child = place_to_new_place.get(child);
-                            new_place.connectChild(new_child);
+                        // connect children
+                        for (final Place child : place.getChildren()) {
+                            // if child is copied, too
+                            if (copyPlaces.contains(child)) {
+                                final Place new_child = place_to_new_place.get(child);
+                                new_place.connectChild(new_child);
+                            }
                         }
                     }
+                    // moving places modifies their coordinates so that they cant be pasted again
+                } else {
+                    resetCopy();
                 }
-                // moving places modifies their coordinates so that they cant be pasted again
-            } else {
-                resetCopy();
+            } finally {
+                layer.getWorld().endBatch();
             }
         }
 
@@ -244,8 +253,7 @@ public final class CopyPaste {
             if (layer.get(x, y) != null) {
                 return false;
             }
-            layer.remove(place);
-            layer.put(place, x, y);
+            layer.move(place, x, y);
             return true;
         } catch (final Exception e) {
             Logger.getLogger(Mudmap2.class.getName()).log(Level.SEVERE, null, e);
@@ -23,17 +23,28 @@
 
 package mudmap2.backend;
 
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import mudmap2.backend.prquadtree.Quadtree;
+import mudmap2.backend.spatialindex.PointHash;
+import mudmap2.backend.spatialindex.SpatialIndex;
+import mudmap2.backend.spatialindex.SpatialIndexVisitor;
 import mudmap2.utils.Pair;
 
 /**
@@ -42,23 +53,27 @@ import mudmap2.utils.Pair;
  *
  * @author neop
  */
-public class Layer implements WorldChangeListener {
+public class Layer {
 
     World world;
     Integer id;
     String name;
-    Quadtree<LayerElement> elements = new Quadtree<>();
+    SpatialIndex<LayerElement> elements;
+    int placeCount = 0;
+    final Collection<Place> placesView = new PlacesView();
 
-    // for quadtree optimization
-    int maxX = 0;
-    int minX = 0;
-    int maxY = 0;
-    int minY = 0;
+    // number of elements per x / y coordinate, the first and last keys are
+    // the bounding box
+    final TreeMap<Integer, Integer> xCount = new TreeMap<>();
+    final TreeMap<Integer, Integer> yCount = new TreeMap<>();
 
-    // place name cache for unique check
-    HashMap<String, Integer> placeNameCache = new HashMap<>();
-    boolean placeNameCacheNeedsUpdate = true;
-    boolean sizeCacheNeedsUpdated = true;
+    // number of places per name for unique check, updated on every change
+    final HashMap<String, Integer> placeNameCount = new HashMap<>();
+
+    // incremented by the world on every change of the layer or its places
+    long modificationCount = 0;
+    // incremented by the world when paths, links or positions change
+    long pathModificationCount = 0;
 
     /**
      * Constructor, sets layer id
@@ -72,6 +87,7 @@ public class Layer implements WorldChangeListener {
 
         this.id = id;
         this.world = world;
+        elements = createSpatialIndex(null, null);
 
         if (id > world.getNextLayerID() + 1) {
             world.setNextLayerID(id + 1);
@@ -89,6 +105,7 @@ public class Layer implements WorldChangeListener {
 
         id = world.getNextLayerID();
         this.world = world;
+        elements = createSpatialIndex(null, null);
     }
 
     /**
@@ -119,12 +136,62 @@ public class Layer implements WorldChangeListener {
     }
 
     /**
-     * Use this only to set an optimized quadtree after construction
+     * Use this only to set an optimized quadtree after construction, has no
+     * effect if the world doesn't use quadtrees
      * @param center_x
      * @param center_y
      */
     public void setQuadtree(final int center_x, final int center_y) {
-        elements = new Quadtree<>(center_x, center_y);
+        if(world.getSpatialIndexType() == World.SpatialIndexType.QUADTREE){
+            elements = createSpatialIndex(center_x, center_y);
+            placeCount = 0;
+            xCount.clear();
+            yCount.clear();
+            placeNameCount.clear();
+        }
+    }
+
+    /**
+     * Creates an empty spatial index of the type set in the world
+     * @param centerX quadtree center or null
+     * @param centerY quadtree center or null
+     * @return spatial index
+     */
+    private SpatialIndex<LayerElement> createSpatialIndex(final Integer centerX, final Integer centerY) {
+        switch(world.getSpatialIndexType()){
+            case HASH:
+                return new PointHash<>();
+            case QUADTREE:
+            default:
+                if(centerX != null && centerY != null){
+                    return new Quadtree<>(centerX, centerY);
+                }
+                return new Quadtree<>();
+        }
+    }
+
+    /**
+     * Moves all elements to a new spatial index of the type set in the world,
+     * called by the world if the type changes
+     */
+    void rebuildSpatialIndex() {
+        final SpatialIndex<LayerElement> newElements = createSpatialIndex(getCenterX(), getCenterY());
+
+        final List<LayerElement> list = new ArrayList<>(elements.values());
+        final int[] x = new int[list.size()];
+        final int[] y = new int[list.size()];
+        for(int i = 0; i < list.size(); ++i){
+            x[i] = list.get(i).getX();
+            y[i] = list.get(i).getY();
+        }
+
+        try {
+            newElements.insertAll(list, x, y);
+            elements = newElements;
+        } catch (final Exception ex) {
+            // keep the old index, positions in it are unique
+            Logger.getLogger(Layer.class.getName()).log(Level.WARNING, "Couldn't rebuild spatial index of layer " + getName(), ex);
+        }
     }
 
     /**
@@ -132,8 +199,7 @@ public class Layer implements WorldChangeListener {
      * @return
      */
     public int getCenterX(){
-        updateSizeCache();
-        return (maxX + minX) / 2;
+        return (getXMax() + getXMin()) / 2;
     }
 
     /**
@@ -141,8 +207,7 @@ public class Layer implements WorldChangeListener {
      * @return
      */
     public int getCenterY(){
-        updateSizeCache();
-        return (maxY + minY) / 2;
+        return (getYMax() + getYMin()) / 2;
     }
 
     /**
@@ -150,9 +215,8 @@ public class Layer implements WorldChangeListener {
      * @return
      */
     public Pair<Double, Double> getExactCenter(){
-        updateSizeCache();
-        double centerX = (double) (maxX + minX) / 2.0;
-        double centerY = (double) (maxY + minY) / 2.0;
+        double centerX = ((double) getXMax() + getXMin()) / 2.0;
+        double centerY = ((double) getYMax() + getYMin()) / 2.0;
         return new Pair<>(centerX, centerY);
     }
 
@@ -161,8 +225,7 @@ public class Layer implements WorldChangeListener {
      * @return
      */
     public int getXMax(){
-        updateSizeCache();
-        return maxX;
+        return xCount.isEmpty() ? 0 : xCount.lastKey();
     }
 
     /**
@@ -170,8 +233,7 @@ public class Layer implements WorldChangeListener {
      * @return
      */
     public int getXMin() {
-        updateSizeCache();
-        return minX;
+        return xCount.isEmpty() ? 0 : xCount.firstKey();
     }
 
     /**
@@ -179,8 +241,7 @@ public class Layer implements WorldChangeListener {
      * @return
      */
     public int getYMax() {
-        updateSizeCache();
-        return maxY;
+        return yCount.isEmpty() ? 0 : yCount.lastKey();
     }
 
     /**
@@ -188,8 +249,7 @@ public class Layer implements WorldChangeListener {
      * @return
      */
     public int getYMin() {
-        updateSizeCache();
-        return minY;
+        return yCount.isEmpty() ? 0 : yCount.firstKey();
     }
 
     /**
@@ -222,13 +282,125 @@ public class Layer implements WorldChangeListener {
             }
 
             elements.insert(element, element.getX(), element.getY());
-            sizeCacheNeedsUpdated = true;
-            world.callListeners(element);
+            if(element instanceof Place){
+                ++placeCount;
+                increment(placeNameCount, ((Place) element).getName());
+            }
+            addToBounds(element.getX(), element.getY());
+            world.callListeners(new WorldChangeEvent(WorldChangeEvent.Type.PLACE_ADDED, element,
+                    null, new WorldCoordinate(getId(), element.getX(), element.getY())));
         } catch (final Exception ex) {
             throw new PlaceNotInsertedException(element.getX(), element.getY());
         }
     }
 
+    /**
+     * Adds many elements at their current positions, removes them from their
+     * old layers. Builds the spatial index in one pass if this layer is empty
+     * @param newElements elements to be added
+     * @throws mudmap2.backend.Layer.PlaceNotInsertedException
+     */
+    public void putAll(final List<? extends LayerElement> newElements) throws PlaceNotInsertedException {
+        if(!elements.isEmpty()){
+            for(final LayerElement element: newElements){
+                put(element);
+            }
+            return;
+        }
+
+        final List<LayerElement> list = new ArrayList<>(newElements.size());
+        final int[] x = new int[newElements.size()];
+        final int[] y = new int[newElements.size()];
+        for(final LayerElement element: newElements){
+            // remove element from other layer if one is set
+            if(element.getLayer() != null && element.getLayer() != this){
+                element.getLayer().remove(element);
+            }
+            x[list.size()] = element.getX();
+            y[list.size()] = element.getY();
+            list.add(element);
+        }
+
+        try {
+            elements.insertAll(list, x, y);
+        } catch (final Exception ex) {
+            // insert one by one to find the element that can't be inserted
+            for(final LayerElement element: list){
+                put(element);
+            }
+            return;
+        }
+
+        for(final LayerElement element: list){
+            element.setPosition(element.getX(), element.getY(), this);
+            if(element instanceof Place){
+                ++placeCount;
+                increment(placeNameCount, ((Place) element).getName());
+            }
+            addToBounds(element.getX(), element.getY());
+        }
+        world.indexPlaces(list);
+        world.callListeners(new WorldChangeEvent(WorldChangeEvent.Type.LAYER_CHANGED, this, null, list));
+    }
+
+    /**
+     * Moves an element to a new position on this layer, fires a single change
+     * event
+     * @param element element on this layer
+     * @param x new x coordinate
+     * @param y new y coordinate
+     * @throws mudmap2.backend.Layer.PlaceNotInsertedException if the element
+     * isn't on this layer or if the new position is occupied
+     */
+    public void move(final LayerElement element, final int x, final int y) throws PlaceNotInsertedException {
+        try {
+            elements.move(element, x, y);
+        } catch (final Exception ex) {
+            throw new PlaceNotInsertedException(x, y);
+        }
+        final WorldCoordinate oldCoordinate = new WorldCoordinate(getId(), element.getX(), element.getY());
+        removeFromBounds(element.getX(), element.getY());
+        addToBounds(x, y);
+        element.setPosition(x, y, this);
+        world.callListeners(new WorldChangeEvent(WorldChangeEvent.Type.PLACE_MOVED, element,
+                oldCoordinate, new WorldCoordinate(getId(), x, y)));
+    }
+
+    /**
+     * Moves all elements within a rectangle by dx, dy and fires a single
+     * change event. Use Integer.MIN_VALUE / MAX_VALUE for open borders, eg.
+     * to move everything north of a certain y coordinate
+     * @param xMin min x coordinate
+     * @param yMin min y coordinate
+     * @param xMax max x coordinate
+     * @param yMax max y coordinate
+     * @param dx x offset
+     * @param dy y offset
+     * @throws mudmap2.backend.Layer.PlaceNotInsertedException if an element
+     * would be moved onto an element outside of the rectangle or out of range,
+     * it has the coordinates of the first such target. Nothing will be moved
+     * in this case
+     */
+    public void shift(final int xMin, final int yMin, final int xMax, final int yMax, final int dx, final int dy) throws PlaceNotInsertedException {
+        final List<LayerElement> shifted;
+        try {
+            shifted = elements.shift(xMin, yMin, xMax, yMax, dx, dy);
+        } catch (final Exception ex) {
+            throw getShiftCollision(xMin, yMin, xMax, yMax, dx, dy);
+        }
+
+        if(!shifted.isEmpty()){
+            for(final LayerElement element: shifted){
+                removeFromBounds(element.getX(), element.getY());
+            }
+            for(final LayerElement element: shifted){
+                element.setPosition(element.getX() + dx, element.getY() + dy, this);
+                addToBounds(element.getX(), element.getY());
+            }
+            world.callListeners(this);
+        }
+    }
+
     /**
      * Gets the element at a position
      * @param x x coordinate
@@ -283,12 +455,56 @@ public class Layer implements WorldChangeListener {
     }
 
     /**
-     * Removes an element from the layer but not from the world
+     * Gets the modification counter, it changes whenever the layer or one of
+     * its places, paths etc. changes. Use it to check whether something that
+     * was computed from the layer is outdated
+     * @return modification counter
+     */
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Increments the modification counter, called by the world
+     */
+    void modified() {
+        ++modificationCount;
+    }
+
+    /**
+     * Gets the path modification counter, it only changes if paths, their
+     * weights, links, place positions or the set of places with connections
+     * change, but not on eg. new colors or names. Use it to check whether
+     * something that was computed from the paths is outdated
+     * @return path modification counter
+     */
+    public long getPathModificationCount() {
+        return pathModificationCount;
+    }
+
+    /**
+     * Increments the path modification counter, called by the world
+     */
+    void pathsModified() {
+        ++pathModificationCount;
+    }
+
+    /**
+     * Removes an element from the layer but not from the world, does nothing
+     * if the element isn't on this layer
      * @param element
      */
     public void remove(final LayerElement element) {
-        elements.remove(element);
-        world.callListeners(this);
+        if(elements.contains(element)){
+            if(element instanceof Place){
+                --placeCount;
+                decrement(placeNameCount, ((Place) element).getName());
+            }
+            removeFromBounds(element.getX(), element.getY());
+            elements.remove(element);
+            world.callListeners(new WorldChangeEvent(WorldChangeEvent.Type.PLACE_REMOVED, element,
+                    new WorldCoordinate(getId(), element.getX(), element.getY()), null));
+        }
     }
 
     /**
@@ -310,13 +526,95 @@ public class Layer implements WorldChangeListener {
     }
 
     /**
-     * Gets a collection of all places
+     * Gets a collection of all places, the set is a copy and may be modified
      * @return set of all elements or empty set
      */
     public HashSet<Place> getPlaces(){
         return new HashSet(elements.values());
     }
 
+    /**
+     * Gets a read-only view of all places, nothing is copied. The layer must
+     * not be modified while iterating, use getPlaces() in this case
+     * @return places on this layer
+     */
+    public Collection<Place> getPlacesView(){
+        return placesView;
+    }
+
+    /**
+     * Calls consumer for each place without copying the places, the layer
+     * must not be modified meanwhile
+     * @param consumer
+     */
+    public void forEachPlace(final Consumer<? super Place> consumer){
+        for(final LayerElement element: elements){
+            if(element instanceof Place){
+                consumer.accept((Place) element);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of places, doesn't count them
+     * @return number of places
+     */
+    public int getPlaceCount(){
+        return placeCount;
+    }
+
+    /**
+     * Finds the target of a failed shift: the first target that is occupied
+     * by an element outside of the rectangle, or out of range
+     * @param xMin min x coordinate
+     * @param yMin min y coordinate
+     * @param xMax max x coordinate
+     * @param yMax max y coordinate
+     * @param dx x offset
+     * @param dy y offset
+     * @return exception with the coordinates of the target
+     */
+    private PlaceNotInsertedException getShiftCollision(final int xMin, final int yMin, final int xMax, final int yMax, final int dx, final int dy){
+        // occupied target, or else any target (out of range)
+        final int[][] found = {null, null};
+        elements.query(xMin, yMin, xMax, yMax, new SpatialIndexVisitor<LayerElement>() {
+            @Override
+            public void visit(final LayerElement element, final int x, final int y) {
+                final int tx = x + dx, ty = y + dy;
+                if(found[0] == null && (tx < xMin || tx > xMax || ty < yMin || ty > yMax) && elements.exist(tx, ty)){
+                    found[0] = new int[]{tx, ty};
+                }
+                if(found[1] == null){
+                    found[1] = new int[]{tx, ty};
+                }
+            }
+        });
+        final int[] target = found[0] != null ? found[0] : found[1];
+        if(target == null) return new PlaceNotInsertedException(xMin, yMin);
+        return new PlaceNotInsertedException(target[0], target[1]);
+    }
+
+    /**
+     * Gets all places within a rectangle, queries the spatial index only once
+     * @param xMin min x coordinate
+     * @param yMin min y coordinate
+     * @param xMax max x coordinate
+     * @param yMax max y coordinate
+     * @return places in the rectangle or empty list
+     */
+    public List<Place> getPlaces(final int xMin, final int yMin, final int xMax, final int yMax){
+        final List<Place> ret = new ArrayList<>();
+        elements.query(xMin, yMin, xMax, yMax, new SpatialIndexVisitor<LayerElement>() {
+            @Override
+            public void visit(final LayerElement element, final int x, final int y) {
+                if(element instanceof Place){
+                    ret.add((Place) element);
+                }
+            }
+        });
+        return ret;
+    }
+
     /**
      * Gets a collection of all layer elements
      * @return
@@ -332,7 +630,7 @@ public class Layer implements WorldChangeListener {
      */
     public SortedSet<Place> getPlaces(final Comparator<Place> comparator) {
         final SortedSet<Place> set = new TreeSet<>(comparator);
-        set.addAll(getPlaces());
+        set.addAll(placesView);
         return set;
     }
 
@@ -341,10 +639,7 @@ public class Layer implements WorldChangeListener {
      * @return
      */
     public List<Place> getPlacesList() {
-        final Set<Place> set = getPlaces();
-        final List<Place> list = new ArrayList<>(set.size());
-        list.addAll(set);
-        return list;
+        return new ArrayList<>(placesView);
     }
 
     /**
@@ -373,75 +668,106 @@ public class Layer implements WorldChangeListener {
      * @return true if name is unique on this layer
      */
     public boolean isPlaceNameUnique(final String name){
-        if(placeNameCacheNeedsUpdate) {
-            updatePlaceNameCache();
+        final Integer num = placeNameCount.get(name);
+        return num == null || num <= 1;
+    }
+
+    /**
+     * Updates the place name count, called by the place when it gets renamed
+     * @param place renamed place
+     * @param oldName previous name
+     */
+    void placeRenamed(final Place place, final String oldName){
+        if(elements.contains(place)){
+            decrement(placeNameCount, oldName);
+            increment(placeNameCount, place.getName());
         }
+    }
 
-        final Integer num = placeNameCache.get(name);
-        return num == null || num <= 1;
+    /**
+     * Adds a position to the bounding box
+     * @param x
+     * @param y
+     */
+    private void addToBounds(final int x, final int y){
+        increment(xCount, x);
+        increment(yCount, y);
     }
 
     /**
-     * Recreates place name chache
+     * Removes a position from the bounding box
+     * @param x
+     * @param y
      */
-    private void updatePlaceNameCache() {
-        if(placeNameCacheNeedsUpdate) {
-            placeNameCache.clear();
+    private void removeFromBounds(final int x, final int y){
+        decrement(xCount, x);
+        decrement(yCount, y);
+    }
 
-            for(LayerElement element: getPlaces()) {
-                if(element instanceof Place) {
-                    Place place = (Place) element;
-                    Integer value = placeNameCache.get(place.getName());
-                    if(value == null) {
-                        value = 1;
-                    } else {
-                        value += 1;
-                    }
-                    placeNameCache.put(place.getName(), value);
-                }
-            }
+    private static <K> void increment(final Map<K, Integer> counts, final K key){
+        final Integer value = counts.get(key);
+        counts.put(key, value == null ? 1 : value + 1);
+    }
 
-            placeNameCacheNeedsUpdate = false;
+    private static <K> void decrement(final Map<K, Integer> counts, final K key){
+        final Integer value = counts.get(key);
+        if(value != null){
+            if(value <= 1){
+                counts.remove(key);
+            } else {
+                counts.put(key, value - 1);
+            }
         }
     }
 
-    private void updateSizeCache(){
-        if(sizeCacheNeedsUpdated){
-            maxX = Integer.MIN_VALUE;
-            minX = Integer.MAX_VALUE;
-            maxY = Integer.MIN_VALUE;
-            minY = Integer.MAX_VALUE;
+    /**
+     * Read-only collection of the places in the spatial index
+     */
+    private class PlacesView extends AbstractCollection<Place> {
 
-            for(LayerElement element: getLayerElements()){
-                maxX = Math.max(maxX, element.getX());
-                minX = Math.min(minX, element.getX());
-                maxY = Math.max(maxY, element.getY());
-                minY = Math.min(minY, element.getY());
-            }
+        @Override
+        public Iterator<Place> iterator() {
+            return new Iterator<Place>() {
+                private final Iterator<LayerElement> iterator = elements.iterator();
+                private Place next = findNext();
+
+                private Place findNext(){
+                    while(iterator.hasNext()){
+                        final LayerElement element = iterator.next();
+                        if(element instanceof Place){
+                            return (Place) element;
+                        }
+                    }
+                    return null;
+                }
 
-            if(maxX == Integer.MIN_VALUE){
-                maxX = 0;
-            }
-            if(minX == Integer.MAX_VALUE){
-                minX = 0;
-            }
-            if(maxY == Integer.MIN_VALUE){
-                maxY = 0;
-            }
-            if(minY == Integer.MAX_VALUE){
-                minY = 0;
-            }
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
 
-            sizeCacheNeedsUpdated = false;
+                @Override
+                public Place next() {
+                    if(next == null){
+                        throw new NoSuchElementException();
+                    }
+                    final Place ret = next;
+                    next = findNext();
+                    return ret;
+                }
+            };
         }
-    }
 
-    @Override
-    public void worldChanged(final Object source) {
-        // if source is a place on this layer
-        if (source instanceof Place && elements.contains((Place) source) || source instanceof Layer && source == this) {
-            placeNameCacheNeedsUpdate = true;
+        @Override
+        public int size() {
+            return placeCount;
         }
+
+        @Override
+        public boolean contains(final Object object) {
+            return object instanceof Place && elements.contains((Place) object);
+        }
+
     }
 
     /**
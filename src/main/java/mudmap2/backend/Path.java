@@ -32,9 +32,15 @@ public class Path {
 
     public static final String[] directions = {"n", "ne", "e", "se", "s", "sw", "w", "nw", "u", "d", "-"};
 
+    // cost of using a path, eg. higher for doors or long corridors
+    public static final double DEFAULT_WEIGHT = 1.0;
+
     private final Place[] places;
     private final String[] exitdirections;
     private final Boolean targetUnknown;
+    // false for "-" exits, which can't be used from that place
+    private final boolean[] passable;
+    private double weight = DEFAULT_WEIGHT;
 
     /**
      * Constructs a new path between two places
@@ -54,6 +60,10 @@ public class Path {
         exitdirections[1] = exitdir2;
         
         targetUnknown = exitdir1.equals("unknown") || exitdir2.equals("unknown");
+
+        passable = new boolean[2];
+        passable[0] = !exitdir1.equals("-");
+        passable[1] = !exitdir2.equals("-");
     }
 
     /**
@@ -95,6 +105,51 @@ public class Path {
         else throw new RuntimeException("Place not found in path");
     }
 
+    /**
+     * Checks whether the path can be used starting at place p, a path can't
+     * be used from a place with the exit "-"
+     * @param p
+     * @return true if p doesn't use the exit "-"
+     * @throws RuntimeException if the place isn't a member of the path
+     */
+    public boolean isPassableFrom(Place p) throws RuntimeException{
+        if(places[0] == p) return passable[0];
+        else if(places[1] == p) return passable[1];
+        else throw new RuntimeException("Place not found in path");
+    }
+
+    /**
+     * Gets the cost of using this path
+     * @return weight, DEFAULT_WEIGHT if not set
+     */
+    public double getWeight(){
+        return weight;
+    }
+
+    /**
+     * Sets the cost of using this path, for weighted path finding
+     * @param weight non-negative weight
+     * @throws IllegalArgumentException if the weight is negative or not a
+     * number
+     */
+    public void setWeight(double weight) throws IllegalArgumentException{
+        if(!(weight >= 0) || Double.isInfinite(weight)){
+            throw new IllegalArgumentException("Invalid path weight: " + weight);
+        }
+        if(weight != this.weight){
+            double oldWeight = this.weight;
+            this.weight = weight;
+
+            // path is connected
+            if(places[0].getPaths().contains(this)
+                    && places[0].getLayer() != null
+                    && places[0].getLayer().getWorld() != null){
+                places[0].getLayer().getWorld().callListeners(
+                        new WorldChangeEvent(WorldChangeEvent.Type.PATH_CHANGED, this, oldWeight, weight));
+            }
+        }
+    }
+
     /**
      * Gets the place that is not equal to p in a path
      * @param p
@@ -22,16 +22,16 @@
 
 package mudmap2.backend;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.TreeMap;
 
-import mudmap2.backend.sssp.BreadthSearch;
 
 /**
  * A place in the world
  * @author neop
  */
-public class Place extends LayerElement implements Comparable<Place>, BreadthSearch {
+public class Place extends LayerElement implements Comparable<Place> {
 
     public static final String PLACEHOLDER_NAME = "?";
 
@@ -51,8 +51,6 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
     HashSet<Path> paths = new HashSet<>();
     TreeMap<String, Boolean> flags = new TreeMap<>();
 
-    BreadthSearchData breadthSearchData = null;
-
     public Place(final int id, final String name, final int posX, final int posY, final Layer l) {
         super(posX, posY, l);
         this.name = name;
@@ -96,8 +94,12 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
      * @param name new name
      */
     public void setName(final String name) {
+        final String oldName = this.name;
         this.name = name;
-        callWorldChangeListeners();
+        if (getLayer() != null) {
+            getLayer().placeRenamed(this, oldName);
+        }
+        callWorldChangeListeners(WorldChangeEvent.Type.PLACE_RENAMED, oldName, name);
     }
 
     /**
@@ -193,6 +195,7 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
      */
     public void setComments(String comments) {
         this.comments = comments;
+        callWorldChangeListeners();
     }
 
     /**
@@ -240,7 +243,7 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
     public void removePath(final Path path) {
         paths.remove(path);
         path.getOtherPlace(this).paths.remove(path);
-        callWorldChangeListeners();
+        callWorldChangeListeners(new WorldChangeEvent(WorldChangeEvent.Type.PATH_REMOVED, path));
     }
 
     /**
@@ -252,7 +255,17 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
         for(Path path: paths){
             path.getOtherPlace(this).paths.remove(path);
         }
-        callWorldChangeListeners();
+        if (getLayer() != null && getLayer().getWorld() != null) {
+            final World world = getLayer().getWorld();
+            world.beginBatch();
+            try {
+                for (final Path path : paths) {
+                    world.callListeners(new WorldChangeEvent(WorldChangeEvent.Type.PATH_REMOVED, path));
+                }
+            } finally {
+                world.endBatch();
+            }
+        }
     }
 
     /**
@@ -285,7 +298,7 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
         paths.add(path);
         other.paths.add(path);
 
-        callWorldChangeListeners();
+        callWorldChangeListeners(new WorldChangeEvent(WorldChangeEvent.Type.PATH_CONNECTED, path));
     }
 
     /**
@@ -343,7 +356,7 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
         if (place != null) {
             children.add(place);
             place.parents.add(this);
-            callWorldChangeListeners();
+            callWorldChangeListeners(WorldChangeEvent.Type.CHILD_CONNECTED, null, place);
         } else {
             throw new NullPointerException();
         }
@@ -357,7 +370,7 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
         if (place != null) {
             children.remove(place);
             place.parents.remove(this);
-            callWorldChangeListeners();
+            callWorldChangeListeners(WorldChangeEvent.Type.CHILD_REMOVED, place, null);
         } // don't throw
     }
 
@@ -403,22 +416,28 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
      * Removes all connections to other places (paths, child-connections)
      */
     public void removeConnections() {
-        // remove place paths (buffer, since connected_places will be modified)
-        final HashSet<Path> cp_buffer = (HashSet<Path>) paths.clone();
-        for (final Path p : cp_buffer) {
-            p.remove();
+        final World world = getLayer() != null ? getLayer().getWorld() : null;
+        if (world != null) {
+            world.beginBatch();
         }
-        // remove place connection to children / parents
-        for (final Place pl : children) {
-            pl.parents.remove(this);
-        }
-        children.clear();
-        for (final Place pl : parents) {
-            pl.children.remove(this);
+        try {
+            // remove place paths (buffer, since connected_places will be modified)
+            final HashSet<Path> cp_buffer = (HashSet<Path>) paths.clone();
+            for (final Path p : cp_buffer) {
+                p.remove();
+            }
+            // remove place connection to children / parents
+            for (final Place pl : new ArrayList<>(children)) {
+                removeChild(pl);
+            }
+            for (final Place pl : new ArrayList<>(parents)) {
+                pl.removeChild(this);
+            }
+        } finally {
+            if (world != null) {
+                world.endBatch();
+            }
         }
-        parents.clear();
-
-        callWorldChangeListeners();
     }
 
     /**
@@ -437,6 +456,14 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
         return comments.toLowerCase().contains(keyword);
     }
 
+    /**
+     * Checks whether the place has paths, child or parent places
+     * @return true, if the place is connected to any place
+     */
+    public boolean hasConnections() {
+        return !paths.isEmpty() || !children.isEmpty() || !parents.isEmpty();
+    }
+
     /**
      * Returns true, if a keyword is found in any of the places data
      * it searches in name, comments and flags
@@ -475,31 +502,29 @@ public class Place extends LayerElement implements Comparable<Place>, BreadthSea
     }
 
     /**
-     * Resets the breadth search data
+     * Call world change listeners on place changes
      */
-    @Override
-    public void breadthSearchReset() {
-        getBreadthSearchData().reset();
+    private void callWorldChangeListeners() {
+        callWorldChangeListeners(new WorldChangeEvent(WorldChangeEvent.Type.PLACE_CHANGED, this));
     }
 
     /**
-     * Gets the breadth search data
-     * @return
+     * Call world change listeners with a typed change of this place
+     * @param type change type
+     * @param oldValue value before the change
+     * @param newValue value after the change
      */
-    @Override
-    public BreadthSearchData getBreadthSearchData() {
-        if (breadthSearchData == null) {
-            breadthSearchData = new BreadthSearchData();
-        }
-        return breadthSearchData;
+    private void callWorldChangeListeners(final WorldChangeEvent.Type type, final Object oldValue, final Object newValue) {
+        callWorldChangeListeners(new WorldChangeEvent(type, this, oldValue, newValue));
     }
 
     /**
-     * Call world change listeners on place changes
+     * Call world change listeners
+     * @param event change event
      */
-    private void callWorldChangeListeners() {
+    private void callWorldChangeListeners(final WorldChangeEvent event) {
         if (getLayer() != null && getLayer().getWorld() != null) {
-            getLayer().getWorld().callListeners(this);
+            getLayer().getWorld().callListeners(event);
         }
     }
 
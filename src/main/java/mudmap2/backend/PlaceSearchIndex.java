@@ -0,0 +1,470 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2014  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*  File description
+ *
+ *  This class is an inverted trigram index over the names, comments and flags
+ *  of the places of a world
+ */
+
+package mudmap2.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted trigram index for place search. Each place is indexed by the
+ * distinct trigrams of its lower case name, comments and flag names. A
+ * keyword matches a place if it is a substring of that text (which includes
+ * prefixes of words), the trigrams of the keyword select the candidates.
+ * Fuzzy search ranks places by the share of keyword trigrams they contain.
+ * The maps are split into shards that are copied on write once a snapshot
+ * uses them, so snapshots are cheap and changes only copy the shards they
+ * touch
+ * @author neop
+ */
+public class PlaceSearchIndex {
+
+    // min share of keyword trigrams for a fuzzy match
+    public static final double FUZZY_MIN_SIMILARITY = 0.5;
+
+    static final int SHARD_BITS = 6;
+    static final int SHARDS = 1 << SHARD_BITS;
+
+    // searchable text of each indexed place, sharded by place
+    final HashMap<Place, String>[] texts = newShards();
+    // places per trigram, sharded by trigram
+    final HashMap<Long, Posting>[] postings = newShards();
+    // shards that are used by the snapshot and have to be copied on write
+    final boolean[] textsShared = new boolean[SHARDS];
+    final boolean[] postingsShared = new boolean[SHARDS];
+    int size = 0;
+    // reused until the index changes
+    Snapshot snapshot = null;
+
+    /**
+     * Places of a trigram, unordered. A posting doesn't change once it has
+     * been created: adding a place creates a new posting that might share the
+     * array, but it only writes behind the end of the old one. Removing a
+     * place copies the array
+     */
+    static final class Posting {
+        final Place[] places;
+        final int size;
+
+        Posting(Place[] places, int size){
+            this.places = places;
+            this.size = size;
+        }
+
+        /**
+         * Creates a posting with an additional place
+         * @param place place
+         * @return new posting
+         */
+        Posting add(Place place){
+            Place[] array = places;
+            if(size == array.length) array = Arrays.copyOf(array, Math.max(2, size * 2));
+            array[size] = place;
+            return new Posting(array, size + 1);
+        }
+
+        /**
+         * Creates a posting without a place
+         * @param place place
+         * @return new posting, null if it would be empty
+         */
+        Posting remove(Place place){
+            for(int i = 0; i < size; ++i){
+                if(places[i] == place){
+                    if(size == 1) return null;
+                    // order doesn't matter, move the last element here
+                    Place[] array = Arrays.copyOf(places, size - 1);
+                    if(i < size - 1) array[i] = places[size - 1];
+                    return new Posting(array, size - 1);
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Immutable view of the index, it can be searched on any thread while the
+     * index changes
+     */
+    public static class Snapshot {
+        final HashMap<Place, String>[] texts;
+        final HashMap<Long, Posting>[] postings;
+        final int size;
+
+        private Snapshot(HashMap<Place, String>[] texts, HashMap<Long, Posting>[] postings, int size){
+            this.texts = texts;
+            this.postings = postings;
+            this.size = size;
+        }
+
+        /**
+         * Gets the number of places in the snapshot
+         * @return number of places
+         */
+        public int size(){
+            return size;
+        }
+
+        /**
+         * Finds the places that contain all keywords, like
+         * PlaceSearchIndex.find(). Returns null if the current thread gets
+         * interrupted
+         * @param keywords keywords, empty keywords are ignored
+         * @return matching places, unordered, or null
+         */
+        public List<Place> find(String[] keywords){
+            return PlaceSearchIndex.find(texts, postings, keywords, true);
+        }
+    }
+
+    /**
+     * Adds a place or updates its entry
+     * @param place place
+     */
+    public void update(Place place){
+        String text = getText(place);
+        String oldText = texts[shard(place)].get(place);
+        if(text.equals(oldText)) return;
+        getTextShard(place).put(place, text);
+        if(oldText == null) ++size;
+        snapshot = null;
+
+        HashSet<Long> trigrams = getTrigrams(text);
+        if(oldText != null){
+            HashSet<Long> oldTrigrams = getTrigrams(oldText);
+            for(Long trigram: oldTrigrams){
+                if(!trigrams.contains(trigram)) removePosting(trigram, place);
+            }
+            trigrams.removeAll(oldTrigrams);
+        }
+        for(Long trigram: trigrams){
+            HashMap<Long, Posting> shard = getPostingShard(trigram);
+            Posting posting = shard.get(trigram);
+            shard.put(trigram, posting == null ? new Posting(new Place[]{place}, 1) : posting.add(place));
+        }
+    }
+
+    /**
+     * Removes a place
+     * @param place place
+     */
+    public void remove(Place place){
+        if(!contains(place)) return;
+        String text = getTextShard(place).remove(place);
+        --size;
+        snapshot = null;
+        for(Long trigram: getTrigrams(text)){
+            removePosting(trigram, place);
+        }
+    }
+
+    /**
+     * Checks whether a place is indexed
+     * @param place place
+     * @return true, if the place is indexed
+     */
+    public boolean contains(Place place){
+        return texts[shard(place)].containsKey(place);
+    }
+
+    /**
+     * Gets the number of indexed places
+     * @return number of places
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Gets a snapshot of the index for searches on other threads, it shares
+     * the shards with the index until they change
+     * @return snapshot
+     */
+    public Snapshot getSnapshot(){
+        if(snapshot == null){
+            snapshot = new Snapshot(texts.clone(), postings.clone(), size);
+            Arrays.fill(textsShared, true);
+            Arrays.fill(postingsShared, true);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Finds the places that contain all keywords in their name, comments or
+     * flags, case insensitive
+     * @param keywords keywords, empty keywords are ignored
+     * @return matching places, unordered
+     */
+    public List<Place> find(String[] keywords){
+        return find(texts, postings, keywords, false);
+    }
+
+    /**
+     * Finds the places that contain all keywords
+     * @param texts text shards
+     * @param postings posting shards
+     * @param keywords keywords, empty keywords are ignored
+     * @param cancellable true to return null if the current thread gets
+     * interrupted
+     * @return matching places, unordered, or null if cancelled
+     */
+    private static List<Place> find(HashMap<Place, String>[] texts, HashMap<Long, Posting>[] postings, String[] keywords, boolean cancellable){
+        ArrayList<String> lowerKeywords = normalize(keywords);
+        ArrayList<Place> ret = new ArrayList<>();
+        if(lowerKeywords.isEmpty()) return ret;
+
+        // the smallest posting of any trigram of any keyword
+        Posting candidates = null;
+        for(String keyword: lowerKeywords){
+            for(Long trigram: getTrigrams(keyword)){
+                Posting posting = postings[shard(trigram)].get(trigram);
+                if(posting == null) return ret;
+                if(candidates == null || posting.size < candidates.size){
+                    candidates = posting;
+                }
+            }
+        }
+
+        int count = 0;
+        if(candidates != null){
+            for(int i = 0; i < candidates.size; ++i){
+                if(cancellable && (++count & 0xfff) == 0 && Thread.currentThread().isInterrupted()) return null;
+                Place place = candidates.places[i];
+                if(matches(texts[shard(place)].get(place), lowerKeywords)) ret.add(place);
+            }
+        } else {
+            // only short keywords, check every place
+            for(HashMap<Place, String> shard: texts){
+                for(Map.Entry<Place, String> entry: shard.entrySet()){
+                    if(cancellable && (++count & 0xfff) == 0 && Thread.currentThread().isInterrupted()) return null;
+                    if(matches(entry.getValue(), lowerKeywords)) ret.add(entry.getKey());
+                }
+            }
+        }
+        if(cancellable && Thread.currentThread().isInterrupted()) return null;
+        return ret;
+    }
+
+    /**
+     * Finds places that approximately contain all keywords, eg. with typos.
+     * Keywords shorter than three characters have to match exactly
+     * @param keywords keywords, empty keywords are ignored
+     * @return matching places, best matches first
+     */
+    public List<Place> findFuzzy(String[] keywords){
+        ArrayList<String> lowerKeywords = normalize(keywords);
+        final HashMap<Place, Double> similarity = new HashMap<>();
+        boolean first = true;
+
+        for(String keyword: lowerKeywords){
+            HashSet<Long> trigrams = getTrigrams(keyword);
+            if(trigrams.isEmpty()) continue;
+
+            // count the trigrams of the keyword per place
+            HashMap<Place, Integer> hits = new HashMap<>();
+            for(Long trigram: trigrams){
+                Posting posting = postings[shard(trigram)].get(trigram);
+                if(posting == null) continue;
+                for(int i = 0; i < posting.size; ++i){
+                    Place place = posting.places[i];
+                    Integer count = hits.get(place);
+                    hits.put(place, count == null ? 1 : count + 1);
+                }
+            }
+
+            // keep places that match every keyword so far
+            HashMap<Place, Double> next = new HashMap<>();
+            for(Map.Entry<Place, Integer> entry: hits.entrySet()){
+                double value = (double) entry.getValue() / trigrams.size();
+                if(value >= FUZZY_MIN_SIMILARITY && (first || similarity.containsKey(entry.getKey()))){
+                    next.put(entry.getKey(), first ? value : Math.min(value, similarity.get(entry.getKey())));
+                }
+            }
+            similarity.clear();
+            similarity.putAll(next);
+            first = false;
+        }
+
+        ArrayList<Place> ret = new ArrayList<>();
+        ArrayList<String> shortKeywords = new ArrayList<>();
+        for(String keyword: lowerKeywords){
+            if(keyword.length() < 3) shortKeywords.add(keyword);
+        }
+        if(first){
+            // only short keywords
+            if(!shortKeywords.isEmpty()) ret.addAll(find(shortKeywords.toArray(new String[shortKeywords.size()])));
+            return ret;
+        }
+
+        for(Place place: similarity.keySet()){
+            if(matches(texts[shard(place)].get(place), shortKeywords)) ret.add(place);
+        }
+        Collections.sort(ret, new Comparator<Place>() {
+            @Override
+            public int compare(Place p1, Place p2) {
+                int cmp = Double.compare(similarity.get(p2), similarity.get(p1));
+                return cmp != 0 ? cmp : Integer.compare(p1.getId(), p2.getId());
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Lower case keywords without empty ones
+     * @param keywords keywords or null
+     * @return lower case keywords
+     */
+    private static ArrayList<String> normalize(String[] keywords){
+        ArrayList<String> ret = new ArrayList<>();
+        if(keywords != null){
+            for(String keyword: keywords){
+                if(keyword != null && !keyword.isEmpty()) ret.add(keyword.toLowerCase());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Checks whether a text contains all keywords
+     * @param text lower case text
+     * @param keywords lower case keywords
+     * @return true, if all keywords are found
+     */
+    private static boolean matches(String text, List<String> keywords){
+        for(String keyword: keywords){
+            if(!text.contains(keyword)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes a place from the posting of a trigram
+     * @param trigram trigram
+     * @param place place
+     */
+    private void removePosting(Long trigram, Place place){
+        Posting posting = postings[shard(trigram)].get(trigram);
+        if(posting == null) return;
+        Posting newPosting = posting.remove(place);
+        if(newPosting == posting) return;
+        if(newPosting == null) getPostingShard(trigram).remove(trigram);
+        else getPostingShard(trigram).put(trigram, newPosting);
+    }
+
+    /**
+     * Gets the text shard of a place for changes, copies it if a snapshot
+     * uses it
+     * @param place place
+     * @return shard
+     */
+    private HashMap<Place, String> getTextShard(Place place){
+        int i = shard(place);
+        if(textsShared[i]){
+            texts[i] = new HashMap<>(texts[i]);
+            textsShared[i] = false;
+        }
+        return texts[i];
+    }
+
+    /**
+     * Gets the posting shard of a trigram for changes, copies it if a
+     * snapshot uses it
+     * @param trigram trigram
+     * @return shard
+     */
+    private HashMap<Long, Posting> getPostingShard(Long trigram){
+        int i = shard(trigram);
+        if(postingsShared[i]){
+            postings[i] = new HashMap<>(postings[i]);
+            postingsShared[i] = false;
+        }
+        return postings[i];
+    }
+
+    /**
+     * Gets the shard of a place
+     * @param place place
+     * @return shard index
+     */
+    private static int shard(Place place){
+        return (System.identityHashCode(place) * 0x9E3779B9) >>> (32 - SHARD_BITS);
+    }
+
+    /**
+     * Gets the shard of a trigram
+     * @param trigram trigram
+     * @return shard index
+     */
+    private static int shard(long trigram){
+        return (int) ((trigram * 0x9E3779B97F4A7C15L) >>> (64 - SHARD_BITS));
+    }
+
+    /**
+     * Creates empty shards
+     * @return shards
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> HashMap<K, V>[] newShards(){
+        HashMap<K, V>[] ret = new HashMap[SHARDS];
+        for(int i = 0; i < SHARDS; ++i){
+            ret[i] = new HashMap<>();
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the searchable text of a place
+     * @param place place
+     * @return lower case name, comments and flags, separated by line breaks
+     */
+    static String getText(Place place){
+        StringBuilder builder = new StringBuilder();
+        if(place.getName() != null) builder.append(place.getName());
+        builder.append('\n');
+        if(place.getComments() != null) builder.append(place.getComments());
+        for(Map.Entry<String, Boolean> flag: place.getFlags().entrySet()){
+            if(flag.getValue()) builder.append('\n').append(flag.getKey());
+        }
+        return builder.toString().toLowerCase();
+    }
+
+    /**
+     * Gets the distinct trigrams of a text, each one is packed into a long
+     * @param text text
+     * @return trigrams, empty if the text is shorter than three characters
+     */
+    static HashSet<Long> getTrigrams(String text){
+        HashSet<Long> ret = new HashSet<>();
+        for(int i = 0; i + 2 < text.length(); ++i){
+            ret.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return ret;
+    }
+
+}
@@ -30,19 +30,21 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import mudmap2.backend.Layer.PlaceNotInsertedException;
 import mudmap2.backend.WorldFileReader.WorldFile;
-import mudmap2.backend.sssp.BreadthSearchGraph;
+import mudmap2.backend.sssp.PathFinder;
 import org.json.JSONObject;
 
 /**
  *
  * @author neop
  */
-public class World implements BreadthSearchGraph {
+public class World {
 
     // worldname and file of the world
     String worldname;
@@ -63,11 +65,22 @@ public class World implements BreadthSearchGraph {
     final HashSet<PlaceGroup> placeGroups = new HashSet<>();
     final TreeMap<Integer, Layer> layers = new TreeMap<>();
 
+    // place index, updated through the change events
+    final HashMap<Integer, Place> placesById = new HashMap<>();
+    final HashMap<String, ArrayList<Place>> placesByName = new HashMap<>();
+    // full-text index, created on the first search
+    PlaceSearchIndex searchIndex = null;
+    // created on the first search
+    PathFinder pathFinder = null;
+
     // For creating world-unique layer ids
     Integer nextLayerID = 1;
 
     // Preferences
     ShowPlaceID showPlaceID = ShowPlaceID.UNIQUE;
+    SpatialIndexType spatialIndexType = SpatialIndexType.QUADTREE;
+    // landmarks for path finding, 0 disables the landmark index
+    int landmarkCount = 0;
 
     // World-related preferences for dialogs etc.
     JSONObject preferences = new JSONObject();
@@ -75,6 +88,9 @@ public class World implements BreadthSearchGraph {
 
     // Listeners
     final LinkedList<WorldChangeListener> changeListeners = new LinkedList<>();
+    // changes of the current batch, listeners get called at the end
+    int batchDepth = 0;
+    WorldChangeSet batchChanges = null;
 
     /**
      * Creates an empty world
@@ -161,6 +177,185 @@ public class World implements BreadthSearchGraph {
 
     // --------- places --------------------------------------------------------
 
+    /**
+     * Gets a place by its id
+     * @param id place id
+     * @return place or null
+     */
+    public Place getPlace(int id){
+        return placesById.get(id);
+    }
+
+    /**
+     * Gets all places with a certain name
+     * @param name place name
+     * @return places with that name, empty if there is none
+     */
+    public List<Place> findPlacesByName(String name){
+        ArrayList<Place> places = placesByName.get(name);
+        if(places == null){
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(places);
+    }
+
+    /**
+     * Gets the number of places in the world
+     * @return number of places
+     */
+    public int getPlaceCount(){
+        return placesById.size();
+    }
+
+    /**
+     * Finds the places that contain all keywords in their name, comments or
+     * flags, case insensitive
+     * @param keywords keywords
+     * @return matching places, unordered
+     */
+    public List<Place> findPlaces(String[] keywords){
+        return getSearchIndex().find(keywords);
+    }
+
+    /**
+     * Finds the places that approximately contain all keywords in their name,
+     * comments or flags, see PlaceSearchIndex.findFuzzy()
+     * @param keywords keywords
+     * @return matching places, best matches first
+     */
+    public List<Place> findPlacesFuzzy(String[] keywords){
+        return getSearchIndex().findFuzzy(keywords);
+    }
+
+    /**
+     * Gets an immutable copy of the search data that can be searched on a
+     * background thread, see PlaceSearchIndex.Snapshot
+     * @return search snapshot
+     */
+    public PlaceSearchIndex.Snapshot getSearchSnapshot(){
+        return getSearchIndex().getSnapshot();
+    }
+
+    /**
+     * Gets the full-text index, creates it if necessary
+     * @return search index
+     */
+    private PlaceSearchIndex getSearchIndex(){
+        if(searchIndex == null){
+            searchIndex = new PlaceSearchIndex();
+            for(Place place: placesById.values()){
+                searchIndex.update(place);
+            }
+        }
+        return searchIndex;
+    }
+
+    /**
+     * Updates the place index
+     * @param event change event
+     */
+    private void updatePlaceIndex(WorldChangeEvent event){
+        switch(event.getType()){
+            case PLACE_ADDED:
+                indexPlace((Place) event.getSource());
+                break;
+            case PLACE_REMOVED:
+                unindexPlace((Place) event.getSource(), ((Place) event.getSource()).getName());
+                break;
+            case PLACE_RENAMED:
+                Place place = (Place) event.getSource();
+                if(placesById.get(place.getId()) == place){
+                    unindexPlace(place, (String) event.getOldValue());
+                    indexPlace(place);
+                }
+                break;
+            case PLACE_CHANGED:
+                // comments or flags
+                if(searchIndex != null && searchIndex.contains((Place) event.getSource())){
+                    searchIndex.update((Place) event.getSource());
+                }
+                break;
+            case LAYER_ADDED:
+                // places that have been put onto the layer before it was added
+                ((Layer) event.getSource()).forEachPlace(new Consumer<Place>() {
+                    @Override
+                    public void accept(Place place) {
+                        indexPlace(place);
+                    }
+                });
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Adds places to the index that have been put onto a layer without single
+     * events, eg. by Layer.putAll()
+     * @param elements added elements
+     */
+    void indexPlaces(List<? extends LayerElement> elements){
+        for(LayerElement element: elements){
+            if(element instanceof Place) indexPlace((Place) element);
+        }
+    }
+
+    /**
+     * Adds a place to the index, if it isn't indexed yet. The text of indexed
+     * places is kept up to date by rename and change events, so they are
+     * skipped
+     * @param place place
+     */
+    private void indexPlace(Place place){
+        Place old = placesById.put(place.getId(), place);
+        if(old == place) return;
+        if(searchIndex != null){
+            searchIndex.update(place);
+        }
+        if(old != null){
+            // another place with the same id gets replaced
+            unindexName(old, old.getName());
+            if(searchIndex != null) searchIndex.remove(old);
+        }
+
+        ArrayList<Place> places = placesByName.get(place.getName());
+        if(places == null){
+            placesByName.put(place.getName(), places = new ArrayList<>(1));
+        }
+        places.add(place);
+    }
+
+    /**
+     * Removes a place from the index
+     * @param place place
+     * @param name name that was used to index the place
+     */
+    private void unindexPlace(Place place, String name){
+        if(placesById.get(place.getId()) == place){
+            placesById.remove(place.getId());
+            unindexName(place, name);
+            if(searchIndex != null) searchIndex.remove(place);
+        }
+    }
+
+    /**
+     * Removes a place from the name index
+     * @param place place
+     * @param name name that was used to index the place
+     */
+    private void unindexName(Place place, String name){
+        ArrayList<Place> places = placesByName.get(name);
+        if(places != null){
+            for(int i = 0; i < places.size(); ++i){
+                if(places.get(i) == place){
+                    places.remove(i);
+                    break;
+                }
+            }
+            if(places.isEmpty()) placesByName.remove(name);
+        }
+    }
+
     /**
      * Creates a placeholder place
      * @param layerId layer
@@ -214,11 +409,12 @@ public class World implements BreadthSearchGraph {
             throw new NullPointerException();
         }
 
-        if(!layers.containsKey(layer.getId()))
+        if(!layers.containsKey(layer.getId())){
             layers.put(layer.getId(), layer);
-
-        addChangeListener(layer);
-        callListeners(layer);
+            callListeners(new WorldChangeEvent(WorldChangeEvent.Type.LAYER_ADDED, layer));
+        } else {
+            callListeners(layer);
+        }
     }
     
     /**
@@ -226,12 +422,17 @@ public class World implements BreadthSearchGraph {
      * @param layer
      */
     public void deleteLayer(Layer layer){
-        for(LayerElement elem: layer.getLayerElements()){
-            if(elem instanceof Place) ((Place) elem).removeConnections();
-            layer.remove(elem);
+        beginBatch();
+        try {
+            for(LayerElement elem: layer.getLayerElements()){
+                if(elem instanceof Place) ((Place) elem).removeConnections();
+                layer.remove(elem);
+            }
+            layers.remove(layer.id);
+            callListeners(new WorldChangeEvent(WorldChangeEvent.Type.LAYER_REMOVED, layer));
+        } finally {
+            endBatch();
         }
-        layers.remove(layer.id);
-        callListeners(null);
     }
 
     /**
@@ -432,6 +633,63 @@ public class World implements BreadthSearchGraph {
         return showPlaceID;
     }
 
+    public enum SpatialIndexType {
+        QUADTREE, // pr-quadtree, fast range queries on dense maps
+        HASH // hash table, fast point lookups and less memory on sparse maps
+    }
+
+    /**
+     * Sets the data structure that stores the places of each layer, existing
+     * layers will be rebuilt
+     * @param type
+     */
+    public void setSpatialIndexType(SpatialIndexType type){
+        if(type == null){
+            throw new NullPointerException();
+        }
+        if(type != spatialIndexType){
+            spatialIndexType = type;
+            for(Layer layer: getLayers()){
+                layer.rebuildSpatialIndex();
+            }
+            callListeners(this);
+        }
+    }
+
+    /**
+     * Gets the data structure that stores the places of each layer
+     * @return
+     */
+    public SpatialIndexType getSpatialIndexType(){
+        return spatialIndexType;
+    }
+
+    /**
+     * Sets the number of landmark places for path finding, their distances
+     * to all places get precomputed, see LandmarkIndex
+     * @param count number of landmarks, 0 to disable the landmark index
+     * @throws IllegalArgumentException if count is negative
+     */
+    public void setLandmarkCount(int count) throws IllegalArgumentException{
+        if(count < 0){
+            throw new IllegalArgumentException("Invalid landmark count: " + count);
+        }
+        if(count != landmarkCount){
+            landmarkCount = count;
+            // world changes don't affect the landmark index otherwise
+            if(pathFinder != null) pathFinder.invalidateLandmarks();
+            callListeners(this);
+        }
+    }
+
+    /**
+     * Gets the number of landmark places for path finding
+     * @return number of landmarks, 0 if the landmark index is disabled
+     */
+    public int getLandmarkCount(){
+        return landmarkCount;
+    }
+
     // --------- PlaceGroupss ---------------------------------------------------------
     /**
      * Gets all PlaceGroupss (eg. for lists)
@@ -463,13 +721,18 @@ public class World implements BreadthSearchGraph {
      * @param placeGroup PlaceGroup to be removed
      */
     public void removePlaceGroup(PlaceGroup placeGroup){
-        for(Layer layer: getLayers()){
-            for(Place p: layer.getPlaces()){
-                if(p.getPlaceGroup() == placeGroup) p.setPlaceGroup(null);
+        beginBatch();
+        try {
+            for(Layer layer: getLayers()){
+                for(Place p: layer.getPlacesView()){
+                    if(p.getPlaceGroup() == placeGroup) p.setPlaceGroup(null);
+                }
             }
+            placeGroups.remove(placeGroup);
+            callListeners(placeGroup);
+        } finally {
+            endBatch();
         }
-        placeGroups.remove(placeGroup);
-        callListeners(placeGroup);
     }
 
     // --------- information colors --------------------------------------------
@@ -529,13 +792,18 @@ public class World implements BreadthSearchGraph {
             // remode from information color list
             informationColors.remove(ic.getId());
             // removePlace from places
-            for(Layer layer: getLayers()){
-                for(Place place: layer.getPlaces()){
-                    if(place.getInfoRing() == ic) place.setInfoRing(null);
+            beginBatch();
+            try {
+                for(Layer layer: getLayers()){
+                    for(Place place: layer.getPlacesView()){
+                        if(place.getInfoRing() == ic) place.setInfoRing(null);
+                    }
                 }
-            }
 
-            callListeners(ic);
+                callListeners(ic);
+            } finally {
+                endBatch();
+            }
         }
     }
 
@@ -558,38 +826,12 @@ public class World implements BreadthSearchGraph {
 
     // --------- path finding --------------------------------------------------
     /**
-     * does a breadth search
-     * @param start start place
-     * @param end end place
-     * @return end place or null. Following the predecessors of this path leads
-     * to the start place
-     */
-    @Override
-    public Place breadthSearch(Place start, Place end) {
-        for(Layer layer: getLayers()){
-            for(Place place: layer.getPlaces()){
-                place.breadthSearchReset();
-            }
-        }
-        start.getBreadthSearchData().marked = true;
-
-        LinkedList<Place> queue = new LinkedList<>();
-        queue.add(start);
-
-        while(!queue.isEmpty()){
-            Place v = queue.pollFirst();
-            if(v == end) return v;
-
-            for(Path pa: v.getPaths()){
-                Place vi = pa.getOtherPlace(v);
-                if(!vi.getBreadthSearchData().marked && vi != v && !pa.getExit(v).equals("-")){
-                    vi.getBreadthSearchData().marked = true;
-                    vi.getBreadthSearchData().predecessor = v;
-                    queue.addLast(vi);
-                }
-            }
-        }
-        return null;
+     * Gets the path finder of this world
+     * @return path finder
+     */
+    public PathFinder getPathFinder(){
+        if(pathFinder == null) pathFinder = new PathFinder(this);
+        return pathFinder;
     }
 
     // --------- listeners -----------------------------------------------------
@@ -610,12 +852,166 @@ public class World implements BreadthSearchGraph {
     }
 
     /**
-     * Call listeners
+     * Call listeners with an untyped change, see WorldChangeEvent.fromSource()
      * @param source changed object
      */
     public void callListeners(Object source){
-        for(WorldChangeListener listener: changeListeners){
-            listener.worldChanged(source);
+        callListeners(WorldChangeEvent.fromSource(source));
+    }
+
+    /**
+     * Call listeners, or remember the change until the end of the current
+     * batch
+     * @param event change event
+     */
+    public void callListeners(WorldChangeEvent event){
+        markModified(event);
+        updatePlaceIndex(event);
+        if(pathFinder != null) pathFinder.update(event);
+        if(batchDepth > 0){
+            batchChanges.add(event);
+        } else {
+            for(WorldChangeListener listener: changeListeners){
+                listener.worldChanged(event);
+            }
+        }
+    }
+
+    /**
+     * Increments the modification counters of the layers affected by a change
+     * @param event change event
+     */
+    private void markModified(WorldChangeEvent event){
+        Object source = event.getSource();
+        if(source instanceof Layer){
+            ((Layer) source).modified();
+            // bulk insert or shift
+            if(event.getType() == WorldChangeEvent.Type.LAYER_CHANGED) ((Layer) source).pathsModified();
+        } else if(source instanceof LayerElement || source instanceof Path){
+            Layer layer1, layer2 = null;
+            if(source instanceof LayerElement){
+                layer1 = ((LayerElement) source).getLayer();
+            } else {
+                Place[] places = ((Path) source).getPlaces();
+                layer1 = places[0].getLayer();
+                layer2 = places[1].getLayer();
+            }
+            // connected child place, or the layers of an old or new position
+            Layer layer3 = getValueLayer(event.getOldValue());
+            Layer layer4 = getValueLayer(event.getNewValue());
+
+            // each layer only once, without a set since this runs on every change
+            boolean paths = isPathChange(event);
+            markModified(layer1, paths);
+            if(layer2 != layer1) markModified(layer2, paths);
+            if(layer3 != layer1 && layer3 != layer2) markModified(layer3, paths);
+            if(layer4 != layer1 && layer4 != layer2 && layer4 != layer3) markModified(layer4, paths);
+        } else {
+            // eg. colors changed, might affect every layer
+            for(Layer layer: getLayers()){
+                layer.modified();
+            }
+        }
+    }
+
+    /**
+     * Increments the modification counters of a layer
+     * @param layer layer or null
+     * @param paths true to increment the path modification counter, too
+     */
+    private static void markModified(Layer layer, boolean paths){
+        if(layer != null){
+            layer.modified();
+            if(paths) layer.pathsModified();
+        }
+    }
+
+    /**
+     * Gets the layer of an event value
+     * @param value layer element, world coordinate or something else
+     * @return layer or null
+     */
+    private Layer getValueLayer(Object value){
+        if(value instanceof LayerElement){
+            return ((LayerElement) value).getLayer();
+        } else if(value instanceof WorldCoordinate){
+            return getLayer(((WorldCoordinate) value).getLayer());
         }
+        return null;
+    }
+
+    /**
+     * Checks whether a change of a place or path can change routes or the
+     * grid distance of connected places
+     * @param event change event
+     * @return true for changes of paths, links, positions and removed or
+     * connected new places
+     */
+    private static boolean isPathChange(WorldChangeEvent event){
+        switch(event.getType()){
+            case PATH_CONNECTED:
+            case PATH_REMOVED:
+            case PATH_CHANGED:
+            case CHILD_CONNECTED:
+            case CHILD_REMOVED:
+            case PLACE_MOVED:
+            case PLACE_REMOVED:
+                return true;
+            case PLACE_ADDED:
+                return ((Place) event.getSource()).hasConnections();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Starts a batch: listeners won't be called until the matching endBatch()
+     * call. Batches can be nested, listeners get called at the end of the
+     * outermost batch. Use batch() or call endBatch() in a finally block
+     */
+    public void beginBatch(){
+        if(batchDepth++ == 0){
+            batchChanges = new WorldChangeSet();
+        }
+    }
+
+    /**
+     * Ends a batch, calls each listener once with all changes of the batch
+     * @throws IllegalStateException if there is no batch
+     */
+    public void endBatch(){
+        if(batchDepth == 0){
+            throw new IllegalStateException("No batch to end");
+        }
+        if(--batchDepth == 0){
+            WorldChangeSet changes = batchChanges;
+            batchChanges = null;
+            if(!changes.isEmpty()){
+                for(WorldChangeListener listener: changeListeners){
+                    listener.worldChangedBatch(changes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs runnable as a batch, see beginBatch()
+     * @param runnable changes to the world
+     */
+    public void batch(Runnable runnable){
+        beginBatch();
+        try {
+            runnable.run();
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Checks whether a batch is running
+     * @return true, if listener calls are deferred
+     */
+    public boolean isBatchRunning(){
+        return batchDepth > 0;
     }
 }
@@ -0,0 +1,158 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2014  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*  File description
+ *
+ *  This class describes a single change of a world, so that listeners can
+ *  update their state without rebuilding it
+ */
+
+package mudmap2.backend;
+
+/**
+ * A typed world change. The source is the changed object, old and new value
+ * depend on the type:
+ * <ul>
+ * <li>PLACE_ADDED: place, null, new WorldCoordinate</li>
+ * <li>PLACE_REMOVED: place, old WorldCoordinate, null</li>
+ * <li>PLACE_MOVED: place, old WorldCoordinate, new WorldCoordinate</li>
+ * <li>PLACE_RENAMED: place, old name, new name</li>
+ * <li>PATH_CONNECTED / PATH_REMOVED: path, null, null</li>
+ * <li>PATH_CHANGED: path, old weight, new weight</li>
+ * <li>CHILD_CONNECTED / CHILD_REMOVED: parent place, null / child, child / null</li>
+ * <li>LAYER_ADDED / LAYER_REMOVED / LAYER_CHANGED: layer, null, null</li>
+ * <li>LAYER_CHANGED after a bulk insert: layer, null, list of the added
+ * elements</li>
+ * <li>PLACE_CHANGED, PLACE_GROUP_CHANGED, INFORMATION_COLOR_CHANGED,
+ * WORLD_CHANGED: changed object, null, null</li>
+ * </ul>
+ * LAYER_CHANGED means that many places of the layer changed at once (eg.
+ * bulk insert or shift)
+ * @author neop
+ */
+public class WorldChangeEvent {
+
+    public enum Type {
+        PLACE_ADDED,
+        PLACE_REMOVED,
+        PLACE_MOVED,
+        PLACE_RENAMED,
+        PLACE_CHANGED,
+        PATH_CONNECTED,
+        PATH_REMOVED,
+        PATH_CHANGED,
+        CHILD_CONNECTED,
+        CHILD_REMOVED,
+        LAYER_ADDED,
+        LAYER_REMOVED,
+        LAYER_CHANGED,
+        PLACE_GROUP_CHANGED,
+        INFORMATION_COLOR_CHANGED,
+        WORLD_CHANGED
+    }
+
+    final Type type;
+    final Object source;
+    final Object oldValue;
+    final Object newValue;
+
+    /**
+     * Constructs an event without old and new value
+     * @param type change type
+     * @param source changed object
+     */
+    public WorldChangeEvent(Type type, Object source){
+        this(type, source, null, null);
+    }
+
+    /**
+     * Constructs an event
+     * @param type change type
+     * @param source changed object
+     * @param oldValue value before the change or null
+     * @param newValue value after the change or null
+     */
+    public WorldChangeEvent(Type type, Object source, Object oldValue, Object newValue){
+        if(type == null){
+            throw new NullPointerException();
+        }
+        this.type = type;
+        this.source = source;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
+    /**
+     * Creates an untyped event from a changed object, the type is derived
+     * from the class of the object
+     * @param source changed object or null
+     * @return event
+     */
+    public static WorldChangeEvent fromSource(Object source){
+        Type type;
+        if(source instanceof Place){
+            type = Type.PLACE_CHANGED;
+        } else if(source instanceof Layer){
+            type = Type.LAYER_CHANGED;
+        } else if(source instanceof PlaceGroup){
+            type = Type.PLACE_GROUP_CHANGED;
+        } else if(source instanceof InformationColor){
+            type = Type.INFORMATION_COLOR_CHANGED;
+        } else {
+            type = Type.WORLD_CHANGED;
+        }
+        return new WorldChangeEvent(type, source);
+    }
+
+    /**
+     * Gets the change type
+     * @return type
+     */
+    public Type getType(){
+        return type;
+    }
+
+    /**
+     * Gets the changed object
+     * @return changed object or null
+     */
+    public Object getSource(){
+        return source;
+    }
+
+    /**
+     * Gets the value before the change
+     * @return old value or null
+     */
+    public Object getOldValue(){
+        return oldValue;
+    }
+
+    /**
+     * Gets the value after the change
+     * @return new value or null
+     */
+    public Object getNewValue(){
+        return newValue;
+    }
+
+    @Override
+    public String toString(){
+        return type + " " + source + " (" + oldValue + " -> " + newValue + ")";
+    }
+
+}
@@ -24,4 +24,28 @@ public interface WorldChangeListener {
 
     public void worldChanged(Object source);
 
+    /**
+     * Gets called on every change outside of a batch. Calls worldChanged()
+     * with the changed object, override it to use the type and the old and
+     * new values of the change
+     * @param event change event
+     */
+    default public void worldChanged(WorldChangeEvent event){
+        worldChanged(event.getSource());
+    }
+
+    /**
+     * Gets called once at the end of a batch, see World.batch(). Calls
+     * worldChanged() with the changed object, or with null if more than one
+     * object changed
+     * @param changes objects changed within the batch
+     */
+    default public void worldChangedBatch(WorldChangeSet changes){
+        if(changes.size() == 1){
+            worldChanged(changes.getSources().iterator().next());
+        } else {
+            worldChanged((Object) null);
+        }
+    }
+
 }
@@ -0,0 +1,137 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2014  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*  File description
+ *
+ *  This class collects the changes of a world batch, so that listeners get
+ *  called once per batch
+ */
+
+package mudmap2.backend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The objects that changed within a batch, each one is contained once and in
+ * order of their first change. A null source means that the world changed in
+ * general (eg. a layer got deleted)
+ * @author neop
+ */
+public class WorldChangeSet {
+
+    final LinkedHashSet<Object> sources = new LinkedHashSet<>();
+    final ArrayList<WorldChangeEvent> events = new ArrayList<>();
+
+    /**
+     * Adds a change
+     * @param event change event
+     */
+    void add(WorldChangeEvent event){
+        sources.add(event.getSource());
+        events.add(event);
+    }
+
+    /**
+     * Gets all events of the batch
+     * @return read-only list of events in order of occurrence
+     */
+    public List<WorldChangeEvent> getEvents(){
+        return Collections.unmodifiableList(events);
+    }
+
+    /**
+     * Checks whether an event of a certain type occurred
+     * @param type event type
+     * @return true, if at least one event of that type occurred
+     */
+    public boolean contains(WorldChangeEvent.Type type){
+        for(WorldChangeEvent event: events){
+            if(event.getType() == type){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets all changed objects
+     * @return read-only set of changed objects
+     */
+    public Set<Object> getSources(){
+        return Collections.unmodifiableSet(sources);
+    }
+
+    /**
+     * Gets the changed objects of a certain type
+     * @param <T> type
+     * @param type class of the objects
+     * @return changed objects of that type
+     */
+    public <T> List<T> getSources(Class<T> type){
+        List<T> ret = new ArrayList<>();
+        for(Object source: sources){
+            if(type.isInstance(source)){
+                ret.add(type.cast(source));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Checks whether an object of a certain type changed
+     * @param type class of the objects
+     * @return true, if at least one object of that type changed
+     */
+    public boolean contains(Class<?> type){
+        for(Object source: sources){
+            if(type.isInstance(source)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether an object changed
+     * @param source object or null
+     * @return true, if the object changed
+     */
+    public boolean containsSource(Object source){
+        return sources.contains(source);
+    }
+
+    /**
+     * Gets the number of changed objects
+     * @return number of changed objects
+     */
+    public int size(){
+        return sources.size();
+    }
+
+    /**
+     * Checks whether nothing changed
+     * @return true, if empty
+     */
+    public boolean isEmpty(){
+        return sources.isEmpty();
+    }
+
+}
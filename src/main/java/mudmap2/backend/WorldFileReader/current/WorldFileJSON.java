@@ -25,6 +25,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -52,12 +53,13 @@ import org.json.*;
 public class WorldFileJSON extends WorldFile {
 
     static Integer versionMajor = 2;
-    static Integer versionMinor = 1;
+    static Integer versionMinor = 2;
 
     /**
      * Version history:
      * 2.0: initial version
      * 2.1: added pathColUnknown
+     * 2.2: added path weights
      */
     
     JSONObject fileRoot = null;
@@ -159,6 +161,16 @@ public class WorldFileJSON extends WorldFile {
                 world.setShowPlaceID(World.ShowPlaceID.valueOf(root.getString("showPlaceID")));
             }
 
+            // spatialIndex
+            if(root.has("spatialIndex")){
+                world.setSpatialIndexType(World.SpatialIndexType.valueOf(root.getString("spatialIndex")));
+            }
+
+            // landmarks for path finding
+            if(root.has("landmarks")){
+                world.setLandmarkCount(root.getInt("landmarks"));
+            }
+
             // tileCenterCol
             if(root.has("tileCenterCol")){
                 world.setTileCenterColor(hexToCol(root.getString("tileCenterCol")));
@@ -272,9 +284,10 @@ public class WorldFileJSON extends WorldFile {
                 }
             }
 
-            // places
-            HashMap<Integer, Place> places = new HashMap<>();
+            // places, the world indexes them by id once they are on their layers
             HashMap<Place, HashSet<Integer>> childrenMapping = new HashMap<>();
+            // places will be added to their layers after reading all of them
+            HashMap<Layer, ArrayList<Place>> layerPlaces = new HashMap<>();
 
             if(root.has("places")){
                 JSONArray jPlaces = root.getJSONArray("places");
@@ -302,8 +315,6 @@ public class WorldFileJSON extends WorldFile {
                         // create place
                         Place place = new Place(id, name, x, y, layer);
 
-                        places.put(id, place);
-
                         // area
                         if(jPlace.has("a")){
                             place.setPlaceGroup(areas.get(jPlace.getInt("a")));
@@ -362,16 +373,26 @@ public class WorldFileJSON extends WorldFile {
                             place.setComments(builder.toString());
                         }
 
-                        layer.put(place);
+                        ArrayList<Place> list = layerPlaces.get(layer);
+                        if(list == null){
+                            list = new ArrayList<>();
+                            layerPlaces.put(layer, list);
+                        }
+                        list.add(place);
                     }
                 }
             }
 
+            // build each layer's quadtree at once
+            for(Entry<Layer, ArrayList<Place>> entry: layerPlaces.entrySet()){
+                entry.getKey().putAll(entry.getValue());
+            }
+
             // connect children
             for(Entry<Place, HashSet<Integer>> entry: childrenMapping.entrySet()){
                 Place place = entry.getKey();
                 for(Integer id: entry.getValue()){
-                    place.connectChild(places.get(id));
+                    place.connectChild(world.getPlace(id));
                 }
             }
 
@@ -386,11 +407,13 @@ public class WorldFileJSON extends WorldFile {
                         JSONObject p1 = path.getJSONObject(1);
                         if(p0.has("p") && p0.has("e")
                                 && p1.has("p") && p1.has("e")){
-                            Place pl0 = places.get(p0.getInt("p"));
-                            Place pl1 = places.get(p1.getInt("p"));
+                            Place pl0 = world.getPlace(p0.getInt("p"));
+                            Place pl1 = world.getPlace(p1.getInt("p"));
                             if(pl0 != null && pl1 != null){
                                 Path p = new Path(pl0, p0.getString("e"),
                                         pl1, p1.getString("e"));
+                                // optional weight, stored with the first place
+                                if(p0.has("w")) p.setWeight(p0.getDouble("w"));
                                 pl0.connectPath(p);
                             }
                         }
@@ -490,6 +513,10 @@ public class WorldFileJSON extends WorldFile {
 
         if(!exportSingleLayer) {
             root.put("showPlaceID", world.getShowPlaceId());
+            root.put("spatialIndex", world.getSpatialIndexType());
+            if(world.getLandmarkCount() > 0){
+                root.put("landmarks", world.getLandmarkCount());
+            }
 
             // tile center color
             if(world.getTileCenterColor() != null){
@@ -522,7 +549,7 @@ public class WorldFileJSON extends WorldFile {
         // filter colors if single layer is exported
         HashSet<InformationColor> infoColsInUse = new HashSet<>();
         if(exportSingleLayer) {
-            for(Place place: exportLayer.getPlaces()){
+            for(Place place: exportLayer.getPlacesView()){
                 infoColsInUse.add(place.getInfoRing());
             }
         }
@@ -545,26 +572,22 @@ public class WorldFileJSON extends WorldFile {
         // filter place groups if single layer is exported
         HashSet<PlaceGroup> areasInUse = new HashSet<>();
         if(exportSingleLayer) {
-            for(Place place: exportLayer.getPlaces()){
+            for(Place place: exportLayer.getPlacesView()){
                 areasInUse.add(place.getPlaceGroup());
             }
         }
 
-        // create IDs for areaArray
+        // create IDs for areaArray, skip unused place groups
+        HashSet<PlaceGroup> areasInWorld = new HashSet<>();
+        for(Layer layer: world.getLayers()){
+            for(Place place: layer.getPlacesView()){
+                areasInWorld.add(place.getPlaceGroup());
+            }
+        }
         HashMap<PlaceGroup, Integer> areaIDs = new HashMap<>();
         Integer cnt = 0; // incremental id
         for(PlaceGroup a: world.getPlaceGroups()){
-            Boolean inUse = false;
-            // removePlace unused
-            for(Layer layer: world.getLayers()){
-                for(Place place: layer.getPlaces()){
-                    if(place.getPlaceGroup() == a){
-                        inUse = true;
-                        break;
-                    }
-                }
-            }
-            if(inUse) areaIDs.put(a, ++cnt);
+            if(areasInWorld.contains(a)) areaIDs.put(a, ++cnt);
         }
 
         // add areaArray
@@ -592,7 +615,7 @@ public class WorldFileJSON extends WorldFile {
             // skip other layers
             if(exportSingleLayer && layer != exportLayer) continue;
 
-            if(!layer.getPlaces().isEmpty()){
+            if(layer.getPlaceCount() > 0){
                 JSONObject layerObj = new JSONObject();
 
                 // add layer to id map
@@ -615,7 +638,7 @@ public class WorldFileJSON extends WorldFile {
             // skip other layers
             if(exportSingleLayer && layer != exportLayer) continue;
 
-            for(Place place: layer.getPlaces()){
+            for(Place place: layer.getPlacesView()){
                 JSONObject placeObj = new JSONObject();
 
                 placeObj.put("id", place.getId());
@@ -675,7 +698,7 @@ public class WorldFileJSON extends WorldFile {
             // skip other layers
             if(exportSingleLayer && layer != exportLayer) continue;
 
-            for(Place place: layer.getPlaces()){
+            for(Place place: layer.getPlacesView()){
                 for(Path path: place.getPaths()){
                     if(!paths.contains(path)){
                         JSONArray pathObj = new JSONArray();
@@ -683,6 +706,9 @@ public class WorldFileJSON extends WorldFile {
                         JSONObject p1 = new JSONObject();
                         p1.put("p", path.getPlaces()[0].getId());
                         p1.put("e", path.getExitDirections()[0]);
+                        if(path.getWeight() != Path.DEFAULT_WEIGHT){
+                            p1.put("w", path.getWeight());
+                        }
                         pathObj.put(p1);
 
                         JSONObject p2 = new JSONObject();
@@ -21,6 +21,7 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.ListIterator;
 import java.util.Map.Entry;
@@ -173,17 +174,14 @@ public class Legend {
     private void prepareLegendEntriesInformationColors(){
         legendEntries.add(new LegendEntryTitle("Information colors"));
 
-        for(InformationColor infoCol: layer.getWorld().getInformationColors()){
-            // check if information color is in use on this layer
-            boolean isInUse = false;
-            for(Place place: layer.getPlaces()){
-                if(place.getInfoRing() == infoCol){
-                    isInUse = true;
-                    break;
-                }
-            }
+        // information colors in use on this layer
+        HashSet<InformationColor> inUse = new HashSet<>();
+        for(Place place: layer.getPlacesView()){
+            inUse.add(place.getInfoRing());
+        }
 
-            if(isInUse){
+        for(InformationColor infoCol: layer.getWorld().getInformationColors()){
+            if(inUse.contains(infoCol)){
                 legendEntries.add(new LegendEntryColor(infoCol.getDescription(), infoCol.getColor()));
             }
         }
@@ -197,17 +195,14 @@ public class Legend {
     private void prepareLegendEntriesPlaceGroups(){
         legendEntries.add(new LegendEntryTitle("Place Groups"));
 
-        for(PlaceGroup placeGroup: layer.getWorld().getPlaceGroups()){
-            // check if group is in use on this layer
-            boolean isInUse = false;
-            for(Place place: layer.getPlaces()){
-                if(place.getPlaceGroup() == placeGroup){
-                    isInUse = true;
-                    break;
-                }
-            }
+        // groups in use on this layer
+        HashSet<PlaceGroup> inUse = new HashSet<>();
+        for(Place place: layer.getPlacesView()){
+            inUse.add(place.getPlaceGroup());
+        }
 
-            if(isInUse){
+        for(PlaceGroup placeGroup: layer.getWorld().getPlaceGroups()){
+            if(inUse.contains(placeGroup)){
                 legendEntries.add(new LegendEntryColor(placeGroup.getName(), placeGroup.getColor()));
             }
         }
@@ -22,19 +22,31 @@
 
 package mudmap2.backend.prquadtree;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import mudmap2.backend.spatialindex.SpatialIndex;
+import mudmap2.backend.spatialindex.SpatialIndexVisitor;
 
 /**
  * A point-region quadtree
  * @author Neop
  * @param <T> element class type
  */
-public class Quadtree<T> {
+public class Quadtree<T> implements SpatialIndex<T> {
 
     /// NOTE: increase the last parameter to support larger maps (is already max for int)
     private static final int DEFAULT_LENGTH = 1 << 30;
 
     private QuadtreeNode root;
+    // leaf of each element, for constant time membership checks and removal
+    private final IdentityHashMap<T, QuadtreeLeaf<T>> leaves = new IdentityHashMap<>();
 
     /** Constructs a quadtree */
     public Quadtree(){
@@ -56,6 +68,7 @@ public class Quadtree<T> {
      * @param y
      * @return element data or null
      */
+    @Override
     public T get(int x, int y){
         if(root == null){
             return null;
@@ -75,6 +88,7 @@ public class Quadtree<T> {
      * @param y
      * @return
      */
+    @Override
     public boolean exist(int x, int y){
         if(root == null){
             return false;
@@ -82,6 +96,11 @@ public class Quadtree<T> {
         return root.get(x, y) != null;
     }
 
+    /**
+     * Checks whether the quadtree is empty
+     * @return true, if empty
+     */
+    @Override
     public boolean isEmpty(){
         if(root == null){
             return true;
@@ -90,27 +109,192 @@ public class Quadtree<T> {
         }
     }
 
+    /**
+     * Gets the number of elements
+     * @return number of elements
+     */
+    @Override
+    public int size(){
+        return leaves.size();
+    }
+
     /**
      * Inserts obj at x, y
      * @param obj
      * @param x
      * @param y
      * @throws Exception throws an exception, if the element couldn't be inserted
+     * or if obj is already in the quadtree
      */
+    @Override
     public void insert(T obj, int x, int y) throws Exception{
+        if(leaves.containsKey(obj)){
+            throw new Exception("Element is already in the quadtree");
+        }
         if(root == null){
             root = new QuadtreeNode(null, x, y, DEFAULT_LENGTH);
         }
-        root.insert(new QuadtreeLeaf(obj, x, y));
+        QuadtreeLeaf<T> leaf = new QuadtreeLeaf(obj, x, y);
+        root.insert(leaf);
+        leaves.put(obj, leaf);
     }
 
     /**
-     * Removes el from the quadtree
-     * @param el
-     * @throws Exception throws an exception, if e couldn't be removed
+     * Inserts many elements at once. If the quadtree is empty the elements
+     * get sorted in Z-order and the tree is built in a single pass, without
+     * incremental node splits. Otherwise they are inserted one by one
+     * @param objects elements to insert
+     * @param x x coordinates, same order as objects
+     * @param y y coordinates, same order as objects
+     * @throws Exception throws an exception, if the elements couldn't be
+     * inserted, eg. if two of them share a position. Nothing gets inserted in
+     * this case, if the quadtree was empty
      */
-    private void remove(QuadtreeElement el) throws Exception {
-        el.remove();
+    @Override
+    public void insertAll(List<T> objects, int[] x, int[] y) throws Exception {
+        if(objects.size() != x.length || objects.size() != y.length){
+            throw new IllegalArgumentException("Number of elements and coordinates differ");
+        }
+
+        if(!leaves.isEmpty()){
+            for(int i = 0; i < x.length; ++i){
+                insert(objects.get(i), x[i], y[i]);
+            }
+            return;
+        }
+        if(objects.isEmpty()){
+            return;
+        }
+
+        final int centerX, centerY;
+        if(root != null){
+            centerX = root.getX();
+            centerY = root.getY();
+        } else {
+            int xMin = Integer.MAX_VALUE, xMax = Integer.MIN_VALUE;
+            int yMin = Integer.MAX_VALUE, yMax = Integer.MIN_VALUE;
+            for(int i = 0; i < x.length; ++i){
+                xMin = Math.min(xMin, x[i]);
+                xMax = Math.max(xMax, x[i]);
+                yMin = Math.min(yMin, y[i]);
+                yMax = Math.max(yMax, y[i]);
+            }
+            centerX = (int) (((long) xMin + xMax) / 2);
+            centerY = (int) (((long) yMin + yMax) / 2);
+        }
+
+        // create leaves and check whether they fit into the tree
+        IdentityHashMap<T, QuadtreeLeaf<T>> newLeaves = new IdentityHashMap<>();
+        final QuadtreeLeaf<T>[] sorted = new QuadtreeLeaf[x.length];
+        for(int i = 0; i < x.length; ++i){
+            if(gridPosition(x[i], centerX) < 0 || gridPosition(x[i], centerX) > 2L * DEFAULT_LENGTH - 1
+                || gridPosition(y[i], centerY) < 0 || gridPosition(y[i], centerY) > 2L * DEFAULT_LENGTH - 1){
+                throw new Exception("Position " + x[i] + ", " + y[i] + " is out of range");
+            }
+            sorted[i] = new QuadtreeLeaf(objects.get(i), x[i], y[i]);
+            if(newLeaves.put(objects.get(i), sorted[i]) != null){
+                throw new Exception("Element is inserted more than once");
+            }
+        }
+
+        // Z-order: elements of each node are consecutive
+        Arrays.sort(sorted, new Comparator<QuadtreeLeaf<T>>() {
+            @Override
+            public int compare(QuadtreeLeaf<T> a, QuadtreeLeaf<T> b) {
+                return Long.compare(mortonCode(a, centerX, centerY), mortonCode(b, centerX, centerY));
+            }
+        });
+        for(int i = 1; i < sorted.length; ++i){
+            if(sorted[i].getX() == sorted[i - 1].getX() && sorted[i].getY() == sorted[i - 1].getY()){
+                throw new Exception("More than one element at position " + sorted[i].getX() + ", " + sorted[i].getY());
+            }
+        }
+
+        if(root == null){
+            root = new QuadtreeNode(null, centerX, centerY, DEFAULT_LENGTH);
+        }
+        buildChildren(root, sorted, 0, sorted.length, centerX, centerY);
+        leaves.putAll(newLeaves);
+    }
+
+    /**
+     * Translates a coordinate to a non-negative position relative to the root
+     * node's lower border. Bit n of the result tells whether the coordinate
+     * is in the upper half of a node with length 2^n
+     * @param coord x or y coordinate
+     * @param center root center coordinate
+     * @return grid position
+     */
+    private static long gridPosition(int coord, int center){
+        return (long) coord - center - 1 + DEFAULT_LENGTH;
+    }
+
+    /**
+     * Gets the Z-order (Morton) code of a leaf, y bits are the more
+     * significant ones, like in QuadtreeNode.getChildNum()
+     * @param leaf
+     * @param centerX root center x coordinate
+     * @param centerY root center y coordinate
+     * @return Morton code
+     */
+    private static long mortonCode(QuadtreeElement leaf, int centerX, int centerY){
+        return spreadBits(gridPosition(leaf.getX(), centerX)) | (spreadBits(gridPosition(leaf.getY(), centerY)) << 1);
+    }
+
+    /**
+     * Moves bit n of value to bit 2n
+     * @param value value with up to 32 bits
+     * @return
+     */
+    private static long spreadBits(long value){
+        value &= 0xFFFFFFFFL;
+        value = (value | (value << 16)) & 0x0000FFFF0000FFFFL;
+        value = (value | (value << 8)) & 0x00FF00FF00FF00FFL;
+        value = (value | (value << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        value = (value | (value << 2)) & 0x3333333333333333L;
+        value = (value | (value << 1)) & 0x5555555555555555L;
+        return value;
+    }
+
+    /**
+     * Links the Z-ordered leaves sorted[from] to sorted[to - 1] to node.
+     * Creates child nodes at the same positions and sizes that incremental
+     * insertion would create
+     * @param node parent node
+     * @param sorted leaves in Z-order
+     * @param from first leaf index
+     * @param to last leaf index + 1
+     * @param centerX root center x coordinate
+     * @param centerY root center y coordinate
+     */
+    private void buildChildren(QuadtreeNode node, QuadtreeLeaf<T>[] sorted, int from, int to, int centerX, int centerY){
+        int begin = from;
+        while(begin < to){
+            // find all leaves in the same child slot
+            int childNum = node.getChildNum(sorted[begin].getX(), sorted[begin].getY());
+            int end = begin + 1;
+            while(end < to && node.getChildNum(sorted[end].getX(), sorted[end].getY()) == childNum){
+                ++end;
+            }
+
+            if(end - begin == 1){
+                node.elements[childNum] = sorted[begin];
+                sorted[begin].setParent(node);
+            } else {
+                // the child node's level is the highest bit in which the
+                // first and the last leaf differ
+                long diff = mortonCode(sorted[begin], centerX, centerY) ^ mortonCode(sorted[end - 1], centerX, centerY);
+                int childLevel = (63 - Long.numberOfLeadingZeros(diff)) / 2;
+                long mask = ~((1L << (childLevel + 1)) - 1);
+                int childX = (int) (centerX + (gridPosition(sorted[begin].getX(), centerX) & mask) + (1L << childLevel) - DEFAULT_LENGTH);
+                int childY = (int) (centerY + (gridPosition(sorted[begin].getY(), centerY) & mask) + (1L << childLevel) - DEFAULT_LENGTH);
+
+                QuadtreeNode child = new QuadtreeNode(node, childX, childY, 1 << childLevel);
+                node.elements[childNum] = child;
+                buildChildren(child, sorted, begin, end, centerX, centerY);
+            }
+            begin = end;
+        }
     }
 
     /**
@@ -118,19 +302,26 @@ public class Quadtree<T> {
      * @param x
      * @param y
      */
+    @Override
     public void remove(int x, int y){
         if(root != null) {
-            root.remove(x, y);
+            QuadtreeElement el = root.get(x, y);
+            if(el != null){
+                leaves.remove(((QuadtreeLeaf<T>) el).getData());
+                el.remove();
+            }
         }
     }
 
     /**
-     * Removes all elements that contain object
+     * Removes the element that contains object
      * @param object
      */
+    @Override
     public void remove(T object){
-        if(root != null) {
-            root.remove(object);
+        QuadtreeLeaf<T> leaf = leaves.remove(object);
+        if(leaf != null) {
+            leaf.remove();
         }
     }
 
@@ -142,19 +333,146 @@ public class Quadtree<T> {
      * @param yNew new y coordinate
      * @throws Exception Throws an exception, if the element couldn'T be moved
      */
+    @Override
     public void move(int xOld, int yOld, int xNew, int yNew) throws Exception {
         if(root == null){
             throw new Exception("Couldn't move element, quadtree is empty");
         }
         T obj = get(xOld, yOld);
-        remove(xOld, yOld);
-        insert(obj, xNew, yNew);
+        if(obj == null){
+            throw new Exception("Couldn't move element, no element at " + xOld + ", " + yOld);
+        }
+        move(obj, xNew, yNew);
+    }
+
+    /**
+     * Moves an element, reuses its leaf instead of creating a new one
+     * @param object element to move
+     * @param x new x coordinate
+     * @param y new y coordinate
+     * @throws Exception Throws an exception, if the element isn't in the
+     * quadtree or if the new position is occupied
+     */
+    @Override
+    public void move(T object, int x, int y) throws Exception {
+        QuadtreeLeaf<T> leaf = leaves.get(object);
+        if(leaf == null){
+            throw new Exception("Couldn't move element, it isn't in the quadtree");
+        }
+        if(leaf.getX() == x && leaf.getY() == y){
+            return;
+        }
+        if(exist(x, y)){
+            throw new Exception("Couldn't move element, position " + x + ", " + y + " is occupied");
+        }
+        if(!inRange(x, y)){
+            throw new Exception("Couldn't move element, position " + x + ", " + y + " is out of range");
+        }
+        int xOld = leaf.getX();
+        int yOld = leaf.getY();
+        leaf.remove();
+        leaf.setPosition(x, y);
+        try {
+            root.insert(leaf);
+        } catch(Exception ex){
+            // keep the element at its old position
+            leaf.setPosition(xOld, yOld);
+            root.insert(leaf);
+            throw ex;
+        }
+    }
+
+    /**
+     * Checks whether a position fits into the tree
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return true, if an element can be inserted at x, y
+     */
+    private boolean inRange(int x, int y){
+        return root != null && root.getChildNum(x, y) != -1;
+    }
+
+    /**
+     * Moves all elements within the rectangle xMin, yMin, xMax, yMax
+     * (inclusive) by dx, dy. Nothing will be moved if an element would be
+     * moved onto an element outside of the rectangle
+     * @param xMin min x coordinate
+     * @param yMin min y coordinate
+     * @param xMax max x coordinate
+     * @param yMax max y coordinate
+     * @param dx x offset
+     * @param dy y offset
+     * @return moved elements
+     * @throws Exception Throws an exception, if an element would collide with
+     * an element outside of the rectangle
+     */
+    @Override
+    public List<T> shift(int xMin, int yMin, int xMax, int yMax, int dx, int dy) throws Exception {
+        final ArrayList<QuadtreeLeaf<T>> shifted = new ArrayList<>();
+        query(xMin, yMin, xMax, yMax, new SpatialIndexVisitor<T>() {
+            @Override
+            public void visit(T element, int x, int y) {
+                shifted.add(leaves.get(element));
+            }
+        });
+
+        ArrayList<T> ret = new ArrayList<>(shifted.size());
+        if(dx == 0 && dy == 0){
+            for(QuadtreeLeaf<T> leaf: shifted){
+                ret.add(leaf.getData());
+            }
+            return ret;
+        }
+
+        // validate all targets before anything gets changed, elements within
+        // the rectangle will be moved too, so only check outside
+        for(QuadtreeLeaf<T> leaf: shifted){
+            long x = (long) leaf.getX() + dx;
+            long y = (long) leaf.getY() + dy;
+            if(x < Integer.MIN_VALUE || x > Integer.MAX_VALUE || y < Integer.MIN_VALUE || y > Integer.MAX_VALUE
+                    || !inRange((int) x, (int) y)){
+                throw new Exception("Couldn't shift elements, position " + x + ", " + y + " is out of range");
+            }
+            if((x < xMin || x > xMax || y < yMin || y > yMax) && exist((int) x, (int) y)){
+                throw new Exception("Couldn't shift elements, position " + x + ", " + y + " is occupied");
+            }
+        }
+
+        for(QuadtreeLeaf<T> leaf: shifted){
+            leaf.remove();
+        }
+        int moved = 0, inserted = 0;
+        try {
+            for(QuadtreeLeaf<T> leaf: shifted){
+                leaf.setPosition(leaf.getX() + dx, leaf.getY() + dy);
+                ++moved;
+                root.insert(leaf);
+                ++inserted;
+            }
+        } catch(Exception ex){
+            // move all elements back
+            for(int i = 0; i < inserted; ++i){
+                shifted.get(i).remove();
+            }
+            for(int i = 0; i < moved; ++i){
+                shifted.get(i).setPosition(shifted.get(i).getX() - dx, shifted.get(i).getY() - dy);
+            }
+            for(QuadtreeLeaf<T> leaf: shifted){
+                root.insert(leaf);
+            }
+            throw ex;
+        }
+        for(QuadtreeLeaf<T> leaf: shifted){
+            ret.add(leaf.getData());
+        }
+        return ret;
     }
 
     /**
      * Gets the data of all elements
      * @return
      */
+    @Override
     public HashSet<T> values(){
         HashSet<T> ret = new HashSet<>();
         if(root != null){
@@ -163,6 +481,31 @@ public class Quadtree<T> {
         return ret;
     }
 
+    /**
+     * Iterates over all elements without walking the tree or copying them
+     * @return iterator
+     */
+    @Override
+    public Iterator<T> iterator(){
+        return Collections.unmodifiableSet(leaves.keySet()).iterator();
+    }
+
+    /**
+     * Calls visitor for each element within the rectangle xMin, yMin, xMax,
+     * yMax (inclusive). Subtrees outside of the rectangle are skipped
+     * @param xMin min x coordinate
+     * @param yMin min y coordinate
+     * @param xMax max x coordinate
+     * @param yMax max y coordinate
+     * @param visitor gets called for each element found
+     */
+    @Override
+    public void query(int xMin, int yMin, int xMax, int yMax, SpatialIndexVisitor<T> visitor){
+        if(root != null && xMin <= xMax && yMin <= yMax){
+            root.query(xMin, yMin, xMax, yMax, visitor);
+        }
+    }
+
     /**
      * Gets a String that represents the tree structure
      * @return
@@ -181,8 +524,9 @@ public class Quadtree<T> {
      * @param object
      * @return
      */
+    @Override
     public boolean contains(T object){
-        return (root != null && root.contains(object));
+        return leaves.containsKey(object);
     }
 
     /**
@@ -211,8 +555,6 @@ public class Quadtree<T> {
         /** removes the node from the quadtree */
         public void remove();
 
-        public void remove(T object);
-
         /**
          * Gets the element data of each child
          * @param set element data will be inserted in this set
@@ -222,8 +564,15 @@ public class Quadtree<T> {
         /** checks whether the element is empty */
         public boolean isEmpty();
 
-        /** checks whether the element or one of its children contains object*/
-        public boolean contains(T object);
+        /**
+         * Calls visitor for each element within the rectangle
+         * @param xMin min x coordinate
+         * @param yMin min y coordinate
+         * @param xMax max x coordinate
+         * @param yMax max y coordinate
+         * @param visitor
+         */
+        public void query(int xMin, int yMin, int xMax, int yMax, SpatialIndexVisitor<T> visitor);
     }
 
     /**
@@ -391,29 +740,6 @@ public class Quadtree<T> {
             }
         }
 
-        /**
-         * Remove elements by reference of wrapped object
-         * @param object wrapped object
-         */
-        @Override
-        public void remove(T object){
-            for(int i = 0; i < 4; ++i){
-                if(elements[i] != null){
-                    elements[i].remove(object);
-                }
-            }
-        }
-
-        /**
-         * Remove by coordinate
-         * @param x
-         * @param y
-         */
-        public void remove(int x, int y){
-            QuadtreeElement el = get(x, y);
-            if(el != null) el.remove();
-        }
-
         /**
          * Remove this element
          */
@@ -503,17 +829,26 @@ public class Quadtree<T> {
         }
 
         /**
-         * Checks whether the element or one of its children contains object
-         * @param object
-         * @return
+         * Calls visitor for each element within the rectangle, skips this node
+         * if it doesn't intersect the rectangle
+         * @param xMin min x coordinate
+         * @param yMin min y coordinate
+         * @param xMax max x coordinate
+         * @param yMax max y coordinate
+         * @param visitor
          */
         @Override
-        public boolean contains(T object) {
-            if(elements[NE] != null && elements[NE].contains(object)) return true;
-            else if(elements[NW] != null && elements[NW].contains(object)) return true;
-            else if(elements[SE] != null && elements[SE].contains(object)) return true;
-            else if(elements[SW] != null && elements[SW].contains(object)) return true;
-            return false;
+        public void query(int xMin, int yMin, int xMax, int yMax, SpatialIndexVisitor<T> visitor) {
+            // check whether the rectangle intersects this node's range
+            if(xMax < (x - length + 1) || yMax < (y - length + 1) ||
+                xMin > (x + length) || yMin > (y + length)){
+                return;
+            }
+            for(int i = 0; i < 4; ++i){
+                if(elements[i] != null){
+                    elements[i].query(xMin, yMin, xMax, yMax, visitor);
+                }
+            }
         }
     }
 
@@ -525,7 +860,7 @@ public class Quadtree<T> {
 
         private QuadtreeElement<T> parent = null;
         private final T data;
-        private final int x, y;
+        private int x, y;
 
         /**
          * Constructs a new quadtree leaf
@@ -557,6 +892,16 @@ public class Quadtree<T> {
             return y;
         }
 
+        /**
+         * Sets the position, the leaf must not be linked to the tree
+         * @param x element x coordinate
+         * @param y element y coordinate
+         */
+        public void setPosition(int x, int y){
+            this.x = x;
+            this.y = y;
+        }
+
         /**
          * Gets the element data
          * @return
@@ -576,17 +921,6 @@ public class Quadtree<T> {
             ((QuadtreeNode<T>) parent).remove(this);
         }
 
-        /**
-         * Removes the element if it wraps object
-         * @param object object to check for
-         */
-        @Override
-        public void remove(T object){
-            if(data == object){
-                remove();
-            }
-        }
-
         /**
          * Gets the parent node
          * @return
@@ -649,13 +983,18 @@ public class Quadtree<T> {
         }
 
         /**
-         * Checks whether the element contains object
-         * @param object
-         * @return
+         * Calls visitor, if the element is within the rectangle
+         * @param xMin min x coordinate
+         * @param yMin min y coordinate
+         * @param xMax max x coordinate
+         * @param yMax max y coordinate
+         * @param visitor
          */
         @Override
-        public boolean contains(T object) {
-            return data == object;
+        public void query(int xMin, int yMin, int xMax, int yMax, SpatialIndexVisitor<T> visitor) {
+            if(data != null && x >= xMin && x <= xMax && y >= yMin && y <= yMax){
+                visitor.visit(data, x, y);
+            }
         }
     }
 }
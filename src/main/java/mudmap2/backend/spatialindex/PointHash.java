@@ -0,0 +1,580 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2014  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*  File description
+ *
+ *  This class describes a hash table with open addressing that maps packed
+ *  x/y positions to elements
+ */
+
+package mudmap2.backend.spatialindex;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A spatial index based on two open addressing hash tables with linear
+ * probing: one maps positions to elements, the other maps elements (by
+ * identity) to positions. Both are stored in primitive / plain arrays, so
+ * there are no objects per element. Point lookups need a single probe
+ * sequence, independent of how sparse the map is. Range queries either probe
+ * each position in the range or scan the table, whichever is cheaper
+ * @author Neop
+ * @param <T> element class type
+ */
+public class PointHash<T> implements SpatialIndex<T> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // position -> element, empty slots have a null element
+    private long[] positionKeys;
+    private Object[] positionValues;
+
+    // element -> position, empty slots have a null element
+    private Object[] elementKeys;
+    private long[] elementValues;
+
+    private int size = 0;
+    private int mask;
+
+    /** Constructs an empty index */
+    public PointHash(){
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Gets the element at position x, y
+     * @param x
+     * @param y
+     * @return element or null
+     */
+    @Override
+    public T get(int x, int y){
+        int slot = findPosition(pack(x, y));
+        return slot < 0 ? null : (T) positionValues[slot];
+    }
+
+    /**
+     * Checks whether an element exists at position x, y
+     * @param x
+     * @param y
+     * @return true, if an element exists
+     */
+    @Override
+    public boolean exist(int x, int y){
+        return findPosition(pack(x, y)) >= 0;
+    }
+
+    /**
+     * Checks whether the index is empty
+     * @return true, if empty
+     */
+    @Override
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Gets the number of elements
+     * @return number of elements
+     */
+    @Override
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Inserts obj at x, y
+     * @param obj
+     * @param x
+     * @param y
+     * @throws Exception if the position is occupied or if obj is already in
+     * the index
+     */
+    @Override
+    public void insert(T obj, int x, int y) throws Exception {
+        if(obj == null){
+            throw new NullPointerException();
+        }
+        if(findElement(obj) >= 0){
+            throw new Exception("Element is already in the index");
+        }
+        long key = pack(x, y);
+        if(findPosition(key) >= 0){
+            throw new Exception("Position " + x + ", " + y + " is occupied");
+        }
+
+        ensureCapacity(size + 1);
+        putPosition(key, obj);
+        putElement(obj, key);
+        ++size;
+    }
+
+    /**
+     * Inserts many elements at once, the table is resized at most once
+     * @param objects elements to insert
+     * @param x x coordinates, same order as objects
+     * @param y y coordinates, same order as objects
+     * @throws Exception if the elements couldn't be inserted, eg. if two of
+     * them share a position. Nothing gets inserted in this case
+     */
+    @Override
+    public void insertAll(List<T> objects, int[] x, int[] y) throws Exception {
+        if(objects.size() != x.length || objects.size() != y.length){
+            throw new IllegalArgumentException("Number of elements and coordinates differ");
+        }
+
+        ensureCapacity(size + x.length);
+        int i = 0;
+        try {
+            for(; i < x.length; ++i){
+                insert(objects.get(i), x[i], y[i]);
+            }
+        } catch (Exception ex) {
+            // undo
+            for(int j = 0; j < i; ++j){
+                remove(objects.get(j));
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Removes the element at x, y
+     * @param x
+     * @param y
+     */
+    @Override
+    public void remove(int x, int y){
+        int slot = findPosition(pack(x, y));
+        if(slot >= 0){
+            deleteElement(findElement(positionValues[slot]));
+            deletePosition(slot);
+            --size;
+        }
+    }
+
+    /**
+     * Removes an element
+     * @param object
+     */
+    @Override
+    public void remove(T object){
+        int slot = findElement(object);
+        if(slot >= 0){
+            deletePosition(findPosition(elementValues[slot]));
+            deleteElement(slot);
+            --size;
+        }
+    }
+
+    /**
+     * Moves the element at xOld, yOld to xNew, yNew
+     * @param xOld
+     * @param yOld
+     * @param xNew
+     * @param yNew
+     * @throws Exception if there is no element at the old position or if the
+     * new position is occupied
+     */
+    @Override
+    public void move(int xOld, int yOld, int xNew, int yNew) throws Exception {
+        T object = get(xOld, yOld);
+        if(object == null){
+            throw new Exception("No element at position " + xOld + ", " + yOld);
+        }
+        move(object, xNew, yNew);
+    }
+
+    /**
+     * Moves an element to x, y
+     * @param object
+     * @param x
+     * @param y
+     * @throws Exception if the element isn't in the index or if the new
+     * position is occupied by another element
+     */
+    @Override
+    public void move(T object, int x, int y) throws Exception {
+        int slot = findElement(object);
+        if(slot < 0){
+            throw new Exception("Element not found");
+        }
+        long key = pack(x, y);
+        if(elementValues[slot] == key){
+            return;
+        }
+        if(findPosition(key) >= 0){
+            throw new Exception("Position " + x + ", " + y + " is occupied");
+        }
+
+        // the element table doesn't change, so slot stays valid
+        deletePosition(findPosition(elementValues[slot]));
+        putPosition(key, object);
+        elementValues[slot] = key;
+    }
+
+    /**
+     * Moves all elements within the rectangle xMin, yMin, xMax, yMax
+     * (inclusive) by dx, dy
+     * @param xMin min x coordinate
+     * @param yMin min y coordinate
+     * @param xMax max x coordinate
+     * @param yMax max y coordinate
+     * @param dx x offset
+     * @param dy y offset
+     * @return moved elements
+     * @throws Exception if an element would be moved onto an element outside
+     * of the rectangle, nothing will be moved in this case
+     */
+    @Override
+    public List<T> shift(final int xMin, final int yMin, final int xMax, final int yMax, int dx, int dy) throws Exception {
+        final List<T> ret = new ArrayList<>();
+        query(xMin, yMin, xMax, yMax, new SpatialIndexVisitor<T>() {
+            @Override
+            public void visit(T element, int x, int y) {
+                ret.add(element);
+            }
+        });
+        if(ret.isEmpty() || (dx == 0 && dy == 0)){
+            return ret;
+        }
+
+        // packed positions, from the element table to avoid boxing
+        final long[] keys = new long[ret.size()];
+        for(int i = 0; i < keys.length; ++i){
+            keys[i] = elementValues[findElement(ret.get(i))];
+        }
+
+        // check target positions, elements within the rectangle will be moved
+        for(long key: keys){
+            long x = (long) unpackX(key) + dx;
+            long y = (long) unpackY(key) + dy;
+            if(x < Integer.MIN_VALUE || x > Integer.MAX_VALUE || y < Integer.MIN_VALUE || y > Integer.MAX_VALUE){
+                throw new Exception("Position " + x + ", " + y + " is out of range");
+            }
+            if((x < xMin || x > xMax || y < yMin || y > yMax) && exist((int) x, (int) y)){
+                throw new Exception("Position " + x + ", " + y + " is occupied");
+            }
+        }
+
+        for(long key: keys){
+            deletePosition(findPosition(key));
+        }
+        for(int i = 0; i < keys.length; ++i){
+            long key = pack(unpackX(keys[i]) + dx, unpackY(keys[i]) + dy);
+            putPosition(key, ret.get(i));
+            elementValues[findElement(ret.get(i))] = key;
+        }
+        return ret;
+    }
+
+    /**
+     * Gets all elements
+     * @return
+     */
+    @Override
+    public HashSet<T> values(){
+        HashSet<T> ret = new HashSet<>(size * 2);
+        for(Object value: positionValues){
+            if(value != null){
+                ret.add((T) value);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Iterates over the table slots, doesn't copy the elements
+     * @return iterator
+     */
+    @Override
+    public Iterator<T> iterator(){
+        return new Iterator<T>() {
+            private int slot = nextSlot(0);
+
+            private int nextSlot(int from){
+                while(from < positionValues.length && positionValues[from] == null){
+                    ++from;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return slot < positionValues.length;
+            }
+
+            @Override
+            public T next() {
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                T ret = (T) positionValues[slot];
+                slot = nextSlot(slot + 1);
+                return ret;
+            }
+        };
+    }
+
+    /**
+     * Calls visitor for each element within the rectangle xMin, yMin, xMax,
+     * yMax (inclusive). Probes each position if the rectangle is smaller than
+     * the number of elements, scans the whole table otherwise
+     * @param xMin min x coordinate
+     * @param yMin min y coordinate
+     * @param xMax max x coordinate
+     * @param yMax max y coordinate
+     * @param visitor gets called for each element found
+     */
+    @Override
+    public void query(int xMin, int yMin, int xMax, int yMax, SpatialIndexVisitor<T> visitor){
+        if(size == 0 || xMin > xMax || yMin > yMax){
+            return;
+        }
+
+        long width = (long) xMax - xMin + 1;
+        long height = (long) yMax - yMin + 1;
+        // each side is at most size, so the product can't overflow
+        if(width <= size && height <= size && width * height <= size){
+            for(long x = xMin; x <= xMax; ++x){
+                for(long y = yMin; y <= yMax; ++y){
+                    int slot = findPosition(pack((int) x, (int) y));
+                    if(slot >= 0){
+                        visitor.visit((T) positionValues[slot], (int) x, (int) y);
+                    }
+                }
+            }
+        } else {
+            for(int slot = 0; slot < positionValues.length; ++slot){
+                if(positionValues[slot] != null){
+                    int x = unpackX(positionKeys[slot]);
+                    int y = unpackY(positionKeys[slot]);
+                    if(x >= xMin && x <= xMax && y >= yMin && y <= yMax){
+                        visitor.visit((T) positionValues[slot], x, y);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether the index contains object
+     * @param object
+     * @return
+     */
+    @Override
+    public boolean contains(T object){
+        return object != null && findElement(object) >= 0;
+    }
+
+    /**
+     * Packs a position into a single key
+     * @param x
+     * @param y
+     * @return key
+     */
+    private static long pack(int x, int y){
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    private static int unpackX(long key){
+        return (int) (key >> 32);
+    }
+
+    private static int unpackY(long key){
+        return (int) key;
+    }
+
+    /**
+     * Gets the preferred slot of a position
+     * @param key packed position
+     * @return slot
+     */
+    private int positionHash(long key){
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Gets the preferred slot of an element
+     * @param object
+     * @return slot
+     */
+    private int elementHash(Object object){
+        int h = System.identityHashCode(object) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Finds the slot of a position
+     * @param key packed position
+     * @return slot or -1 if not found
+     */
+    private int findPosition(long key){
+        int slot = positionHash(key);
+        while(positionValues[slot] != null){
+            if(positionKeys[slot] == key){
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the slot of an element
+     * @param object
+     * @return slot or -1 if not found
+     */
+    private int findElement(Object object){
+        int slot = elementHash(object);
+        while(elementKeys[slot] != null){
+            if(elementKeys[slot] == object){
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Puts a position into the first free slot, the position must not be in
+     * the table
+     * @param key packed position
+     * @param object
+     */
+    private void putPosition(long key, Object object){
+        int slot = positionHash(key);
+        while(positionValues[slot] != null){
+            slot = (slot + 1) & mask;
+        }
+        positionKeys[slot] = key;
+        positionValues[slot] = object;
+    }
+
+    /**
+     * Puts an element into the first free slot, the element must not be in
+     * the table
+     * @param object
+     * @param key packed position
+     */
+    private void putElement(Object object, long key){
+        int slot = elementHash(object);
+        while(elementKeys[slot] != null){
+            slot = (slot + 1) & mask;
+        }
+        elementKeys[slot] = object;
+        elementValues[slot] = key;
+    }
+
+    /**
+     * Clears a slot of the position table and moves following entries of
+     * the probe sequence back, so no tombstones are needed
+     * @param slot
+     */
+    private void deletePosition(int slot){
+        int next = slot;
+        while(true){
+            next = (next + 1) & mask;
+            if(positionValues[next] == null){
+                break;
+            }
+            if(mayMove(positionHash(positionKeys[next]), slot, next)){
+                positionKeys[slot] = positionKeys[next];
+                positionValues[slot] = positionValues[next];
+                slot = next;
+            }
+        }
+        positionValues[slot] = null;
+    }
+
+    /**
+     * Clears a slot of the element table, see deletePosition
+     * @param slot
+     */
+    private void deleteElement(int slot){
+        int next = slot;
+        while(true){
+            next = (next + 1) & mask;
+            if(elementKeys[next] == null){
+                break;
+            }
+            if(mayMove(elementHash(elementKeys[next]), slot, next)){
+                elementKeys[slot] = elementKeys[next];
+                elementValues[slot] = elementValues[next];
+                slot = next;
+            }
+        }
+        elementKeys[slot] = null;
+    }
+
+    /**
+     * Checks whether an entry at slot next with the preferred slot home can
+     * be moved to the free slot, without breaking its probe sequence
+     * @param home preferred slot of the entry
+     * @param free free slot
+     * @param next current slot of the entry
+     * @return true, if home isn't cyclically within (free, next]
+     */
+    private static boolean mayMove(int home, int free, int next){
+        if(free <= next){
+            return home <= free || home > next;
+        } else {
+            return home <= free && home > next;
+        }
+    }
+
+    /**
+     * Grows the tables if they would be more than half full
+     * @param elements number of elements
+     */
+    private void ensureCapacity(int elements){
+        if(elements * 2 > positionValues.length){
+            int capacity = positionValues.length;
+            while(elements * 2 > capacity){
+                capacity *= 2;
+            }
+
+            long[] oldKeys = positionKeys;
+            Object[] oldValues = positionValues;
+            allocate(capacity);
+            for(int slot = 0; slot < oldValues.length; ++slot){
+                if(oldValues[slot] != null){
+                    putPosition(oldKeys[slot], oldValues[slot]);
+                    putElement(oldValues[slot], oldKeys[slot]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates empty tables
+     * @param capacity number of slots, power of two
+     */
+    private void allocate(int capacity){
+        positionKeys = new long[capacity];
+        positionValues = new Object[capacity];
+        elementKeys = new Object[capacity];
+        elementValues = new long[capacity];
+        mask = capacity - 1;
+    }
+
+}
@@ -0,0 +1,159 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2014  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*  File description
+ *
+ *  Interface of the data structures that store the elements of a layer by
+ *  position
+ */
+
+package mudmap2.backend.spatialindex;
+
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Stores elements at integer positions, at most one element per position.
+ * The iterator doesn't copy the elements and doesn't support remove, the
+ * index must not be modified while iterating
+ * @author Neop
+ * @param <T> element class type
+ */
+public interface SpatialIndex<T> extends Iterable<T> {
+
+    /**
+     * Gets the element at position x, y
+     * @param x
+     * @param y
+     * @return element or null
+     */
+    public T get(int x, int y);
+
+    /**
+     * Checks whether an element exists at position x, y
+     * @param x
+     * @param y
+     * @return true, if an element exists
+     */
+    public boolean exist(int x, int y);
+
+    /**
+     * Checks whether the index is empty
+     * @return true, if empty
+     */
+    public boolean isEmpty();
+
+    /**
+     * Gets the number of elements
+     * @return number of elements
+     */
+    public int size();
+
+    /**
+     * Inserts obj at x, y
+     * @param obj
+     * @param x
+     * @param y
+     * @throws Exception if the position is occupied or if obj is already in
+     * the index
+     */
+    public void insert(T obj, int x, int y) throws Exception;
+
+    /**
+     * Inserts many elements at once
+     * @param objects elements to insert
+     * @param x x coordinates, same order as objects
+     * @param y y coordinates, same order as objects
+     * @throws Exception if the elements couldn't be inserted, nothing gets
+     * inserted in this case, if the index was empty
+     */
+    public void insertAll(List<T> objects, int[] x, int[] y) throws Exception;
+
+    /**
+     * Removes the element at x, y
+     * @param x
+     * @param y
+     */
+    public void remove(int x, int y);
+
+    /**
+     * Removes an element
+     * @param object
+     */
+    public void remove(T object);
+
+    /**
+     * Moves the element at xOld, yOld to xNew, yNew
+     * @param xOld
+     * @param yOld
+     * @param xNew
+     * @param yNew
+     * @throws Exception if there is no element at the old position or if the
+     * new position is occupied
+     */
+    public void move(int xOld, int yOld, int xNew, int yNew) throws Exception;
+
+    /**
+     * Moves an element to x, y
+     * @param object
+     * @param x
+     * @param y
+     * @throws Exception if the element isn't in the index or if the new
+     * position is occupied by another element
+     */
+    public void move(T object, int x, int y) throws Exception;
+
+    /**
+     * Moves all elements within the rectangle xMin, yMin, xMax, yMax
+     * (inclusive) by dx, dy
+     * @param xMin min x coordinate
+     * @param yMin min y coordinate
+     * @param xMax max x coordinate
+     * @param yMax max y coordinate
+     * @param dx x offset
+     * @param dy y offset
+     * @return moved elements
+     * @throws Exception if an element would be moved onto an element outside
+     * of the rectangle, nothing will be moved in this case
+     */
+    public List<T> shift(int xMin, int yMin, int xMax, int yMax, int dx, int dy) throws Exception;
+
+    /**
+     * Gets all elements
+     * @return
+     */
+    public HashSet<T> values();
+
+    /**
+     * Calls visitor for each element within the rectangle xMin, yMin, xMax,
+     * yMax (inclusive). The visitor must not modify the index
+     * @param xMin min x coordinate
+     * @param yMin min y coordinate
+     * @param xMax max x coordinate
+     * @param yMax max y coordinate
+     * @param visitor gets called for each element found
+     */
+    public void query(int xMin, int yMin, int xMax, int yMax, SpatialIndexVisitor<T> visitor);
+
+    /**
+     * Checks whether the index contains object
+     * @param object
+     * @return
+     */
+    public boolean contains(T object);
+
+}
@@ -1,33 +1,40 @@
-/*  MUD Map (v2) - A tool to create and organize maps for text-based games
- *  Copyright (C) 2014  Neop (email: mneop@web.de)
- *
- *  This program is free software; you can redistribute it and/or modify
- *  it under the terms of the GNU General Public License as published by
- *  the Free Software Foundation; either version 3 of the License, or
- *  (at your option) any later version.
- *
- *  This program is distributed in the hope that it will be useful, but
- *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
- *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
- *  for more details.
- *
- *  You should have received a copy of the GNU General Public License along
- *  with this program; if not, see <http://www.gnu.org/licenses/>.
- */
-
-/*  File description
- *
- *  An interface for breadth search implementations
- */
-
-package mudmap2.backend.sssp;
-
-import mudmap2.backend.Place;
-
-/**
- * Breadth search interface for the graph class
- * @author Neop
- */
-public interface BreadthSearchGraph {
-    Place breadthSearch(Place start, Place end);
-}
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2014  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*  File description
+ *
+ *  Callback interface for spatial index range queries
+ */
+
+package mudmap2.backend.spatialindex;
+
+/**
+ * Receives the elements found by a spatial index range query
+ * @author Neop
+ * @param <T> element class type
+ */
+public interface SpatialIndexVisitor<T> {
+
+    /**
+     * Called for each element in the query range
+     * @param element element data
+     * @param x element x coordinate
+     * @param y element y coordinate
+     */
+    public void visit(T element, int x, int y);
+
+}
@@ -0,0 +1,265 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2014  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*  File description
+ *
+ *  This class keeps the connected components of the places of a world, so
+ *  that searches between unconnected places can be rejected immediately
+ */
+
+package mudmap2.backend.sssp;
+
+import java.util.Collection;
+import java.util.HashMap;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import mudmap2.backend.WorldChangeEvent;
+
+/**
+ * Connected components of a world (union-find). Two places are in the same
+ * component if they are connected by paths or parent / child links, ignoring
+ * the direction of the paths. So there is no route between places of
+ * different components, but there might be none within a component either.
+ * New places and connections are added incrementally, removed connections
+ * cause a rebuild on the next query
+ * @author neop
+ */
+public class ConnectedComponents {
+
+    final World world;
+
+    // parent of each place in the union-find forest, roots point to themselves
+    final HashMap<Place, Place> parents = new HashMap<>();
+    // number of places of each root's component
+    final HashMap<Place, Integer> sizes = new HashMap<>();
+    boolean valid = false;
+    int componentCount = 0;
+
+    /**
+     * Constructs the components of a world, they get calculated on the first
+     * query
+     * @param world world
+     */
+    public ConnectedComponents(World world){
+        this.world = world;
+    }
+
+    /**
+     * Updates the components after a world change
+     * @param event change event
+     */
+    public synchronized void update(WorldChangeEvent event){
+        if(!valid) return;
+        switch(event.getType()){
+            case PLACE_ADDED:
+                Place place = (Place) event.getSource();
+                add(place);
+                unionConnections(place);
+                break;
+            case PATH_CONNECTED:
+                Place[] places = ((Path) event.getSource()).getPlaces();
+                unionKnown(places[0], places[1]);
+                break;
+            case CHILD_CONNECTED:
+                unionKnown((Place) event.getSource(), (Place) event.getNewValue());
+                break;
+            case LAYER_CHANGED:
+                // bulk insert, shifts don't change components
+                if(event.getNewValue() instanceof Collection){
+                    Collection<?> elements = (Collection<?>) event.getNewValue();
+                    for(Object element: elements){
+                        if(element instanceof Place) add((Place) element);
+                    }
+                    for(Object element: elements){
+                        if(element instanceof Place) unionConnections((Place) element);
+                    }
+                }
+                break;
+            case PATH_REMOVED:
+            case CHILD_REMOVED:
+            case PLACE_REMOVED:
+            case LAYER_REMOVED:
+                // removed connections might split a component
+                invalidate();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Discards the components, they get rebuilt on the next query
+     */
+    public synchronized void invalidate(){
+        valid = false;
+        parents.clear();
+        sizes.clear();
+        componentCount = 0;
+    }
+
+    /**
+     * Checks whether two places are in the same component
+     * @param place1 a place
+     * @param place2 another place
+     * @return false if there is no connection between the places, true if
+     * there might be one or if a place isn't part of the world
+     */
+    public synchronized boolean isConnected(Place place1, Place place2){
+        if(place1 == place2) return true;
+        validate();
+        Place root1 = find(place1);
+        Place root2 = find(place2);
+        return root1 == null || root2 == null || root1 == root2;
+    }
+
+    /**
+     * Gets the id of a place's component, the id stays the same until the
+     * component gets merged or rebuilt
+     * @param place place
+     * @return id of the component, -1 if the place isn't part of the world
+     */
+    public synchronized int getComponentId(Place place){
+        validate();
+        Place root = find(place);
+        return root != null ? root.getId() : -1;
+    }
+
+    /**
+     * Gets the number of places in a place's component
+     * @param place place
+     * @return number of places, 0 if the place isn't part of the world
+     */
+    public synchronized int getComponentSize(Place place){
+        validate();
+        Place root = find(place);
+        return root != null ? sizes.get(root) : 0;
+    }
+
+    /**
+     * Gets the number of components, places without connections count as a
+     * component of their own
+     * @return number of components
+     */
+    public synchronized int getComponentCount(){
+        validate();
+        return componentCount;
+    }
+
+    /**
+     * Rebuilds the components if they are invalid
+     */
+    private void validate(){
+        if(valid) return;
+        for(Layer layer: world.getLayers()){
+            for(Place place: layer.getPlacesView()){
+                add(place);
+            }
+        }
+        for(Layer layer: world.getLayers()){
+            for(Place place: layer.getPlacesView()){
+                unionConnections(place);
+            }
+        }
+        valid = true;
+    }
+
+    /**
+     * Joins the component of a place with the components of the places it
+     * is connected to
+     * @param place place
+     */
+    private void unionConnections(Place place){
+        for(Path path: place.getPaths()){
+            union(place, path.getOtherPlace(place));
+        }
+        for(Place child: place.getChildren()){
+            union(place, child);
+        }
+        for(Place parent: place.getParents()){
+            union(place, parent);
+        }
+    }
+
+    /**
+     * Adds a place as a component of its own, if it isn't known yet
+     * @param place place
+     */
+    private void add(Place place){
+        if(!parents.containsKey(place)){
+            parents.put(place, place);
+            sizes.put(place, 1);
+            ++componentCount;
+        }
+    }
+
+    /**
+     * Joins the components of two places, the components get rebuilt if a
+     * place is unknown (eg. connected before it was added)
+     * @param place1 a place
+     * @param place2 another place
+     */
+    private void unionKnown(Place place1, Place place2){
+        if(parents.containsKey(place1) && parents.containsKey(place2)){
+            union(place1, place2);
+        } else {
+            invalidate();
+        }
+    }
+
+    /**
+     * Joins the components of two places (union by size)
+     * @param place1 a place
+     * @param place2 another place
+     */
+    private void union(Place place1, Place place2){
+        Place root1 = find(place1);
+        Place root2 = find(place2);
+        if(root1 == null || root2 == null || root1 == root2) return;
+
+        int size1 = sizes.get(root1);
+        int size2 = sizes.get(root2);
+        if(size1 < size2){
+            Place tmp = root1;
+            root1 = root2;
+            root2 = tmp;
+        }
+        parents.put(root2, root1);
+        sizes.put(root1, size1 + size2);
+        sizes.remove(root2);
+        --componentCount;
+    }
+
+    /**
+     * Finds the root of a place's component (with path halving)
+     * @param place place
+     * @return root or null if the place is unknown
+     */
+    private Place find(Place place){
+        Place parent = parents.get(place);
+        if(parent == null) return null;
+        while(parent != place){
+            Place grandparent = parents.get(parent);
+            parents.put(place, grandparent);
+            place = grandparent;
+            parent = parents.get(place);
+        }
+        return place;
+    }
+
+}
@@ -0,0 +1,410 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2014  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*  File description
+ *
+ *  This class keeps precomputed distances from and to a few landmark places,
+ *  they give lower bounds of route costs for A*
+ */
+
+package mudmap2.backend.sssp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+
+/**
+ * Landmark index for the ALT heuristic (A*, landmarks, triangle inequality).
+ * The costs from and to each landmark get precomputed for all places. For a
+ * landmark L, d(v, t) &gt;= d(L, t) - d(L, v) and d(v, t) &gt;= d(v, L) - d(t, L).
+ * Unlike the grid distance these bounds hold across layers and for any
+ * exit. An index describes the graph at the time it was created and has to
+ * be recreated when paths or links change
+ * @author neop
+ */
+public class LandmarkIndex {
+
+    // file name extension, the index is stored beside the world file
+    public static final String FILE_EXTENSION = ".landmarks";
+    static final int FILE_MAGIC = 0x4d4d4c49;
+    static final int FILE_VERSION = 1;
+
+    final Graph graph;
+    // place index of each landmark
+    final int[] landmarks;
+    // costs from / to each landmark, indexed by landmark, then by place
+    final double[][] fromLandmark;
+    final double[][] toLandmark;
+
+    /**
+     * Snapshot of the graph that routes can use: paths (except from an exit
+     * "-") and links between parent and child places. The edges are kept in
+     * arrays (compressed rows), so the costs can be computed on another
+     * thread while the world changes
+     */
+    public static class Graph {
+        // places ordered by id
+        final Place[] places;
+        final HashMap<Place, Integer> indices = new HashMap<>();
+        // edges of place i: offsets[i] to offsets[i + 1] - 1
+        final int[] forwardOffsets, forwardTargets;
+        final double[] forwardWeights;
+        // reversed edges
+        final int[] backwardOffsets, backwardTargets;
+        final double[] backwardWeights;
+        // hash of the places and edges, independent of their order
+        final long fingerprint;
+
+        /**
+         * Creates a snapshot of a world
+         * @param world world
+         * @param linkWeight cost of a link between a parent and a child place
+         */
+        public Graph(World world, double linkWeight){
+            ArrayList<Place> placeList = new ArrayList<>();
+            for(Layer layer: world.getLayers()){
+                placeList.addAll(layer.getPlacesView());
+            }
+            Collections.sort(placeList, new Comparator<Place>() {
+                @Override
+                public int compare(Place place1, Place place2) {
+                    return Integer.compare(place1.getId(), place2.getId());
+                }
+            });
+            places = placeList.toArray(new Place[placeList.size()]);
+            for(int i = 0; i < places.length; ++i){
+                indices.put(places[i], i);
+            }
+
+            // edge list
+            int edgeCount = 0;
+            int[] sources = new int[16];
+            int[] targets = new int[16];
+            double[] weights = new double[16];
+            long hash = mix(places.length);
+            for(int i = 0; i < places.length; ++i){
+                Place place = places[i];
+                hash += mix(place.getId());
+
+                ArrayList<Place> linked = new ArrayList<>();
+                ArrayList<Double> linkedWeights = new ArrayList<>();
+                for(Path path: place.getPaths()){
+                    Place other = path.getOtherPlace(place);
+                    if(other != place && path.isPassableFrom(place)){
+                        linked.add(other);
+                        linkedWeights.add(path.getWeight());
+                    }
+                }
+                for(Place other: place.getChildren()){
+                    linked.add(other);
+                    linkedWeights.add(linkWeight);
+                }
+                for(Place other: place.getParents()){
+                    linked.add(other);
+                    linkedWeights.add(linkWeight);
+                }
+
+                for(int j = 0; j < linked.size(); ++j){
+                    Integer target = indices.get(linked.get(j));
+                    if(target == null) continue;
+                    if(edgeCount == sources.length){
+                        sources = Arrays.copyOf(sources, edgeCount * 2);
+                        targets = Arrays.copyOf(targets, edgeCount * 2);
+                        weights = Arrays.copyOf(weights, edgeCount * 2);
+                    }
+                    sources[edgeCount] = i;
+                    targets[edgeCount] = target;
+                    weights[edgeCount] = linkedWeights.get(j);
+                    ++edgeCount;
+                    hash += mix(mix(place.getId() * 31L + linked.get(j).getId())
+                            ^ Double.doubleToLongBits(linkedWeights.get(j)));
+                }
+            }
+            fingerprint = hash;
+
+            forwardOffsets = new int[places.length + 1];
+            forwardTargets = new int[edgeCount];
+            forwardWeights = new double[edgeCount];
+            fillRows(sources, targets, weights, edgeCount, forwardOffsets, forwardTargets, forwardWeights);
+
+            backwardOffsets = new int[places.length + 1];
+            backwardTargets = new int[edgeCount];
+            backwardWeights = new double[edgeCount];
+            fillRows(targets, sources, weights, edgeCount, backwardOffsets, backwardTargets, backwardWeights);
+        }
+
+        /**
+         * Sorts edges into rows by their source (counting sort)
+         */
+        private static void fillRows(int[] sources, int[] targets, double[] weights, int edgeCount,
+                int[] offsets, int[] rowTargets, double[] rowWeights){
+            for(int e = 0; e < edgeCount; ++e){
+                ++offsets[sources[e] + 1];
+            }
+            for(int i = 1; i < offsets.length; ++i){
+                offsets[i] += offsets[i - 1];
+            }
+            int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+            for(int e = 0; e < edgeCount; ++e){
+                int pos = next[sources[e]]++;
+                rowTargets[pos] = targets[e];
+                rowWeights[pos] = weights[e];
+            }
+        }
+
+        /**
+         * Gets the number of places
+         * @return number of places
+         */
+        public int size(){
+            return places.length;
+        }
+
+        /**
+         * Gets the hash of the places and edges, it changes when paths,
+         * weights or links change
+         * @return fingerprint
+         */
+        public long getFingerprint(){
+            return fingerprint;
+        }
+
+        /**
+         * Calculates the least costs from or to a place (Dijkstra)
+         * @param root place index
+         * @param forward true for costs from root, false for costs to root
+         * @return costs, infinite for unreachable places
+         * @throws InterruptedException if the thread got interrupted
+         */
+        double[] distances(int root, boolean forward) throws InterruptedException{
+            int[] offsets = forward ? forwardOffsets : backwardOffsets;
+            int[] rowTargets = forward ? forwardTargets : backwardTargets;
+            double[] rowWeights = forward ? forwardWeights : backwardWeights;
+
+            double[] distances = new double[places.length];
+            Arrays.fill(distances, Double.POSITIVE_INFINITY);
+            PriorityQueue<HeapEntry> queue = new PriorityQueue<>();
+            distances[root] = 0.0;
+            queue.add(new HeapEntry(root, 0.0));
+            int expanded = 0;
+
+            while(!queue.isEmpty()){
+                HeapEntry entry = queue.poll();
+                if(entry.distance > distances[entry.index]) continue;
+                if(++expanded % 4096 == 0 && Thread.currentThread().isInterrupted()){
+                    throw new InterruptedException();
+                }
+                for(int e = offsets[entry.index]; e < offsets[entry.index + 1]; ++e){
+                    double distance = entry.distance + rowWeights[e];
+                    if(distance < distances[rowTargets[e]]){
+                        distances[rowTargets[e]] = distance;
+                        queue.add(new HeapEntry(rowTargets[e], distance));
+                    }
+                }
+            }
+            return distances;
+        }
+
+        /**
+         * Mixes the bits of a value (SplitMix64 finalizer)
+         */
+        private static long mix(long value){
+            value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+            value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+            return value ^ (value >>> 31);
+        }
+    }
+
+    /**
+     * Entry of the priority queue
+     */
+    private static class HeapEntry implements Comparable<HeapEntry> {
+        final int index;
+        final double distance;
+
+        public HeapEntry(int index, double distance){
+            this.index = index;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(HeapEntry other){
+            return Double.compare(distance, other.distance);
+        }
+    }
+
+    /**
+     * Constructs an index from precomputed tables
+     */
+    private LandmarkIndex(Graph graph, int[] landmarks, double[][] fromLandmark, double[][] toLandmark){
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    /**
+     * Creates an index, this takes two Dijkstra searches per landmark. Each
+     * landmark is the place farthest from the landmarks chosen so far, so
+     * they spread across the map and its unconnected parts
+     * @param graph graph snapshot
+     * @param count number of landmarks
+     * @return landmark index
+     * @throws InterruptedException if the thread got interrupted
+     */
+    public static LandmarkIndex create(Graph graph, int count) throws InterruptedException{
+        int n = graph.size();
+        count = Math.min(count, n);
+        int[] landmarks = new int[count];
+        double[][] fromLandmark = new double[count][];
+        double[][] toLandmark = new double[count][];
+
+        // least distance of each place to the chosen landmarks
+        double[] separation = new double[n];
+        Arrays.fill(separation, Double.POSITIVE_INFINITY);
+        int next = 0;
+        for(int l = 0; l < count; ++l){
+            landmarks[l] = next;
+            fromLandmark[l] = graph.distances(next, true);
+            toLandmark[l] = graph.distances(next, false);
+
+            next = 0;
+            for(int i = 0; i < n; ++i){
+                separation[i] = Math.min(separation[i], Math.min(fromLandmark[l][i], toLandmark[l][i]));
+                if(separation[i] > separation[next]) next = i;
+            }
+        }
+        return new LandmarkIndex(graph, landmarks, fromLandmark, toLandmark);
+    }
+
+    /**
+     * Gets the graph snapshot the index was created for
+     * @return graph
+     */
+    public Graph getGraph(){
+        return graph;
+    }
+
+    /**
+     * Gets the landmark places
+     * @return landmarks
+     */
+    public List<Place> getLandmarks(){
+        ArrayList<Place> ret = new ArrayList<>();
+        for(int landmark: landmarks){
+            ret.add(graph.places[landmark]);
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the number of landmarks
+     * @return number of landmarks
+     */
+    public int getLandmarkCount(){
+        return landmarks.length;
+    }
+
+    /**
+     * Estimates the cost of a route, the estimate never exceeds the actual
+     * cost
+     * @param place start place
+     * @param end end place
+     * @return lower bound of the cost, infinite if end can't be reached, 0
+     * if a place isn't part of the index
+     */
+    public double estimate(Place place, Place end){
+        Integer v = graph.indices.get(place);
+        Integer t = graph.indices.get(end);
+        if(v == null || t == null) return 0.0;
+
+        double ret = 0.0;
+        for(int l = 0; l < landmarks.length; ++l){
+            // NaN if both are unreachable, comparisons are false then
+            double bound = fromLandmark[l][t] - fromLandmark[l][v];
+            if(bound > ret) ret = bound;
+            bound = toLandmark[l][v] - toLandmark[l][t];
+            if(bound > ret) ret = bound;
+        }
+        return ret;
+    }
+
+    /**
+     * Writes the index to a file
+     * @param file file
+     * @throws IOException
+     */
+    public void write(File file) throws IOException{
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))){
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeLong(graph.getFingerprint());
+            out.writeInt(graph.size());
+            out.writeInt(landmarks.length);
+            for(int l = 0; l < landmarks.length; ++l){
+                out.writeInt(landmarks[l]);
+                for(double distance: fromLandmark[l]) out.writeDouble(distance);
+                for(double distance: toLandmark[l]) out.writeDouble(distance);
+            }
+        }
+    }
+
+    /**
+     * Reads an index from a file
+     * @param file file
+     * @param graph current graph snapshot
+     * @return index or null if the file belongs to another graph
+     * @throws IOException if the file can't be read
+     */
+    public static LandmarkIndex read(File file, Graph graph) throws IOException{
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))){
+            if(in.readInt() != FILE_MAGIC) throw new IOException("Not a landmark file: " + file);
+            if(in.readInt() != FILE_VERSION) return null;
+            if(in.readLong() != graph.getFingerprint() || in.readInt() != graph.size()) return null;
+
+            int count = in.readInt();
+            if(count < 0 || count > graph.size()) throw new IOException("Invalid landmark count: " + count);
+            int[] landmarks = new int[count];
+            double[][] fromLandmark = new double[count][graph.size()];
+            double[][] toLandmark = new double[count][graph.size()];
+            for(int l = 0; l < count; ++l){
+                landmarks[l] = in.readInt();
+                if(landmarks[l] < 0 || landmarks[l] >= graph.size()) throw new IOException("Invalid landmark: " + landmarks[l]);
+                for(int i = 0; i < graph.size(); ++i) fromLandmark[l][i] = in.readDouble();
+                for(int i = 0; i < graph.size(); ++i) toLandmark[l][i] = in.readDouble();
+            }
+            return new LandmarkIndex(graph, landmarks, fromLandmark, toLandmark);
+        }
+    }
+
+}
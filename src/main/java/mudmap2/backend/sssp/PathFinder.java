@@ -0,0 +1,874 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2014  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*  File description
+ *
+ *  This class finds routes between places of a world
+ */
+
+package mudmap2.backend.sssp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import mudmap2.backend.WorldChangeEvent;
+import mudmap2.backend.WorldFileReader.WorldFile;
+
+/**
+ * Path finding service of a world. The state of a search is kept in the
+ * search itself, so several searches may run at the same time, eg. on
+ * background threads. The world must not be modified while a search runs.
+ * Paths can't be used from a place with the exit "-". Links between parent
+ * and child places can be used in both directions. Searches between places
+ * of different connected components fail immediately. If the world has a
+ * landmark count, a landmark index gets created in the background and
+ * findRoute() uses it as soon as it is available
+ * @author neop
+ */
+public class PathFinder {
+
+    public static final double DEFAULT_LINK_WEIGHT = 1.0;
+    public static final int DEFAULT_LANDMARK_COUNT = 8;
+
+    // creates landmark indices
+    static final ExecutorService landmarkExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Landmarks");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    final World world;
+
+    // cost of following a link between a parent and a child place
+    double linkWeight = DEFAULT_LINK_WEIGHT;
+    // portals and their distances, for routes across layers
+    final PortalGraph portalGraph = new PortalGraph();
+    // connected components, to reject impossible routes
+    final ConnectedComponents components;
+    // recently found routes of findRoute()
+    final RouteCache routeCache;
+    // landmark index, null if outdated or not created yet
+    LandmarkIndex landmarkIndex = null;
+    Future<?> landmarkTask = null;
+    // incremented when the landmark index gets outdated
+    int landmarkGeneration = 0;
+
+    // heuristic factors of each layer, see getHeuristicFactors()
+    final HashMap<Layer, HeuristicFactors> heuristicFactors = new HashMap<>();
+
+    /**
+     * Lower bounds of the path weight per grid distance on a layer
+     */
+    private static class HeuristicFactors {
+        final long modificationCount;
+        // weight per Chebyshev and per Manhattan distance
+        final double chebyshev, manhattan;
+
+        public HeuristicFactors(long modificationCount, double chebyshev, double manhattan){
+            this.modificationCount = modificationCount;
+            this.chebyshev = chebyshev;
+            this.manhattan = manhattan;
+        }
+    }
+
+    /**
+     * Entry of the priority queue
+     */
+    static class QueueEntry implements Comparable<QueueEntry> {
+        final Place place;
+        // distance from start
+        final double distance;
+        // distance plus estimated remaining distance
+        final double priority;
+
+        public QueueEntry(Place place, double distance, double priority){
+            this.place = place;
+            this.distance = distance;
+            this.priority = priority;
+        }
+
+        @Override
+        public int compareTo(QueueEntry other){
+            return Double.compare(priority, other.priority);
+        }
+    }
+
+    /**
+     * State of one direction of a bidirectional search
+     */
+    private static class SearchSide {
+        // true for the search from the start place
+        final boolean forward;
+        // path to the predecessor (forward) or successor (backward)
+        final HashMap<Place, Path> predecessors = new HashMap<>();
+        final HashMap<Place, Double> distances = new HashMap<>();
+        final PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+
+        public SearchSide(Place root, boolean forward){
+            this.forward = forward;
+            predecessors.put(root, null);
+            distances.put(root, 0.0);
+            queue.add(new QueueEntry(root, 0.0, 0.0));
+        }
+
+        /**
+         * Removes outdated entries from the head of the queue
+         * @return true, if the queue isn't empty
+         */
+        public boolean skipOutdated(){
+            while(!queue.isEmpty() && queue.peek().distance > distances.get(queue.peek().place)){
+                queue.poll();
+            }
+            return !queue.isEmpty();
+        }
+
+        /**
+         * Checks whether a path can be used in the direction of this side
+         * @param path path
+         * @param from expanded place
+         * @param to other place of the path
+         * @return true, if the path can be used from -> to (forward) or
+         * to -> from (backward)
+         */
+        public boolean canUse(Path path, Place from, Place to){
+            return forward ? path.isPassableFrom(from) : path.isPassableFrom(to);
+        }
+    }
+
+    /**
+     * Step of a route across layers: the previous place and whether the step
+     * uses paths on a layer or a single link to another layer
+     */
+    private static class LayerStep {
+        final Place from;
+        final boolean withinLayer;
+
+        public LayerStep(Place from, boolean withinLayer){
+            this.from = from;
+            this.withinLayer = withinLayer;
+        }
+    }
+
+    /**
+     * Constructs a path finder
+     * @param world world to search
+     */
+    public PathFinder(World world){
+        this.world = world;
+        components = new ConnectedComponents(world);
+        routeCache = new RouteCache(RouteCache.DEFAULT_CAPACITY, components);
+    }
+
+    /**
+     * Gets the world
+     * @return world
+     */
+    public World getWorld(){
+        return world;
+    }
+
+    /**
+     * Gets the connected components of the world
+     * @return connected components
+     */
+    public ConnectedComponents getConnectedComponents(){
+        return components;
+    }
+
+    /**
+     * Gets the cache of findRoute()
+     * @return route cache
+     */
+    public RouteCache getRouteCache(){
+        return routeCache;
+    }
+
+    /**
+     * Updates the cached state after a world change, has to be called before
+     * the next search
+     * @param event change event
+     */
+    public void update(WorldChangeEvent event){
+        components.update(event);
+        routeCache.update(event);
+        // the landmark index only depends on paths, weights and links, the
+        // world invalidates it when the landmark count changes
+        switch(event.getType()){
+            case PATH_CONNECTED:
+            case PATH_REMOVED:
+            case PATH_CHANGED:
+            case CHILD_CONNECTED:
+            case CHILD_REMOVED:
+            case PLACE_REMOVED:
+            case LAYER_REMOVED:
+                invalidateLandmarks();
+                break;
+            case PLACE_ADDED:
+                // new places without connections don't change any distance
+                if(((Place) event.getSource()).hasConnections()) invalidateLandmarks();
+                break;
+            case LAYER_CHANGED:
+                // bulk insert, shifts don't change distances
+                if(event.getNewValue() instanceof Collection){
+                    for(Object element: (Collection<?>) event.getNewValue()){
+                        if(element instanceof Place && ((Place) element).hasConnections()){
+                            invalidateLandmarks();
+                            break;
+                        }
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Gets the landmark index. If there is none, it gets read from the
+     * landmark file beside the world file or created in the background. The
+     * file is only used if it matches the current paths and links. The graph
+     * snapshot for the background thread is taken on the calling thread, this
+     * takes time linear in the number of places and paths, but only once per
+     * change of the paths
+     * @return landmark index or null if it isn't available (yet) or if the
+     * world's landmark count is 0
+     */
+    public synchronized LandmarkIndex getLandmarkIndex(){
+        final int count = world.getLandmarkCount();
+        if(count > 0 && landmarkIndex == null && landmarkTask == null){
+            final LandmarkIndex.Graph graph = new LandmarkIndex.Graph(world, linkWeight);
+            final File file = getLandmarkFile();
+            final int generation = landmarkGeneration;
+            landmarkTask = landmarkExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    LandmarkIndex index = null;
+                    try {
+                        if(file != null && file.exists()){
+                            try {
+                                index = LandmarkIndex.read(file, graph);
+                            } catch (IOException ex) {
+                                Logger.getLogger(PathFinder.class.getName()).log(Level.WARNING, null, ex);
+                            }
+                        }
+                        if(index == null || index.getLandmarkCount() != Math.min(count, graph.size())){
+                            index = LandmarkIndex.create(graph, count);
+                            if(file != null){
+                                try {
+                                    index.write(file);
+                                } catch (IOException ex) {
+                                    Logger.getLogger(PathFinder.class.getName()).log(Level.WARNING, null, ex);
+                                }
+                            }
+                        }
+                    } catch (InterruptedException ex) {
+                        // outdated
+                        index = null;
+                    } catch (RuntimeException ex) {
+                        Logger.getLogger(PathFinder.class.getName()).log(Level.WARNING, null, ex);
+                        index = null;
+                    } finally {
+                        // clears the task, so that a failed creation can be
+                        // retried on the next request
+                        setLandmarkIndex(index, generation);
+                    }
+                }
+            });
+        }
+        return landmarkIndex;
+    }
+
+    /**
+     * Sets the created landmark index and clears the task, if it isn't
+     * outdated yet
+     * @param index landmark index or null if the creation failed
+     * @param generation landmark generation when the creation started
+     */
+    private synchronized void setLandmarkIndex(LandmarkIndex index, int generation){
+        if(generation == landmarkGeneration){
+            landmarkIndex = index;
+            landmarkTask = null;
+        }
+    }
+
+    /**
+     * Discards the landmark index, a new one gets created when needed
+     */
+    public synchronized void invalidateLandmarks(){
+        ++landmarkGeneration;
+        landmarkIndex = null;
+        if(landmarkTask != null){
+            landmarkTask.cancel(true);
+            landmarkTask = null;
+        }
+    }
+
+    /**
+     * Gets the file of the landmark index
+     * @return file beside the world file or null if the world has no file
+     */
+    File getLandmarkFile(){
+        WorldFile worldFile = world.getWorldFile();
+        if(worldFile == null || worldFile.getFilename().isEmpty()) return null;
+        return new File(worldFile.getFilename() + LandmarkIndex.FILE_EXTENSION);
+    }
+
+    /**
+     * Gets the cost of following a link between a parent and a child place
+     * @return link weight
+     */
+    public double getLinkWeight(){
+        return linkWeight;
+    }
+
+    /**
+     * Sets the cost of following a link between a parent and a child place
+     * @param linkWeight non-negative weight
+     * @throws IllegalArgumentException if the weight is negative or not a
+     * number
+     */
+    public void setLinkWeight(double linkWeight) throws IllegalArgumentException{
+        if(!(linkWeight >= 0) || Double.isInfinite(linkWeight)){
+            throw new IllegalArgumentException("Invalid link weight: " + linkWeight);
+        }
+        if(linkWeight != this.linkWeight){
+            this.linkWeight = linkWeight;
+            invalidateLandmarks();
+        }
+    }
+
+    /**
+     * Finds the route with the least cost, also across layers. If there is a
+     * landmark index, see findRouteLandmarks(). If start and end are on the
+     * same layer and it has no portals to other layers, A* is used (or a
+     * bidirectional Dijkstra if there is no heuristic). Otherwise see
+     * findRouteAcrossLayers(). Results are cached until a change of the
+     * world could affect them, see RouteCache
+     * @param start start place
+     * @param end end place
+     * @return route or null if end can't be reached
+     */
+    public Route findRoute(Place start, Place end){
+        if(!components.isConnected(start, end)) return null;
+        double weight = linkWeight;
+        RouteCache.Entry cached = routeCache.lookup(start, end, weight);
+        if(cached != null) return cached.route;
+
+        Route route;
+        LandmarkIndex index = getLandmarkIndex();
+        if(index != null){
+            route = searchWithLinks(start, end, index);
+        } else if(start.getLayer() != null && start.getLayer() == end.getLayer()
+                && portalGraph.getLayerGraph(start.getLayer()).getPortals().isEmpty()){
+            // the route can't leave the layer
+            HeuristicFactors factors = getHeuristicFactors(start, end);
+            if(factors != null) route = search(start, end, factors, null);
+            else route = findRouteBidirectional(start, end);
+        } else {
+            route = findRouteAcrossLayers(start, end);
+        }
+        routeCache.put(start, end, weight, route);
+        return route;
+    }
+
+    /**
+     * Finds the route with the least cost using paths as well as links
+     * between parent and child places (hierarchical search). The coarse
+     * search runs on the portals only: the places that lead to other layers.
+     * Within a layer it uses the cached distances between its portals, see
+     * PortalGraph. Afterwards only the route segments on the layers involved
+     * get searched in detail
+     * @param start start place
+     * @param end end place
+     * @return route or null if end can't be reached
+     */
+    public Route findRouteAcrossLayers(Place start, Place end){
+        if(!components.isConnected(start, end)) return null;
+        Layer startLayer = start.getLayer();
+        Layer endLayer = end.getLayer();
+
+        // distances from the portals of the end layer (and the start place)
+        // to the end place
+        HashSet<Place> endTargets = new HashSet<>(portalGraph.getLayerGraph(endLayer).getPortals());
+        if(startLayer == endLayer) endTargets.add(start);
+        HashMap<Place, Double> toEnd = PortalGraph.distancesWithinLayer(end, false, endTargets);
+
+        HashMap<Place, Double> distances = new HashMap<>();
+        HashMap<Place, LayerStep> steps = new HashMap<>();
+        PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+        distances.put(start, 0.0);
+        queue.add(new QueueEntry(start, 0.0, 0.0));
+        int expanded = 0;
+        boolean found = false;
+
+        while(!queue.isEmpty()){
+            QueueEntry entry = queue.poll();
+            Place v = entry.place;
+            if(entry.distance > distances.get(v)) continue;
+
+            ++expanded;
+            if(v == end){
+                found = true;
+                break;
+            }
+
+            // to other portals of the layer
+            HashMap<Place, Double> within;
+            if(v == start){
+                HashSet<Place> targets = new HashSet<>(portalGraph.getLayerGraph(startLayer).getPortals());
+                within = PortalGraph.distancesWithinLayer(start, true, targets);
+            } else {
+                within = portalGraph.getLayerGraph(v.getLayer()).getDistances(v);
+            }
+            for(Map.Entry<Place, Double> target: within.entrySet()){
+                if(target.getKey() != v){
+                    relax(target.getKey(), entry.distance + target.getValue(), new LayerStep(v, true), distances, steps, queue);
+                }
+            }
+            // to the end place
+            Double distanceToEnd = toEnd.get(v);
+            if(distanceToEnd != null){
+                relax(end, entry.distance + distanceToEnd, new LayerStep(v, true), distances, steps, queue);
+            }
+
+            // to other layers
+            for(Place linked: v.getChildren()){
+                relax(linked, entry.distance + linkWeight, new LayerStep(v, false), distances, steps, queue);
+            }
+            for(Place linked: v.getParents()){
+                relax(linked, entry.distance + linkWeight, new LayerStep(v, false), distances, steps, queue);
+            }
+            for(Path pa: v.getPaths()){
+                Place vi = pa.getOtherPlace(v);
+                if(vi.getLayer() != v.getLayer() && pa.isPassableFrom(v)){
+                    relax(vi, entry.distance + pa.getWeight(), new LayerStep(v, false), distances, steps, queue);
+                }
+            }
+        }
+        if(!found) return null;
+
+        // coarse route end -> start
+        ArrayList<Place> coarse = new ArrayList<>();
+        ArrayList<LayerStep> coarseSteps = new ArrayList<>();
+        for(Place place = end; place != start; place = steps.get(place).from){
+            coarse.add(place);
+            coarseSteps.add(steps.get(place));
+        }
+
+        // refine the segments within layers
+        ArrayList<Place> places = new ArrayList<>();
+        places.add(start);
+        for(int i = coarse.size() - 1; i >= 0; --i){
+            Place to = coarse.get(i);
+            LayerStep step = coarseSteps.get(i);
+            if(step.withinLayer){
+                Route segment = search(step.from, to, getHeuristicFactors(step.from, to), step.from.getLayer());
+                expanded += segment.getExpandedCount();
+                places.addAll(segment.getPlaces().subList(1, segment.getPlaces().size()));
+            } else {
+                places.add(to);
+            }
+        }
+        return new Route(places, distances.get(end), expanded);
+    }
+
+    /**
+     * Finds the route with the least cost using paths as well as links
+     * between parent and child places (A* with the landmark heuristic). This
+     * is a Dijkstra search if the landmark index isn't available yet
+     * @param start start place
+     * @param end end place
+     * @return route or null if end can't be reached
+     */
+    public Route findRouteLandmarks(Place start, Place end){
+        if(!components.isConnected(start, end)) return null;
+        return searchWithLinks(start, end, getLandmarkIndex());
+    }
+
+    /**
+     * Searches the route with the least cost using paths and links
+     * @param start start place
+     * @param end end place
+     * @param index landmark index for the heuristic or null for Dijkstra
+     * @return route or null if end can't be reached
+     */
+    private Route searchWithLinks(Place start, Place end, LandmarkIndex index){
+        // predecessor of each reached place, null for start
+        HashMap<Place, Place> predecessors = new HashMap<>();
+        // least known distance from start
+        HashMap<Place, Double> distances = new HashMap<>();
+        PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+
+        predecessors.put(start, null);
+        distances.put(start, 0.0);
+        queue.add(new QueueEntry(start, 0.0, index != null ? index.estimate(start, end) : 0.0));
+        int expanded = 0;
+
+        while(!queue.isEmpty()){
+            QueueEntry entry = queue.poll();
+            Place v = entry.place;
+            if(entry.distance > distances.get(v)) continue;
+            // only unreachable places remain
+            if(Double.isInfinite(entry.priority)) break;
+
+            ++expanded;
+            if(v == end){
+                ArrayList<Place> places = new ArrayList<>();
+                for(Place place = end; place != null; place = predecessors.get(place)){
+                    places.add(place);
+                }
+                Collections.reverse(places);
+                return new Route(places, entry.distance, expanded);
+            }
+
+            HashMap<Place, Double> neighbors = new HashMap<>();
+            for(Path pa: v.getPaths()){
+                Place vi = pa.getOtherPlace(v);
+                if(vi != v && pa.isPassableFrom(v)) addNeighbor(neighbors, vi, pa.getWeight());
+            }
+            for(Place vi: v.getChildren()) addNeighbor(neighbors, vi, linkWeight);
+            for(Place vi: v.getParents()) addNeighbor(neighbors, vi, linkWeight);
+
+            for(Map.Entry<Place, Double> neighbor: neighbors.entrySet()){
+                Place vi = neighbor.getKey();
+                double distance = entry.distance + neighbor.getValue();
+                Double known = distances.get(vi);
+                if(known == null || distance < known){
+                    distances.put(vi, distance);
+                    predecessors.put(vi, v);
+                    double estimate = index != null ? index.estimate(vi, end) : 0.0;
+                    queue.add(new QueueEntry(vi, distance, distance + estimate));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a neighbor place, keeps the least weight if it is reachable in
+     * several ways
+     * @param neighbors neighbors and weights
+     * @param place neighbor
+     * @param weight weight of the path or link
+     */
+    private static void addNeighbor(HashMap<Place, Double> neighbors, Place place, double weight){
+        Double known = neighbors.get(place);
+        if(known == null || weight < known) neighbors.put(place, weight);
+    }
+
+    /**
+     * Updates the distance of a place in the coarse search if it is shorter
+     * @param place place
+     * @param distance new distance
+     * @param step step to the place
+     * @param distances least known distances
+     * @param steps steps to the places
+     * @param queue priority queue
+     */
+    private static void relax(Place place, double distance, LayerStep step,
+            HashMap<Place, Double> distances, HashMap<Place, LayerStep> steps, PriorityQueue<QueueEntry> queue){
+        Double known = distances.get(place);
+        if(known == null || distance < known){
+            distances.put(place, distance);
+            steps.put(place, step);
+            queue.add(new QueueEntry(place, distance, distance));
+        }
+    }
+
+    /**
+     * Finds a route with the least number of steps (breadth search), path
+     * weights are ignored
+     * @param start start place
+     * @param end end place
+     * @return route or null if end can't be reached
+     */
+    public Route findRouteBreadthFirst(Place start, Place end){
+        if(!components.isConnected(start, end)) return null;
+        // path to the predecessor of each reached place, null for start
+        HashMap<Place, Path> predecessors = new HashMap<>();
+        predecessors.put(start, null);
+
+        ArrayDeque<Place> queue = new ArrayDeque<>();
+        queue.add(start);
+        int expanded = 0;
+
+        while(!queue.isEmpty()){
+            Place v = queue.pollFirst();
+            ++expanded;
+            if(v == end) return createRoute(predecessors, end, expanded);
+
+            for(Path pa: v.getPaths()){
+                Place vi = pa.getOtherPlace(v);
+                if(vi != v && pa.isPassableFrom(v) && !predecessors.containsKey(vi)){
+                    predecessors.put(vi, pa);
+                    queue.addLast(vi);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the route with the least cost (Dijkstra)
+     * @param start start place
+     * @param end end place
+     * @return route or null if end can't be reached
+     */
+    public Route findRouteDijkstra(Place start, Place end){
+        if(!components.isConnected(start, end)) return null;
+        return search(start, end, null, null);
+    }
+
+    /**
+     * Finds the route with the least cost (A*). The heuristic is the grid
+     * distance on the layer times the least weight per distance of the
+     * layer's paths, so it never overestimates. Falls back to Dijkstra if
+     * start and end are on different layers or if the layer has paths to
+     * other layers
+     * @param start start place
+     * @param end end place
+     * @return route or null if end can't be reached
+     */
+    public Route findRouteAStar(Place start, Place end){
+        if(!components.isConnected(start, end)) return null;
+        return search(start, end, getHeuristicFactors(start, end), null);
+    }
+
+    /**
+     * Finds the route with the least cost with two Dijkstra searches, one
+     * from the start place and one backwards from the end place, until they
+     * meet. The side with the smaller queue gets expanded, so long routes
+     * explore far fewer places than a one-sided search
+     * @param start start place
+     * @param end end place
+     * @return route or null if end can't be reached
+     */
+    public Route findRouteBidirectional(Place start, Place end){
+        if(!components.isConnected(start, end)) return null;
+        SearchSide forward = new SearchSide(start, true);
+        SearchSide backward = new SearchSide(end, false);
+        // least cost of a route found so far and the place where both meet
+        double best = start == end ? 0.0 : Double.POSITIVE_INFINITY;
+        Place meeting = start == end ? start : null;
+        int expanded = 0;
+
+        while(forward.skipOutdated() && backward.skipOutdated()){
+            // no shorter route possible
+            if(forward.queue.peek().distance + backward.queue.peek().distance >= best) break;
+
+            SearchSide side = forward.queue.size() <= backward.queue.size() ? forward : backward;
+            SearchSide other = side == forward ? backward : forward;
+
+            QueueEntry entry = side.queue.poll();
+            Place v = entry.place;
+            ++expanded;
+
+            for(Path pa: v.getPaths()){
+                Place vi = pa.getOtherPlace(v);
+                if(vi != v && side.canUse(pa, v, vi)){
+                    double distance = entry.distance + pa.getWeight();
+                    Double known = side.distances.get(vi);
+                    if(known == null || distance < known){
+                        side.distances.put(vi, distance);
+                        side.predecessors.put(vi, pa);
+                        side.queue.add(new QueueEntry(vi, distance, distance));
+                    } else {
+                        distance = known;
+                    }
+
+                    Double otherDistance = other.distances.get(vi);
+                    if(otherDistance != null && distance + otherDistance < best){
+                        best = distance + otherDistance;
+                        meeting = vi;
+                    }
+                }
+            }
+        }
+        if(meeting == null) return null;
+
+        // start -> meeting
+        ArrayList<Place> places = new ArrayList<>();
+        Place place = meeting;
+        places.add(place);
+        for(Path path = forward.predecessors.get(place); path != null; path = forward.predecessors.get(place)){
+            place = path.getOtherPlace(place);
+            places.add(place);
+        }
+        Collections.reverse(places);
+        // meeting -> end
+        place = meeting;
+        for(Path path = backward.predecessors.get(place); path != null; path = backward.predecessors.get(place)){
+            place = path.getOtherPlace(place);
+            places.add(place);
+        }
+        return new Route(places, best, expanded);
+    }
+
+    /**
+     * Searches the route with the least cost
+     * @param start start place
+     * @param end end place
+     * @param factors heuristic factors or null for Dijkstra
+     * @param layer only use places on this layer, null for all places
+     * @return route or null if end can't be reached
+     */
+    private Route search(Place start, Place end, HeuristicFactors factors, Layer layer){
+        // path to the predecessor of each reached place, null for start
+        HashMap<Place, Path> predecessors = new HashMap<>();
+        // least known distance from start
+        HashMap<Place, Double> distances = new HashMap<>();
+        // binary heap, outdated entries are skipped
+        PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+
+        predecessors.put(start, null);
+        distances.put(start, 0.0);
+        queue.add(new QueueEntry(start, 0.0, estimate(start, end, factors)));
+        int expanded = 0;
+
+        while(!queue.isEmpty()){
+            QueueEntry entry = queue.poll();
+            Place v = entry.place;
+            if(entry.distance > distances.get(v)) continue;
+
+            ++expanded;
+            if(v == end) return createRoute(predecessors, end, expanded);
+
+            for(Path pa: v.getPaths()){
+                Place vi = pa.getOtherPlace(v);
+                if(vi != v && pa.isPassableFrom(v) && (layer == null || vi.getLayer() == layer)){
+                    double distance = entry.distance + pa.getWeight();
+                    Double known = distances.get(vi);
+                    if(known == null || distance < known){
+                        distances.put(vi, distance);
+                        predecessors.put(vi, pa);
+                        queue.add(new QueueEntry(vi, distance, distance + estimate(vi, end, factors)));
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Estimates the remaining cost from a place to the end place
+     * @param place current place
+     * @param end end place
+     * @param factors heuristic factors or null
+     * @return lower bound of the cost, 0 without factors
+     */
+    private static double estimate(Place place, Place end, HeuristicFactors factors){
+        if(factors == null) return 0.0;
+        int dx = Math.abs(place.getX() - end.getX());
+        int dy = Math.abs(place.getY() - end.getY());
+        return Math.max(factors.chebyshev * Math.max(dx, dy), factors.manhattan * (dx + dy));
+    }
+
+    /**
+     * Gets the heuristic factors for a search
+     * @param start start place
+     * @param end end place
+     * @return factors or null if A* can't be used
+     */
+    private HeuristicFactors getHeuristicFactors(Place start, Place end){
+        if(start.getLayer() != null && start.getLayer() == end.getLayer()){
+            HeuristicFactors factors = getHeuristicFactors(start.getLayer());
+            if(factors.chebyshev > 0 || factors.manhattan > 0) return factors;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the least weight per grid distance of all paths of a layer, the
+     * factors get recalculated when its paths or positions change. The factors are 0 if
+     * a path leads to another layer, since routes could leave the layer
+     * @param layer layer
+     * @return heuristic factors
+     */
+    private synchronized HeuristicFactors getHeuristicFactors(Layer layer){
+        HeuristicFactors factors = heuristicFactors.get(layer);
+        if(factors == null || factors.modificationCount != layer.getPathModificationCount()){
+            double chebyshev = Double.POSITIVE_INFINITY;
+            double manhattan = Double.POSITIVE_INFINITY;
+
+            search:
+            for(Place place: layer.getPlacesView()){
+                for(Path path: place.getPaths()){
+                    Place other = path.getOtherPlace(place);
+                    if(other.getLayer() != layer){
+                        chebyshev = manhattan = 0.0;
+                        break search;
+                    }
+                    int dx = Math.abs(place.getX() - other.getX());
+                    int dy = Math.abs(place.getY() - other.getY());
+                    // loops never shorten a route
+                    if(dx + dy > 0){
+                        chebyshev = Math.min(chebyshev, path.getWeight() / Math.max(dx, dy));
+                        manhattan = Math.min(manhattan, path.getWeight() / (dx + dy));
+                    }
+                }
+            }
+            // no paths at all
+            if(Double.isInfinite(chebyshev)) chebyshev = manhattan = 0.0;
+
+            factors = new HeuristicFactors(layer.getPathModificationCount(), chebyshev, manhattan);
+            heuristicFactors.put(layer, factors);
+        }
+        return factors;
+    }
+
+    /**
+     * Creates a route by following the predecessors from the end place
+     * @param predecessors path to the predecessor of each reached place
+     * @param end end place
+     * @param expanded number of expanded places
+     * @return route
+     */
+    static Route createRoute(HashMap<Place, Path> predecessors, Place end, int expanded){
+        ArrayList<Place> places = new ArrayList<>();
+        double cost = 0.0;
+        Place place = end;
+        places.add(place);
+        for(Path path = predecessors.get(place); path != null; path = predecessors.get(place)){
+            cost += path.getWeight();
+            place = path.getOtherPlace(place);
+            places.add(place);
+        }
+        Collections.reverse(places);
+        return new Route(places, cost, expanded);
+    }
+
+}
@@ -0,0 +1,171 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2014  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*  File description
+ *
+ *  This class is an abstract graph of the places that connect layers and of
+ *  the distances between them within each layer
+ */
+
+package mudmap2.backend.sssp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+
+/**
+ * Layer level graph for hierarchical path finding. Portals are the places
+ * that lead to other layers: places with children or parents and places with
+ * paths to other layers. For each layer the distances between its portals
+ * (using paths on that layer only) are calculated when needed and kept until
+ * the paths of the layer change
+ * @author neop
+ */
+class PortalGraph {
+
+    final HashMap<Layer, LayerGraph> layerGraphs = new HashMap<>();
+
+    /**
+     * Portals of a layer and the distances between them
+     */
+    static class LayerGraph {
+        final long modificationCount;
+        final ArrayList<Place> portals;
+        // distances from each portal to the portals it can reach
+        final HashMap<Place, HashMap<Place, Double>> distances = new HashMap<>();
+
+        public LayerGraph(Layer layer){
+            modificationCount = layer.getPathModificationCount();
+
+            portals = new ArrayList<>();
+            for(Place place: layer.getPlacesView()){
+                if(isPortal(place)) portals.add(place);
+            }
+
+            HashSet<Place> targets = new HashSet<>(portals);
+            for(Place portal: portals){
+                HashMap<Place, Double> reached = distancesWithinLayer(portal, true, targets);
+                HashMap<Place, Double> portalDistances = new HashMap<>();
+                for(Place target: portals){
+                    Double distance = reached.get(target);
+                    if(distance != null && target != portal) portalDistances.put(target, distance);
+                }
+                distances.put(portal, portalDistances);
+            }
+        }
+
+        /**
+         * Gets the portals of the layer
+         * @return portals
+         */
+        public Collection<Place> getPortals(){
+            return Collections.unmodifiableList(portals);
+        }
+
+        /**
+         * Gets the distances from a portal to the other portals of the layer
+         * @param portal portal
+         * @return distances of the reachable portals, empty if the place is no
+         * portal
+         */
+        public HashMap<Place, Double> getDistances(Place portal){
+            HashMap<Place, Double> ret = distances.get(portal);
+            if(ret == null) ret = new HashMap<>();
+            return ret;
+        }
+    }
+
+    /**
+     * Gets the graph of a layer, (re)creates it if its paths changed
+     * @param layer layer
+     * @return layer graph
+     */
+    public synchronized LayerGraph getLayerGraph(Layer layer){
+        LayerGraph graph = layerGraphs.get(layer);
+        if(graph == null || graph.modificationCount != layer.getPathModificationCount()){
+            graph = new LayerGraph(layer);
+            layerGraphs.put(layer, graph);
+        }
+        return graph;
+    }
+
+    /**
+     * Checks whether a place leads to another layer
+     * @param place place
+     * @return true, if the place has children, parents or paths to places on
+     * other layers
+     */
+    public static boolean isPortal(Place place){
+        if(!place.getChildren().isEmpty() || !place.getParents().isEmpty()) return true;
+        for(Path path: place.getPaths()){
+            if(path.getOtherPlace(place).getLayer() != place.getLayer()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Calculates the distances from (or to) a place using only paths on its
+     * layer (Dijkstra)
+     * @param root start place
+     * @param forward true for distances from root, false for distances to
+     * root
+     * @param targets the search stops when all of these places are reached,
+     * null to search the whole layer
+     * @return distances of the settled places
+     */
+    public static HashMap<Place, Double> distancesWithinLayer(Place root, boolean forward, Collection<Place> targets){
+        Layer layer = root.getLayer();
+        // least known distances
+        HashMap<Place, Double> distances = new HashMap<>();
+        // final distances
+        HashMap<Place, Double> settled = new HashMap<>();
+        PriorityQueue<PathFinder.QueueEntry> queue = new PriorityQueue<>();
+        int remaining = targets != null ? targets.size() : -1;
+
+        distances.put(root, 0.0);
+        queue.add(new PathFinder.QueueEntry(root, 0.0, 0.0));
+
+        while(!queue.isEmpty()){
+            PathFinder.QueueEntry entry = queue.poll();
+            Place v = entry.place;
+            if(settled.containsKey(v)) continue;
+            settled.put(v, entry.distance);
+            if(targets != null && targets.contains(v) && --remaining == 0) break;
+
+            for(Path pa: v.getPaths()){
+                Place vi = pa.getOtherPlace(v);
+                if(vi != v && vi.getLayer() == layer
+                        && (forward ? pa.isPassableFrom(v) : pa.isPassableFrom(vi))){
+                    double distance = entry.distance + pa.getWeight();
+                    Double known = distances.get(vi);
+                    if(known == null || distance < known){
+                        distances.put(vi, distance);
+                        queue.add(new PathFinder.QueueEntry(vi, distance, distance));
+                    }
+                }
+            }
+        }
+        return settled;
+    }
+
+}
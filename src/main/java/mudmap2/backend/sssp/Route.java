@@ -0,0 +1,106 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2014  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*  File description
+ *
+ *  The result of a path search: the places from start to end
+ */
+
+package mudmap2.backend.sssp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import mudmap2.backend.Place;
+
+/**
+ * Immutable route from a start place to an end place
+ * @author neop
+ */
+public class Route {
+
+    private final List<Place> places;
+    private final double cost;
+    private final int expanded;
+
+    /**
+     * Constructs a route
+     * @param places places from start to end, at least one
+     * @param cost sum of the path weights
+     * @param expanded number of places expanded by the search
+     */
+    public Route(List<Place> places, double cost, int expanded){
+        if(places.isEmpty()) throw new IllegalArgumentException("Route without places");
+        this.places = Collections.unmodifiableList(new ArrayList<>(places));
+        this.cost = cost;
+        this.expanded = expanded;
+    }
+
+    /**
+     * Gets the start place
+     * @return start place
+     */
+    public Place getStart(){
+        return places.get(0);
+    }
+
+    /**
+     * Gets the end place
+     * @return end place
+     */
+    public Place getEnd(){
+        return places.get(places.size() - 1);
+    }
+
+    /**
+     * Gets the places of the route
+     * @return unmodifiable list of places from start to end
+     */
+    public List<Place> getPlaces(){
+        return places;
+    }
+
+    /**
+     * Gets the number of steps
+     * @return number of paths used, 0 if start and end are equal
+     */
+    public int getLength(){
+        return places.size() - 1;
+    }
+
+    /**
+     * Gets the cost of the route
+     * @return sum of the weights of the used paths
+     */
+    public double getCost(){
+        return cost;
+    }
+
+    /**
+     * Gets the number of places the search expanded to find this route
+     * @return number of expanded places
+     */
+    public int getExpandedCount(){
+        return expanded;
+    }
+
+    @Override
+    public String toString(){
+        return "Route " + getStart() + " -> " + getEnd() + " (" + getLength() + ", " + getCost() + ")";
+    }
+
+}
@@ -0,0 +1,310 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2014  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*  File description
+ *
+ *  This class keeps recently found routes and evicts them when the world
+ *  changes in a way that could change them
+ */
+
+package mudmap2.backend.sssp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.WorldChangeEvent;
+
+/**
+ * Least recently used cache of routes (and of searches without a route),
+ * keyed by start, end and link weight. Each entry is indexed by the places
+ * of its route, so removed paths, links and places only evict the routes
+ * that use them. New connections and lower weights can make any route
+ * shorter, they only keep the entries that can't get cheaper: routes that
+ * cost no more than the new connection and searches between places that are
+ * still unconnected
+ * @author neop
+ */
+public class RouteCache {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    final int capacity;
+    final ConnectedComponents components;
+    // entries in access order
+    final LinkedHashMap<Key, Entry> entries;
+    // entries by the places they use
+    final HashMap<Place, HashSet<Key>> entriesByPlace = new HashMap<>();
+
+    long hits = 0;
+    long misses = 0;
+
+    /**
+     * Key of a cache entry
+     */
+    static class Key {
+        final Place start, end;
+        final double linkWeight;
+
+        public Key(Place start, Place end, double linkWeight){
+            this.start = start;
+            this.end = end;
+            this.linkWeight = linkWeight;
+        }
+
+        @Override
+        public boolean equals(Object obj){
+            if(!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return start == other.start && end == other.end
+                    && Double.compare(linkWeight, other.linkWeight) == 0;
+        }
+
+        @Override
+        public int hashCode(){
+            int hash = System.identityHashCode(start);
+            hash = 31 * hash + System.identityHashCode(end);
+            return 31 * hash + Double.valueOf(linkWeight).hashCode();
+        }
+    }
+
+    /**
+     * Cached search result
+     */
+    static class Entry {
+        // null if there is no route
+        final Route route;
+        // route places, or start and end
+        final HashSet<Place> places;
+
+        public Entry(Key key, Route route){
+            this.route = route;
+            if(route != null){
+                places = new HashSet<>(route.getPlaces());
+            } else {
+                places = new HashSet<>();
+                places.add(key.start);
+                places.add(key.end);
+            }
+        }
+    }
+
+    /**
+     * Constructs a route cache
+     * @param capacity maximum number of entries
+     * @param components connected components of the world, they have to be
+     * updated before the cache
+     */
+    public RouteCache(int capacity, ConnectedComponents components){
+        this.capacity = capacity;
+        this.components = components;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Looks up a search result, counts hits and misses
+     * @param start start place
+     * @param end end place
+     * @param linkWeight link weight of the search
+     * @return cached entry or null
+     */
+    synchronized Entry lookup(Place start, Place end, double linkWeight){
+        Entry entry = entries.get(new Key(start, end, linkWeight));
+        if(entry != null) ++hits;
+        else ++misses;
+        return entry;
+    }
+
+    /**
+     * Adds a search result, the least recently used entry gets evicted if the
+     * cache is full
+     * @param start start place
+     * @param end end place
+     * @param linkWeight link weight of the search
+     * @param route route or null if there is none
+     */
+    public synchronized void put(Place start, Place end, double linkWeight, Route route){
+        if(capacity <= 0) return;
+        Key key = new Key(start, end, linkWeight);
+        remove(key);
+        if(entries.size() >= capacity){
+            // least recently used
+            remove(entries.keySet().iterator().next());
+        }
+        Entry entry = new Entry(key, route);
+        entries.put(key, entry);
+        for(Place place: entry.places){
+            HashSet<Key> keys = entriesByPlace.get(place);
+            if(keys == null) entriesByPlace.put(place, keys = new HashSet<>());
+            keys.add(key);
+        }
+    }
+
+    /**
+     * Removes an entry
+     * @param key entry key
+     */
+    private void remove(Key key){
+        Entry entry = entries.remove(key);
+        if(entry == null) return;
+        for(Place place: entry.places){
+            HashSet<Key> keys = entriesByPlace.get(place);
+            keys.remove(key);
+            if(keys.isEmpty()) entriesByPlace.remove(place);
+        }
+    }
+
+    /**
+     * Removes all entries, the hit rate is kept
+     */
+    public synchronized void clear(){
+        entries.clear();
+        entriesByPlace.clear();
+    }
+
+    /**
+     * Evicts the entries that could change with a world change
+     * @param event change event
+     */
+    public synchronized void update(WorldChangeEvent event){
+        if(entries.isEmpty()) return;
+        switch(event.getType()){
+            case PATH_CONNECTED:
+                addedConnection(((Path) event.getSource()).getWeight(), false);
+                break;
+            case PATH_REMOVED:
+                removedConnection(((Path) event.getSource()).getPlaces());
+                break;
+            case PATH_CHANGED:
+                Path path = (Path) event.getSource();
+                if((Double) event.getNewValue() < (Double) event.getOldValue()){
+                    addedConnection(path.getWeight(), false);
+                } else {
+                    removedConnection(path.getPlaces());
+                }
+                break;
+            case CHILD_CONNECTED:
+                addedConnection(0.0, true);
+                break;
+            case CHILD_REMOVED:
+                removedConnection(new Place[]{(Place) event.getSource(), (Place) event.getOldValue()});
+                break;
+            case PLACE_REMOVED:
+                HashSet<Key> keys = entriesByPlace.get(event.getSource());
+                if(keys != null){
+                    for(Key key: new ArrayList<>(keys)) remove(key);
+                }
+                break;
+            case LAYER_CHANGED:
+                // bulk insert, shifts don't change routes
+                if(event.getNewValue() instanceof Collection){
+                    for(Object element: (Collection<?>) event.getNewValue()){
+                        if(element instanceof Place && ((Place) element).hasConnections()){
+                            addedConnection(0.0, false);
+                            break;
+                        }
+                    }
+                }
+                break;
+            default:
+                // removed layers send PLACE_REMOVED for each place first,
+                // the other changes don't change routes
+                break;
+        }
+    }
+
+    /**
+     * Evicts the entries whose routes use both places of a removed (or more
+     * expensive) connection. Other routes stay the best ones and places
+     * without a route stay unreachable
+     * @param places places of the connection
+     */
+    private void removedConnection(Place[] places){
+        HashSet<Key> keys = entriesByPlace.get(places[0]);
+        HashSet<Key> keys2 = entriesByPlace.get(places[1]);
+        if(keys == null || keys2 == null) return;
+        for(Key key: new ArrayList<>(keys)){
+            if(keys2.contains(key)) remove(key);
+        }
+    }
+
+    /**
+     * Evicts the entries that could get a cheaper route because of a new (or
+     * cheaper) connection
+     * @param weight weight of the path, each route using it costs at least
+     * this much
+     * @param link true for a link between a parent and a child place, its
+     * weight is the link weight of each entry
+     */
+    private void addedConnection(double weight, boolean link){
+        for(Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator(); it.hasNext();){
+            Map.Entry<Key, Entry> mapEntry = it.next();
+            Key key = mapEntry.getKey();
+            Entry entry = mapEntry.getValue();
+            boolean keep;
+            if(entry.route != null) keep = entry.route.getCost() <= (link ? key.linkWeight : weight);
+            else keep = !components.isConnected(key.start, key.end);
+            if(!keep){
+                it.remove();
+                for(Place place: entry.places){
+                    HashSet<Key> keys = entriesByPlace.get(place);
+                    keys.remove(key);
+                    if(keys.isEmpty()) entriesByPlace.remove(place);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of cached entries
+     * @return number of entries
+     */
+    public synchronized int size(){
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of queries answered from the cache
+     * @return number of hits
+     */
+    public synchronized long getHits(){
+        return hits;
+    }
+
+    /**
+     * Gets the number of queries that weren't cached
+     * @return number of misses
+     */
+    public synchronized long getMisses(){
+        return misses;
+    }
+
+    /**
+     * Gets the share of queries answered from the cache
+     * @return hit rate from 0 to 1, 0 if there were no queries
+     */
+    public synchronized double getHitRate(){
+        long queries = hits + misses;
+        return queries > 0 ? (double) hits / queries : 0.0;
+    }
+
+}
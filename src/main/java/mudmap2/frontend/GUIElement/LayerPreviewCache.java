@@ -0,0 +1,297 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*  File description
+ *
+ *  This class renders layer previews into images on a background thread and
+ *  keeps them until the layer changes
+ */
+package mudmap2.frontend.GUIElement;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Place;
+import mudmap2.frontend.GUIElement.WorldPanel.MapPainterDefault;
+
+/**
+ * Cache of layer preview images. An image is outdated if the modification
+ * counter of its layer or the requested size changed. Outdated images are
+ * still returned until the new one is rendered. All methods have to be called
+ * on the event dispatch thread
+ * @author neop
+ */
+public class LayerPreviewCache {
+
+    // one rendering thread for all caches
+    static final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Layer preview");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    final HashMap<Layer, Entry> entries = new HashMap<>();
+
+    private static class Entry {
+        BufferedImage image = null;
+        // state of the image or of the running render task
+        long modificationCount;
+        int width, height;
+        boolean rendering = false;
+        // callback of the latest request
+        Runnable onUpdate;
+    }
+
+    /**
+     * Gets the preview of a layer, starts rendering a new one if it is
+     * outdated
+     * @param layer layer
+     * @param width image width
+     * @param height image height
+     * @param onUpdate called on the event dispatch thread when a new image is
+     * available
+     * @return preview image, possibly outdated, or null if there is none yet
+     */
+    public BufferedImage get(Layer layer, int width, int height, Runnable onUpdate){
+        Entry entry = entries.get(layer);
+        if(entry == null){
+            entries.put(layer, entry = new Entry());
+        }
+        entry.onUpdate = onUpdate;
+
+        boolean upToDate = entry.image != null
+                && entry.modificationCount == layer.getModificationCount()
+                && entry.width == width && entry.height == height;
+        if(!upToDate && !entry.rendering && width > 0 && height > 0){
+            render(layer, entry, width, height);
+        }
+        return entry.image;
+    }
+
+    /**
+     * Removes the preview of a layer, eg. after it got deleted
+     * @param layer layer
+     */
+    public void remove(Layer layer){
+        entries.remove(layer);
+    }
+
+    /**
+     * Removes all previews
+     */
+    public void clear(){
+        entries.clear();
+    }
+
+    /**
+     * Renders an image on the background thread. The places are copied into a
+     * snapshot first, so the background thread doesn't read the live layer
+     * @param layer layer
+     * @param entry cache entry of the layer
+     * @param width image width
+     * @param height image height
+     */
+    private void render(final Layer layer, final Entry entry, final int width, final int height){
+        final long modificationCount = layer.getModificationCount();
+        final Snapshot snapshot = new Snapshot(layer, width, height);
+        entry.rendering = true;
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                BufferedImage image = null;
+                try {
+                    image = paint(snapshot, width, height);
+                } catch (RuntimeException ex) {
+                    Logger.getLogger(LayerPreviewCache.class.getName()).log(Level.WARNING, null, ex);
+                }
+
+                final BufferedImage result = image;
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        entry.rendering = false;
+                        if(result != null){
+                            entry.image = result;
+                            entry.modificationCount = modificationCount;
+                            entry.width = width;
+                            entry.height = height;
+                        }
+                        // the entry might have been removed in the meantime
+                        if(entries.get(layer) == entry && entry.onUpdate != null){
+                            entry.onUpdate.run();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * The parts of a layer that are shown in a preview: place positions,
+     * place group colors, information colors and, if the tiles are large
+     * enough, the tile center color and the place text. Paths aren't shown
+     * in previews, so they aren't copied
+     */
+    static class Snapshot {
+        final int xMin, yMin, xMax, yMax;
+        final int[] x, y;
+        // null if the place has no place group / information color
+        final Color[] groupColor, infoColor;
+        final Color tileCenterColor;
+        // null if the tiles are too small for text
+        final List<String>[] text;
+        final String[] flags;
+
+        /**
+         * Copies the places of a layer, has to be called on the event
+         * dispatch thread
+         * @param layer layer
+         * @param width image width
+         * @param height image height
+         */
+        @SuppressWarnings("unchecked")
+        public Snapshot(Layer layer, int width, int height){
+            xMin = layer.getXMin();
+            yMin = layer.getYMin();
+            xMax = layer.getXMax();
+            yMax = layer.getYMax();
+            tileCenterColor = layer.getWorld().getTileCenterColor();
+
+            int count = layer.getPlaceCount();
+            x = new int[count];
+            y = new int[count];
+            groupColor = new Color[count];
+            infoColor = new Color[count];
+
+            // the painter decides with the font size, this only skips
+            // copying text that can't fit anyway
+            int tileSize = getTileSize(this, width, height);
+            boolean copyText = tileSize - 2 * (MapPainterDefault.getTileBorderWidth(tileSize)
+                    + MapPainterDefault.getInformationColorStrokeWidth(tileSize)) > 0;
+            text = copyText ? new List[count] : null;
+            flags = copyText ? new String[count] : null;
+
+            int i = 0;
+            for(Place place: layer.getPlacesView()){
+                if(i == count) break;
+                x[i] = place.getX();
+                y[i] = place.getY();
+                if(place.getPlaceGroup() != null) groupColor[i] = place.getPlaceGroup().getColor();
+                if(place.getInfoRing() != null) infoColor[i] = place.getInfoRing().getColor();
+                if(copyText){
+                    text[i] = MapPainterDefault.getPlaceText(place, layer);
+                    flags[i] = MapPainterDefault.getPlaceFlags(place);
+                }
+                ++i;
+            }
+        }
+
+        /**
+         * Gets the number of places
+         * @return number of places
+         */
+        public int size(){
+            return x.length;
+        }
+    }
+
+    /**
+     * Paints a layer preview with transparent background, like the map
+     * painter draws places without paths
+     * @param snapshot places of the layer
+     * @param width image width
+     * @param height image height
+     * @return image
+     */
+    static BufferedImage paint(Snapshot snapshot, int width, int height){
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int tileSize = getTileSize(snapshot, width, height);
+        if(snapshot.size() == 0 || tileSize <= 0) return image;
+
+        // center the layer in the image
+        int offsetX = (width - (snapshot.xMax - snapshot.xMin + 1) * tileSize) / 2;
+        int offsetY = (height - (snapshot.yMax - snapshot.yMin + 1) * tileSize) / 2;
+        int border = MapPainterDefault.getTileBorderWidth(tileSize);
+        float stroke = MapPainterDefault.getInformationColorStrokeWidth(tileSize);
+        int textBorder = (int) (border + stroke);
+
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setStroke(new BasicStroke(stroke));
+            boolean drawText = snapshot.text != null
+                    && g.getFontMetrics().stringWidth("WW") < tileSize - 2 * (stroke + border);
+            for(int i = 0; i < snapshot.size(); ++i){
+                int px = offsetX + (snapshot.x[i] - snapshot.xMin) * tileSize;
+                int py = offsetY + (snapshot.yMax - snapshot.y[i]) * tileSize;
+                if(snapshot.groupColor[i] != null){
+                    g.setColor(snapshot.groupColor[i]);
+                    g.fillRect(px, py, tileSize, tileSize);
+                }
+                if(drawText){
+                    g.setColor(snapshot.tileCenterColor);
+                    g.fillRect(px + border, py + border, tileSize - 2 * border, tileSize - 2 * border);
+                }
+                if(snapshot.infoColor[i] != null){
+                    g.setColor(snapshot.infoColor[i]);
+                    g.drawRect(px + border, py + border,
+                            tileSize - 2 * border - (int) (0.5 * stroke),
+                            tileSize - 2 * border - (int) (0.5 * stroke));
+                }
+                if(drawText){
+                    g.setColor(Color.BLACK);
+                    MapPainterDefault.drawText(g, px + textBorder, py + textBorder, tileSize - 2 * textBorder, tileSize - 2 * textBorder,
+                            snapshot.text[i], snapshot.flags[i], "");
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Gets the tile size to fit the whole layer into the image
+     * @param snapshot places of the layer
+     * @param width image width
+     * @param height image height
+     * @return tile size
+     */
+    static int getTileSize(Snapshot snapshot, int width, int height){
+        int tileCntX = snapshot.xMax - snapshot.xMin + 1;
+        int tileCntY = snapshot.yMax - snapshot.yMin + 1;
+
+        return Math.min(width / tileCntX, height / tileCntY);
+    }
+
+}
@@ -17,50 +17,59 @@
 package mudmap2.frontend.GUIElement;
 
 import java.awt.Color;
-import mudmap2.frontend.GUIElement.WorldPanel.MapPainter;
-import mudmap2.frontend.GUIElement.WorldPanel.MapPainterDefault;
 import java.awt.Graphics;
+import java.awt.image.BufferedImage;
 import javax.swing.JPanel;
 import mudmap2.backend.Layer;
-import mudmap2.backend.WorldCoordinate;
 
 /**
- *
+ * Shows the preview of a layer from a LayerPreviewCache
  * @author neop
  */
 public class LayerPreviewPanel extends JPanel {
     private static final long serialVersionUID = 1L;
 
-    final static Integer MIN_TILE_SIZE = 20;
-
     Layer layer;
-    MapPainter mappainter;
+    LayerPreviewCache cache;
     Boolean marked;
+    // called when a new preview image is available
+    Runnable updateListener;
 
     public LayerPreviewPanel(Layer layer) {
+        this(layer, new LayerPreviewCache());
+    }
+
+    public LayerPreviewPanel(Layer layer, LayerPreviewCache cache) {
         this.layer = layer;
-        mappainter = new MapPainterDefault();
-        ((MapPainterDefault) mappainter).setShowPaths(false);
-        ((MapPainterDefault) mappainter).setGridEnabled(false);
-        ((MapPainterDefault) mappainter).setCursorVisible(false);
-        ((MapPainterDefault) mappainter).setPlaceSelectionVisible(false);
+        this.cache = cache;
         marked = false;
+        updateListener = new Runnable() {
+            @Override
+            public void run() {
+                repaint();
+            }
+        };
     }
 
-    private WorldCoordinate getCenter(){
-        Integer tileCntX = layer.getXMax() - layer.getXMin() + 1;
-        Integer tileCntY = layer.getYMax() - layer.getYMin() + 1;
-        Double centerX = layer.getXMin() + (tileCntX / 2.0);
-        Double centerY = layer.getYMin() + (tileCntY / 2.0) - 1;
-
-        return new WorldCoordinate(layer.getId(), centerX, centerY);
+    public Layer getLayer() {
+        return layer;
     }
 
-    private int getTileSize(){
-        Integer tileCntX = layer.getXMax() - layer.getXMin() + 1;
-        Integer tileCntY = layer.getYMax() - layer.getYMin() + 1;
+    /**
+     * Sets the layer, eg. if the panel is used as list cell renderer
+     * @param layer
+     */
+    public void setLayer(Layer layer) {
+        this.layer = layer;
+    }
 
-        return Math.min(getWidth() / tileCntX, getHeight() / tileCntY);
+    /**
+     * Sets the action to perform when a new preview image is available,
+     * repaints the panel by default
+     * @param updateListener
+     */
+    public void setUpdateListener(Runnable updateListener) {
+        this.updateListener = updateListener;
     }
 
     public Boolean getMarked() {
@@ -74,11 +83,16 @@ public class LayerPreviewPanel extends JPanel {
     @Override
     public void paintComponent(Graphics g){
         if(marked){
-            ((MapPainterDefault) mappainter).setBackgroundColor(Color.lightGray);
+            g.setColor(Color.lightGray);
+            g.fillRect(0, 0, getWidth(), getHeight());
         } else {
-            ((MapPainterDefault) mappainter).setBackgroundColor(null);
+            g.clearRect(0, 0, getWidth(), getHeight());
+        }
+
+        BufferedImage image = cache.get(layer, getWidth(), getHeight(), updateListener);
+        if(image != null){
+            g.drawImage(image, 0, 0, null);
         }
-        mappainter.paint(g, getTileSize(), getWidth(), getHeight(), layer, getCenter());
     }
 
 }
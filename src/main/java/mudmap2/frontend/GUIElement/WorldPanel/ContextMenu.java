@@ -4,8 +4,11 @@ import java.awt.Component;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
+import java.text.DecimalFormat;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.swing.JFrame;
 import javax.swing.JMenu;
@@ -16,11 +19,11 @@ import javax.swing.JSeparator;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
 
-import mudmap2.CopyPaste;
 import mudmap2.backend.Layer;
 import mudmap2.backend.LayerElement;
 import mudmap2.backend.Path;
 import mudmap2.backend.Place;
+import mudmap2.backend.sssp.Route;
 import mudmap2.frontend.dialog.PathConnectDialog;
 import mudmap2.frontend.dialog.PathConnectNeighborsDialog;
 import mudmap2.frontend.dialog.PathConnectUnknownDialog;
@@ -30,8 +33,6 @@ import mudmap2.frontend.dialog.PlaceSelectionDialog;
 import mudmap2.frontend.dialog.placeGroup.PlaceGroupDialog;
 import mudmap2.utils.KeystrokeHelper;
 import mudmap2.utils.MenuHelper;
-import mudmap2.utils.PlaceXComparator;
-import mudmap2.utils.PlaceYComparator;
 import mudmap2.utils.StringHelper;
 
 // constructs the context menu (on right click)
@@ -153,8 +154,10 @@ public class ContextMenu extends JPopupMenu implements ActionListener {
 
             if (!paths.isEmpty()) {
                 JMenu mPathRemove = null;
+                JMenu mPathWeight = null;
                 if (!parent.isPassive()) {
                     mPathRemove = MenuHelper.addMenu(mPaths, "Remove", "Remove a path");
+                    mPathWeight = MenuHelper.addMenu(mPaths, "Weight", "Set the cost of using a path");
                     mPaths.addSeparator();
                 }
 
@@ -169,6 +172,7 @@ public class ContextMenu extends JPopupMenu implements ActionListener {
                     if (!parent.isPassive()) {
                         final String dir = path.getExit(place);
                         final JMenuItem miPathRemove = MenuHelper.addMenuItem(mPathRemove, StringHelper.join("Remove [", dir, "] ", targetName), new RemovePathActionListener(path));
+                        MenuHelper.addMenuItem(mPathWeight, StringHelper.join("[", dir, "] ", targetName, " (", formatWeight(path.getWeight()), ")"), new PathWeightActionListener(rootFrame, path));
 
                         // add accelerator
                         final int dirnum = Path.getDirNum(dir);
@@ -318,133 +322,60 @@ public class ContextMenu extends JPopupMenu implements ActionListener {
                 final Place end = psdlg2.getSelection();
                 if (end != null) {
                     parent.placeGroupReset();
-                    Place place_it = parent.getWorld().breadthSearch(place, end);
-                    if (place_it == null) {
-                        parent.callMessageListeners("No Path found");
+                    final Route route = parent.getWorld().getPathFinder().findRoute(place, end);
+                    if (route == null) {
+                        if (!parent.getWorld().getPathFinder().getConnectedComponents().isConnected(place, end)) {
+                            parent.callMessageListeners("No Path found, the places are in different regions");
+                        } else {
+                            parent.callMessageListeners("No Path found");
+                        }
                         JOptionPane.showMessageDialog(this, StringHelper.join("Could not find path to ", end.getName()));
                     } else {
-                        int path_length = 0;
-                        while (place_it != null) {
+                        for (final Place place_it : route.getPlaces()) {
                             parent.getPlaceGroup().add(place_it);
-                            place_it = place_it.getBreadthSearchData().predecessor;
-                            ++path_length;
                         }
                         //repaint();
                         parent.worldChanged(place); // workaround: why doesn't repaint work?
-                        parent.callMessageListeners(StringHelper.join("Path found, length: ", path_length - 1));
+                        parent.callMessageListeners(StringHelper.join("Path found, length: ", route.getLength(), ", cost: ", formatWeight(route.getCost())));
                     }
 
                 }
                 break;
             case ContextMenu.ACTION_EXPAND_ALL:
-                //north
-                for (final Place pl : layer.getPlacesList(PlaceYComparator.BACKWARD)) {
-                    if (pl.getY() > posY) {
-                        CopyPaste.move(pl, pl.getX(), pl.getY() + 1);
-                    }
-                }
-                //east
-                for (final Place pl : layer.getPlacesList(PlaceXComparator.BACKWARD)) {
-                    if (pl.getX() > posX) {
-                        CopyPaste.move(pl, pl.getX() + 1, pl.getY());
-                    }
-                }
-                //south
-                for (final Place pl : layer.getPlacesList(PlaceYComparator.FORWARD)) {
-                    if (pl.getY() < posY) {
-                        CopyPaste.move(pl, pl.getX(), pl.getY() - 1);
-                    }
-                }
-                //west
-                for (final Place pl : layer.getPlacesList(PlaceXComparator.FORWARD)) {
-                    if (pl.getX() < posX) {
-                        CopyPaste.move(pl, pl.getX() - 1, pl.getY());
+                layer.getWorld().beginBatch();
+                try {
+                    if (expand(Integer.MIN_VALUE, posY + 1, Integer.MAX_VALUE, Integer.MAX_VALUE, 0, 1)
+                            && expand(posX + 1, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 1, 0)
+                            && expand(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, posY - 1, 0, -1)) {
+                        expand(Integer.MIN_VALUE, Integer.MIN_VALUE, posX - 1, Integer.MAX_VALUE, -1, 0);
                     }
+                } finally {
+                    layer.getWorld().endBatch();
                 }
                 break;
             case ContextMenu.ACTION_EXPAND_NORTH:
-                for (final Place pl : layer.getPlacesList(PlaceYComparator.BACKWARD)) {
-                    if (pl.getY() > posY) {
-                        CopyPaste.move(pl, pl.getX(), pl.getY() + 1);
-                    }
-                }
+                expand(Integer.MIN_VALUE, posY + 1, Integer.MAX_VALUE, Integer.MAX_VALUE, 0, 1);
                 break;
             case ContextMenu.ACTION_EXPAND_NORTHEAST:
-                //if match north AND east, move north
-                for (final Place pl : layer.getPlacesList(PlaceYComparator.BACKWARD)) {
-                    if (pl.getY() > posY && pl.getX() > posX) {
-                        CopyPaste.move(pl, pl.getX(), pl.getY() + 1);
-                    }
-                }
-                //if match north AND east, move east
-                for (final Place pl : layer.getPlacesList(PlaceXComparator.BACKWARD)) {
-                    if (pl.getY() > posY && pl.getX() > posX) {
-                        CopyPaste.move(pl, pl.getX() + 1, pl.getY());
-                    }
-                }
+                expand(posX + 1, posY + 1, Integer.MAX_VALUE, Integer.MAX_VALUE, 1, 1);
                 break;
             case ContextMenu.ACTION_EXPAND_EAST:
-                for (final Place pl : layer.getPlacesList(PlaceXComparator.BACKWARD)) {
-                    if (pl.getX() > posX) {
-                        CopyPaste.move(pl, pl.getX() + 1, pl.getY());
-                    }
-                }
+                expand(posX + 1, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 1, 0);
                 break;
             case ContextMenu.ACTION_EXPAND_SOUTHEAST:
-                //if match south AND east, move east
-                for (final Place pl : layer.getPlacesList(PlaceXComparator.BACKWARD)) {
-                    if (pl.getX() > posX && pl.getY() < posY) {
-                        CopyPaste.move(pl, pl.getX() + 1, pl.getY());
-                    }
-                }
-                //if match south AND east, move south
-                for (final Place pl : layer.getPlacesList(PlaceYComparator.FORWARD)) {
-                    if (pl.getX() > posX && pl.getY() < posY) {
-                        CopyPaste.move(pl, pl.getX(), pl.getY() - 1);
-                    }
-                }
+                expand(posX + 1, Integer.MIN_VALUE, Integer.MAX_VALUE, posY - 1, 1, -1);
                 break;
             case ContextMenu.ACTION_EXPAND_SOUTH:
-                for (final Place pl : layer.getPlacesList(PlaceYComparator.FORWARD)) {
-                    if (pl.getY() < posY) {
-                        CopyPaste.move(pl, pl.getX(), pl.getY() - 1);
-                    }
-                }
+                expand(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, posY - 1, 0, -1);
                 break;
             case ContextMenu.ACTION_EXPAND_SOUTHWEST:
-                //if match south AND west, move south
-                for (final Place pl : layer.getPlacesList(PlaceYComparator.FORWARD)) {
-                    if (pl.getY() < posY && pl.getX() < posX) {
-                        CopyPaste.move(pl, pl.getX(), pl.getY() - 1);
-                    }
-                }
-                //if match south AND west, move west
-                for (final Place pl : layer.getPlacesList(PlaceXComparator.FORWARD)) {
-                    if (pl.getY() < posY && pl.getX() < posX) {
-                        CopyPaste.move(pl, pl.getX() - 1, pl.getY());
-                    }
-                }
+                expand(Integer.MIN_VALUE, Integer.MIN_VALUE, posX - 1, posY - 1, -1, -1);
                 break;
             case ContextMenu.ACTION_EXPAND_WEST:
-                for (final Place pl : layer.getPlacesList(PlaceXComparator.FORWARD)) {
-                    if (pl.getX() < posX) {
-                        CopyPaste.move(pl, pl.getX() - 1, pl.getY());
-                    }
-                }
+                expand(Integer.MIN_VALUE, Integer.MIN_VALUE, posX - 1, Integer.MAX_VALUE, -1, 0);
                 break;
             case ContextMenu.ACTION_EXPAND_NORTHWEST:
-                //if match north AND west, move north
-                for (final Place pl : layer.getPlacesList(PlaceYComparator.BACKWARD)) {
-                    if (pl.getY() > posY && pl.getX() < posX) {
-                        CopyPaste.move(pl, pl.getX(), pl.getY() + 1);
-                    }
-                }
-                //if match north AND west, move west
-                for (final Place pl : layer.getPlacesList(PlaceXComparator.FORWARD)) {
-                    if (pl.getY() > posY && pl.getX() < posX) {
-                        CopyPaste.move(pl, pl.getX() - 1, pl.getY());
-                    }
-                }
+                expand(Integer.MIN_VALUE, posY + 1, posX - 1, Integer.MAX_VALUE, -1, 1);
                 break;
             default:
                 System.out.println(StringHelper.join("Invalid action command ", e.getActionCommand()));
@@ -452,8 +383,38 @@ public class ContextMenu extends JPopupMenu implements ActionListener {
         }
     }
 
+    /**
+     * Moves all places within the rectangle to make room next to the cursor
+     * @param xMin min x coordinate
+     * @param yMin min y coordinate
+     * @param xMax max x coordinate
+     * @param yMax max y coordinate
+     * @param dx x offset
+     * @param dy y offset
+     * @return false if the places couldn't be moved
+     */
+    private boolean expand(final int xMin, final int yMin, final int xMax, final int yMax, final int dx, final int dy) {
+        try {
+            layer.shift(xMin, yMin, xMax, yMax, dx, dy);
+            return true;
+        } catch (final Layer.PlaceNotInsertedException ex) {
+            Logger.getLogger(ContextMenu.class.getName()).log(Level.WARNING, null, ex);
+            JOptionPane.showMessageDialog(parent, StringHelper.join("Could not make room: ", ex.toString()), "Expand", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+    }
+
+    /**
+     * Formats a path weight or route cost without unnecessary decimals
+     * @param weight weight
+     * @return formatted weight
+     */
+    private static String formatWeight(final double weight) {
+        return new DecimalFormat("0.##").format(weight);
+    }
+
     private void addExpansionMenu() {
-        if (layer != null && layer.getPlaces().size() > 0) {
+        if (layer != null && layer.getPlaceCount() > 0) {
             final int componentCount = getComponentCount();
             if (componentCount > 0 && getComponent(componentCount - 1) instanceof JSeparator == false) {
                 addSeparator();
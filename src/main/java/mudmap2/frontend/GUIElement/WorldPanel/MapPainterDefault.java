@@ -142,10 +142,11 @@ public class MapPainterDefault implements MapPainter {
     }
 
     /**
-     * Gets the current tile border area size
+     * Gets the tile border area size
+     * @param tileSize tile size in pixel
      * @return area border width
      */
-    private int getTileBorderWidth(){
+    public static int getTileBorderWidth(int tileSize){
         // with interpolation for smooth transition
         return (int) Math.round(TILE_BORDER_WIDTH * Math.min(1.0, Math.max(0.5, (double) (tileSize - 20) / 80)));
     }
@@ -168,9 +169,10 @@ public class MapPainterDefault implements MapPainter {
 
     /**
      * Gets the stroke width of the information color border
+     * @param tileSize tile size in pixel
      * @return
      */
-    private float getInformationColorStrokeWidth(){
+    public static float getInformationColorStrokeWidth(int tileSize){
         return TILE_INFOCOL_STROKE_WIDTH * (float) (1.0 + tileSize / 200.0);
     }
 
@@ -331,7 +333,7 @@ public class MapPainterDefault implements MapPainter {
      * @param maxLines maximum number of lines
      * @return a list of strings
      */
-    private LinkedList<String> fitLineLength(String str, FontMetrics fm, int maxLength, int maxLines){
+    private static LinkedList<String> fitLineLength(String str, FontMetrics fm, int maxLength, int maxLines){
         LinkedList<String> ret;
 
         if(maxLines == 0) return new LinkedList<>();
@@ -381,7 +383,7 @@ public class MapPainterDefault implements MapPainter {
      * @param flags flags line
      * @param exits exits line
      */
-    private void drawText(Graphics g, int x, int y, int width, int height, List<String> top, String flags, String exits){
+    public static void drawText(Graphics g, int x, int y, int width, int height, List<String> top, String flags, String exits){
         FontMetrics fm = g.getFontMetrics();
 
         final int lineHeight = fm.getMaxAscent();
@@ -428,6 +430,92 @@ public class MapPainterDefault implements MapPainter {
         }
     }
 
+    /**
+     * Gets the text of a place tile: name (with id if it isn't unique or if
+     * the world is configured so), level range, map links and comments
+     * @param place place
+     * @param layer layer of the place
+     * @return text lines, before fitting them into the tile
+     */
+    public static LinkedList<String> getPlaceText(Place place, Layer layer){
+        LinkedList<String> text = new LinkedList<>();
+
+        // place name
+        // gets place name if unique, else place name with ID
+        String placeName;
+        switch(layer.getWorld().getShowPlaceId()){
+            default:
+            case UNIQUE:
+                placeName = place.getName();
+                if(!layer.isPlaceNameUnique(placeName)){
+                    placeName = place.toString();
+                }
+                break;
+            case NONE:
+                placeName = place.getName(); // name only
+                break;
+            case ALL:
+                placeName = place.toString(); // name and id
+                break;
+        }
+        text.add(placeName);
+
+        int reclvlmin = place.getRecLevelMin(), reclvlmax = place.getRecLevelMax();
+        if(reclvlmin > -1 || reclvlmax > -1){
+            String levelString = STR_INFO_LEVEL + (reclvlmin > -1 ? reclvlmin : "?") + " - " + (reclvlmax > -1 ? reclvlmax : "?");
+            text.add(levelString);
+        }
+
+        // TODO: I wish I could use bold/italic formatting for the info strings...
+        // parents
+        if(!place.getParents().isEmpty()){
+            String paStr = STR_INFO_MAP_LINK;
+
+            boolean firstParent = true;
+            for(Place parent: place.getParents()){
+                paStr += (firstParent ? "" : ", ") + parent.getName();
+                firstParent = false;
+            }
+            text.add(paStr);
+        }
+
+        // children
+        if(!place.getChildren().isEmpty()){
+            String chStr = STR_INFO_MAP_LINK;
+
+            boolean firstChild = true;
+            for(Place child: place.getChildren()){
+                chStr += (firstChild ? "" : ", ") + child.getName();
+                firstChild = false;
+            }
+            text.add(chStr);
+        }
+
+        // comments
+        if(!place.getComments().isEmpty()){
+            text.add(STR_INFO_COMMENT + place.getComments());
+        }
+        return text;
+    }
+
+    /**
+     * Gets the flags line of a place tile
+     * @param place place
+     * @return comment and map link flags followed by the other flags
+     */
+    public static String getPlaceFlags(Place place){
+        String flags = "";
+        // place has comments
+        if(!place.getComments().isEmpty()) flags += STR_FLAG_COMMENT;
+        if(!place.getChildren().isEmpty() || !place.getParents().isEmpty()) flags += STR_FLAG_MAP_LINK;
+
+        // other flags
+        for(Map.Entry<String, Boolean> flag: place.getFlags().entrySet()){
+            if(flag.getValue()) flags += flag.getKey().toUpperCase();
+        }
+        return flags;
+    }
+
     /**
      * Converts world coordinates to screen coordinates
      * @param placeX a world (place) coordinate (x axis)
@@ -525,13 +613,13 @@ public class MapPainterDefault implements MapPainter {
         if(tileSize <= 0) return; // Too small to draw
         
         final float selectionStrokeWidth = getTileSelectionStrokeWidth();
-        final int tileBorderWidthScaled = getTileBorderWidth();
+        final int tileBorderWidthScaled = getTileBorderWidth(tileSize);
 
         // max number of text lines tht fit in a tile
         FontMetrics fm = g.getFontMetrics();
-        final int maxLines = (int) Math.round((double)(tileSize - 3 * (tileBorderWidthScaled + (int) Math.ceil(getInformationColorStrokeWidth()))) / fm.getHeight());
-        final int maxLineLength = tileSize - 2 * (tileBorderWidthScaled + (int) selectionStrokeWidth + (int) Math.ceil(getInformationColorStrokeWidth()));
-        final Boolean drawText = fm.stringWidth("WW") < (tileSize - 2 * (getInformationColorStrokeWidth() + tileBorderWidthScaled));
+        final int maxLines = (int) Math.round((double)(tileSize - 3 * (tileBorderWidthScaled + (int) Math.ceil(getInformationColorStrokeWidth(tileSize)))) / fm.getHeight());
+        final int maxLineLength = tileSize - 2 * (tileBorderWidthScaled + (int) selectionStrokeWidth + (int) Math.ceil(getInformationColorStrokeWidth(tileSize)));
+        final Boolean drawText = fm.stringWidth("WW") < (tileSize - 2 * (getInformationColorStrokeWidth(tileSize) + tileBorderWidthScaled));
 
         // screen center in world coordinates
         final double screenCenterX = (graphicsWidth / tileSize) / 2.0; // note: wdtwd2
@@ -584,295 +672,228 @@ public class MapPainterDefault implements MapPainter {
         }
 
         // ------------------ draw the tiles / places ----------------------
-        for(int tileX = (g.getClipBounds().x / tileSize) - 1; tileX < graphicsWidth / tileSize + 1; ++tileX){
-            for(int tileY = (g.getClipBounds().y / tileSize) - 1; tileY < graphicsHeight / tileSize + 1; ++tileY){
+        final int tileXMin = (g.getClipBounds().x / tileSize) - 1;
+        final int tileXMax = (int) Math.ceil(graphicsWidth / tileSize + 1) - 1;
+        final int tileYMin = (g.getClipBounds().y / tileSize) - 1;
+        final int tileYMax = (int) Math.ceil(graphicsHeight / tileSize + 1) - 1;
+        // placeY = tileYBase - tileY
+        final int tileYBase = (int)(graphicsHeight / tileSize) + placeYOffset;
+
+        for(Place curPlace: layer.getPlaces(tileXMin + placeXOffset, tileYBase - tileYMax, tileXMax + placeXOffset, tileYBase - tileYMin)){
+            final int tileX = curPlace.getX() - placeXOffset;
+            final int tileY = tileYBase - curPlace.getY();
+
+            // place position in pixel on the screen
+            final int placeXpx = (int) Math.round((tileX + placeXpxConst) * tileSize);
+            final int placeYpx = (int) Math.round((tileY + placeYpxConst) * tileSize);
+
+            tilePositions.add(new Pair<>(placeXpx, placeYpx));
+
+            // draw place group color
+            if(curPlace.getPlaceGroup() != null){
+                g.setColor(curPlace.getPlaceGroup().getColor());
+                g.fillRect(placeXpx, placeYpx, tileSize, tileSize);
+            }
 
-                // place position on the map
-                final int placeX = tileX + placeXOffset;
-                final int placeY = (int)(graphicsHeight / tileSize) - tileY + placeYOffset;
+            // draw tile center color
+            if(drawText){
+                g.setColor(layer.getWorld().getTileCenterColor());
+                g.fillRect(placeXpx + tileBorderWidthScaled, placeYpx + tileBorderWidthScaled,
+                        tileSize - 2 * tileBorderWidthScaled, tileSize - 2 * tileBorderWidthScaled);
+            }
 
-                if(layer != null && layer.exist(placeX, placeY)){
-                    Place curPlace = layer.get(placeX, placeY);
+            // draw information color border
+            if(curPlace.getInfoRing() != null){
+                g.setColor(curPlace.getInfoRing().getColor());
+                ((Graphics2D)g).setStroke(new BasicStroke(getInformationColorStrokeWidth(tileSize)));
+                g.drawRect(placeXpx + tileBorderWidthScaled, placeYpx + tileBorderWidthScaled,
+                        tileSize - 2 * tileBorderWidthScaled - (int) (0.5 * getInformationColorStrokeWidth(tileSize)),
+                        tileSize - 2 * tileBorderWidthScaled - (int) (0.5 * getInformationColorStrokeWidth(tileSize)));
+            }
 
-                    // place position in pixel on the screen
-                    final int placeXpx = (int) Math.round((tileX + placeXpxConst) * tileSize);
-                    final int placeYpx = (int) Math.round((tileY + placeYpxConst) * tileSize);
+            LinkedList<String> text = new LinkedList<>();
+            String flags = "", exits = "";
 
-                    tilePositions.add(new Pair<>(placeXpx, placeYpx));
+            // draw text, if tiles are large enough
+            if(drawText){
+                g.setColor(Color.BLACK);
+                text = getPlaceText(curPlace, layer);
+                flags = getPlaceFlags(curPlace);
+            }
 
-                    // draw place group color
-                    if(curPlace.getPlaceGroup() != null){
-                        g.setColor(curPlace.getPlaceGroup().getColor());
-                        g.fillRect(placeXpx, placeYpx, tileSize, tileSize);
-                    }
+            // mark place group selection
+            if(showPlaceSelection && (isSelected(curPlace) || (mudmap2.CopyPaste.isCut() && mudmap2.CopyPaste.isMarked(curPlace)))){
+                g.setColor(new Color(255, 255, 255, 128));
+                g.fillRect(placeXpx, placeYpx, tileSize, tileSize);
+            }
 
-                    // draw tile center color
-                    if(drawText){
-                        g.setColor(layer.getWorld().getTileCenterColor());
-                        g.fillRect(placeXpx + tileBorderWidthScaled, placeYpx + tileBorderWidthScaled,
-                                tileSize - 2 * tileBorderWidthScaled, tileSize - 2 * tileBorderWidthScaled);
+            // draw path lines here
+            boolean exitUp = false, exitDown = false, exitnstd = false;
+            if(getShowPaths()){
+                for(Path path: curPlace.getPaths()){
+                    Place otherPlace = path.getOtherPlace(curPlace);
+
+                    String localExit = path.getExit(curPlace);
+                    String remoteExit;
+                    boolean connectedToSamePlace = false;
+                    if(curPlace != otherPlace) {
+                        remoteExit = path.getExit(otherPlace);
+                    } else { // if place is connected to itself
+                        remoteExit = path.getExitDirections()[1];
+                        connectedToSamePlace = true;
                     }
 
-                    // draw information color border
-                    if(curPlace.getInfoRing() != null){
-                        g.setColor(curPlace.getInfoRing().getColor());
-                        ((Graphics2D)g).setStroke(new BasicStroke(getInformationColorStrokeWidth()));
-                        g.drawRect(placeXpx + tileBorderWidthScaled, placeYpx + tileBorderWidthScaled,
-                                tileSize - 2 * tileBorderWidthScaled - (int) (0.5 * getInformationColorStrokeWidth()),
-                                tileSize - 2 * tileBorderWidthScaled - (int) (0.5 * getInformationColorStrokeWidth()));
+                    Color colorPlace1 = layer.getWorld().getPathColor(path.getExitDirections()[0]);
+                    Color colorPlace2 = layer.getWorld().getPathColor(path.getExitDirections()[1]);
+                    if(path.getPlaces()[0] != curPlace) {
+                        Color tmp = colorPlace1;
+                        colorPlace1 = colorPlace2;
+                        colorPlace2 = tmp;
                     }
-
-                    LinkedList<String> text = new LinkedList<>();
-                    String flags = "", exits = "";
-
-                    // draw text, if tiles are large enough
-                    if(drawText){
-                        g.setColor(Color.BLACK);
-
-                        // place name
-                        // gets place name if unique, else place name with ID
-                        String placeName;
-                        switch(layer.getWorld().getShowPlaceId()){
-                            default:
-                            case UNIQUE:
-                                placeName = curPlace.getName();
-                                if(!layer.isPlaceNameUnique(placeName)){
-                                    placeName = curPlace.toString();
-                                }
-                                break;
-                            case NONE:
-                                placeName = curPlace.getName(); // name only
-                                break;
-                            case ALL:
-                                placeName = curPlace.toString(); // name and id
-                                break;
-                        }
-                        text.add(placeName);
-
-                        int reclvlmin = curPlace.getRecLevelMin(), reclvlmax = curPlace.getRecLevelMax();
-                        if(reclvlmin > -1 || reclvlmax > -1){
-                            String levelString = STR_INFO_LEVEL + (reclvlmin > -1 ? reclvlmin : "?") + " - " + (reclvlmax > -1 ? reclvlmax : "?");
-                            text.add(levelString);
+                    
+                    // Draw paths
+                    // if both places of a path are on the same layer and at least one of the two places is on the screen
+                    // usually the main place (path.getPlaces()[0]) draws the path. If it isn't on screen, the other place draws it
+                    if(Objects.equals(otherPlace.getLayer().getId(), layer.getId())
+                            && (path.getPlaces()[0] == curPlace || !isOnScreen(otherPlace))
+                            && !path.isTargetUnknown()){
+                        Pair<Integer, Integer> exitOffset = getExitOffset(localExit, tileBorderWidthScaled);
+                        Pair<Integer, Integer> exitOffsetOther = getExitOffset(remoteExit, tileBorderWidthScaled);
+
+                        boolean drawCurves = getPathsCurved();
+
+                        // exit positions on the map
+                        final double exit1x = placeXpx + exitOffset.first;
+                        final double exit1y = placeYpx + exitOffset.second;
+                        final double exit2x = placeXpx + (otherPlace.getX() - curPlace.getX()) * tileSize + exitOffsetOther.first;
+                        final double exit2y = placeYpx - (otherPlace.getY() - curPlace.getY()) * tileSize + exitOffsetOther.second;
+
+                        if(colorPlace1.equals(colorPlace2)){ // same color
+                            ((Graphics2D) graphicPath).setPaint(colorPlace1);
+                        } else { // draw gradient
+                            GradientPaint gp = new GradientPaint((float) exit1x, (float) exit1y, colorPlace1,
+                                                                 (float) exit2x, (float) exit2y, colorPlace2);
+                            ((Graphics2D) graphicPath).setPaint(gp);
                         }
 
-                        // TODO: I wish I could use bold/italic formatting for the info strings...
-                        // parents
-                        if(!curPlace.getParents().isEmpty()){
-                            int parentsNum = curPlace.getParents().size();
-                            String paStr = STR_INFO_MAP_LINK;
-
-                            boolean firstParent = true;
-                            for(Place parent: curPlace.getParents()){
-                                paStr += (firstParent ? "" : ", ") + parent.getName();
-                                firstParent = false;
-                            }
-                            text.add(paStr);
-                        }
-
-                        // children
-                        if(!curPlace.getChildren().isEmpty()){
-                            int childrenNum = curPlace.getChildren().size();
-                            String chStr = STR_INFO_MAP_LINK;
-
-                            boolean firstChild = true;
-                            for(Place child: curPlace.getChildren()){
-                                chStr += (firstChild ? "" : ", ") + child.getName();
-                                firstChild = false;
+                        if(drawCurves){
+                            Pair<Double, Double> normal1 = getExitNormal(localExit);
+                            Pair<Double, Double> normal2 = getExitNormal(remoteExit);
+
+                            double dx = exit2x - exit1x;
+                            double dy = exit2y - exit1y;
+
+                            drawCurves = Math.sqrt(dx * dx + dy * dy) >= 1.5 * tileSize;
+                            if(drawCurves || connectedToSamePlace){
+                                CubicCurve2D c = new CubicCurve2D.Double();
+                                c.setCurve(// point 1
+                                        exit1x, exit1y,
+                                        // point 2
+                                        exit1x + normal1.first * tileSize, exit1y - normal1.second * tileSize,
+                                        // point 3
+                                        exit2x + normal2.first * tileSize, exit2y - normal2.second * tileSize,
+                                        // point 4
+                                        exit2x, exit2y);
+                                ((Graphics2D) graphicPath).draw(c);
                             }
-                            text.add(chStr);
-                        }
-                        
-                        // comments
-                        if(!curPlace.getComments().isEmpty()){
-                            text.add(STR_INFO_COMMENT + curPlace.getComments());
                         }
 
-                        // flags
-                        // place has comments
-                        if(!curPlace.getComments().isEmpty()) flags += STR_FLAG_COMMENT;
-                        if(!curPlace.getChildren().isEmpty() || !curPlace.getParents().isEmpty()) flags += STR_FLAG_MAP_LINK;
-
-                        // other flags
-                        for(Map.Entry<String, Boolean> flag: curPlace.getFlags().entrySet()){
-                            if(flag.getValue()) flags += flag.getKey().toUpperCase();
-                            if(fm.stringWidth(flags) >= tileSize - 2 * tileBorderWidthScaled) break;
+                        if(!drawCurves) {
+                            graphicPath.drawLine((int) exit1x, (int) exit1y, (int) exit2x, (int) exit2y);
                         }
                     }
 
-                    // mark place group selection
-                    if(showPlaceSelection && (isSelected(curPlace) || (mudmap2.CopyPaste.isCut() && mudmap2.CopyPaste.isMarked(curPlace)))){
-                        g.setColor(new Color(255, 255, 255, 128));
-                        g.fillRect(placeXpx, placeYpx, tileSize, tileSize);
-                    }
-
-                    // draw path lines here
-                    boolean exitUp = false, exitDown = false, exitnstd = false;
-                    if(getShowPaths()){
-                        for(Path path: curPlace.getPaths()){
-                            Place otherPlace = path.getOtherPlace(curPlace);
-
-                            String localExit = path.getExit(curPlace);
-                            String remoteExit;
-                            boolean connectedToSamePlace = false;
-                            if(curPlace != otherPlace) {
-                                remoteExit = path.getExit(otherPlace);
-                            } else { // if place is connected to itself
-                                remoteExit = path.getExitDirections()[1];
-                                connectedToSamePlace = true;
-                            }
-
-                            Color colorPlace1 = layer.getWorld().getPathColor(path.getExitDirections()[0]);
-                            Color colorPlace2 = layer.getWorld().getPathColor(path.getExitDirections()[1]);
-                            if(path.getPlaces()[0] != curPlace) {
-                                Color tmp = colorPlace1;
-                                colorPlace1 = colorPlace2;
-                                colorPlace2 = tmp;
-                            }
-                            
-                            // Draw paths
-                            // if both places of a path are on the same layer and at least one of the two places is on the screen
-                            // usually the main place (path.getPlaces()[0]) draws the path. If it isn't on screen, the other place draws it
-                            if(Objects.equals(otherPlace.getLayer().getId(), layer.getId())
-                                    && (path.getPlaces()[0] == curPlace || !isOnScreen(otherPlace))
-                                    && !path.isTargetUnknown()){
+                    // draw exit dots, if tiles are larger than 20
+                    if(tileSize >= 20){
+                        if(path.isTargetUnknown())
+                            g.setColor(layer.getWorld().getPathColorUnknown());
+                        else
+                            g.setColor(colorPlace1);
+                        switch (localExit) {
+                            case "u":
+                                exitUp = true;
+                                break;
+                            case "d":
+                                exitDown = true;
+                                break;
+                            case "unknown":
+                                break;
+                            default:
                                 Pair<Integer, Integer> exitOffset = getExitOffset(localExit, tileBorderWidthScaled);
-                                Pair<Integer, Integer> exitOffsetOther = getExitOffset(remoteExit, tileBorderWidthScaled);
-
-                                boolean drawCurves = getPathsCurved();
-
-                                // exit positions on the map
-                                final double exit1x = placeXpx + exitOffset.first;
-                                final double exit1y = placeYpx + exitOffset.second;
-                                final double exit2x = placeXpx + (otherPlace.getX() - curPlace.getX()) * tileSize + exitOffsetOther.first;
-                                final double exit2y = placeYpx - (otherPlace.getY() - curPlace.getY()) * tileSize + exitOffsetOther.second;
-
-                                if(colorPlace1.equals(colorPlace2)){ // same color
-                                    ((Graphics2D) graphicPath).setPaint(colorPlace1);
-                                } else { // draw gradient
-                                    GradientPaint gp = new GradientPaint((float) exit1x, (float) exit1y, colorPlace1,
-                                                                         (float) exit2x, (float) exit2y, colorPlace2);
-                                    ((Graphics2D) graphicPath).setPaint(gp);
+                                if(exitOffset.first != tileSize / 2 || exitOffset.second != tileSize / 2){
+                                    int exitCircleRadius2 = getExitCircleRadius();
+                                    g.fillOval(placeXpx + exitOffset.first - exitCircleRadius2, placeYpx + exitOffset.second - exitCircleRadius2, 2 * exitCircleRadius2, 2 * exitCircleRadius2);
+                                } else { // non-standard exit
+                                    exitnstd = true;
                                 }
-
-                                if(drawCurves){
-                                    Pair<Double, Double> normal1 = getExitNormal(localExit);
-                                    Pair<Double, Double> normal2 = getExitNormal(remoteExit);
-
-                                    double dx = exit2x - exit1x;
-                                    double dy = exit2y - exit1y;
-
-                                    drawCurves = Math.sqrt(dx * dx + dy * dy) >= 1.5 * tileSize;
-                                    if(drawCurves || connectedToSamePlace){
-                                        CubicCurve2D c = new CubicCurve2D.Double();
-                                        c.setCurve(// point 1
-                                                exit1x, exit1y,
-                                                // point 2
-                                                exit1x + normal1.first * tileSize, exit1y - normal1.second * tileSize,
-                                                // point 3
-                                                exit2x + normal2.first * tileSize, exit2y - normal2.second * tileSize,
-                                                // point 4
-                                                exit2x, exit2y);
-                                        ((Graphics2D) graphicPath).draw(c);
-                                    }
-                                }
-
-                                if(!drawCurves) {
-                                    graphicPath.drawLine((int) exit1x, (int) exit1y, (int) exit2x, (int) exit2y);
-                                }
-                            }
-
-                            // draw exit dots, if tiles are larger than 20
-                            if(tileSize >= 20){
-                                if(path.isTargetUnknown())
-                                    g.setColor(layer.getWorld().getPathColorUnknown());
-                                else
-                                    g.setColor(colorPlace1);
-                                switch (localExit) {
-                                    case "u":
-                                        exitUp = true;
-                                        break;
-                                    case "d":
-                                        exitDown = true;
-                                        break;
-                                    case "unknown":
-                                        break;
-                                    default:
-                                        Pair<Integer, Integer> exitOffset = getExitOffset(localExit, tileBorderWidthScaled);
-                                        if(exitOffset.first != tileSize / 2 || exitOffset.second != tileSize / 2){
-                                            int exitCircleRadius2 = getExitCircleRadius();
-                                            g.fillOval(placeXpx + exitOffset.first - exitCircleRadius2, placeYpx + exitOffset.second - exitCircleRadius2, 2 * exitCircleRadius2, 2 * exitCircleRadius2);
-                                        } else { // non-standard exit
-                                            exitnstd = true;
-                                        }
-                                        break;
-                                }
-                                
-                                // if place is connected to itself
-                                if(path.getPlaces()[0] == path.getPlaces()[1]){
-                                    switch (remoteExit) {
-                                        case "u":
-                                            exitUp = true;
-                                            break;
-                                        case "d":
-                                            exitDown = true;
-                                            break;
-                                        case "unknown":
-                                            break;
-                                        default:
-                                            Pair<Integer, Integer> exitOffset = getExitOffset(remoteExit, tileBorderWidthScaled);
-                                            if(exitOffset.first != tileSize / 2 || exitOffset.second != tileSize / 2){
-                                                int exitCircleRadius2 = getExitCircleRadius();
-                                                g.fillOval(placeXpx + exitOffset.first - exitCircleRadius2, placeYpx + exitOffset.second - exitCircleRadius2, 2 * exitCircleRadius2, 2 * exitCircleRadius2);
-                                            } else { // non-standard exit
-                                                exitnstd = true;
-                                            }
-                                            break;
+                                break;
+                        }
+                        
+                        // if place is connected to itself
+                        if(path.getPlaces()[0] == path.getPlaces()[1]){
+                            switch (remoteExit) {
+                                case "u":
+                                    exitUp = true;
+                                    break;
+                                case "d":
+                                    exitDown = true;
+                                    break;
+                                case "unknown":
+                                    break;
+                                default:
+                                    Pair<Integer, Integer> exitOffset = getExitOffset(remoteExit, tileBorderWidthScaled);
+                                    if(exitOffset.first != tileSize / 2 || exitOffset.second != tileSize / 2){
+                                        int exitCircleRadius2 = getExitCircleRadius();
+                                        g.fillOval(placeXpx + exitOffset.first - exitCircleRadius2, placeYpx + exitOffset.second - exitCircleRadius2, 2 * exitCircleRadius2, 2 * exitCircleRadius2);
+                                    } else { // non-standard exit
+                                        exitnstd = true;
                                     }
-                                }
+                                    break;
                             }
                         }
                     }
-
-                    // draw exits
-                    if(tileSize >= 20 && (exitnstd || exitUp || exitDown) && drawText){
-                        // have some arrows: ⬆⬇ ↑↓
-                        exits = "" + (exitnstd ? "+" : "") + (exitUp ? "↑" : "") + (exitDown ? "↓" : "");
-                    }
-
-                    g.setColor(Color.BLACK);
-                    final int border = (int) (tileBorderWidthScaled + getInformationColorStrokeWidth());
-                    drawText(g, placeXpx + border, placeYpx + border, tileSize - 2 * border, tileSize - 2 * border, text, flags, exits);
                 }
+            }
 
-                //TODO: extract from parent loop
-                if(showPlaceSelection && copiedPlaceLocations != null){
-                    boolean locationFound = false;
-                    for(Pair<Integer, Integer> location: copiedPlaceLocations){
-
-                        if(location.first == placeX - placeSelectedX && location.second == placeY - placeSelectedY){
-                            locationFound = true;
-                            break;
-                        }
-                    }
+            // draw exits
+            if(tileSize >= 20 && (exitnstd || exitUp || exitDown) && drawText){
+                // have some arrows: ⬆⬇ ↑↓
+                exits = "" + (exitnstd ? "+" : "") + (exitUp ? "↑" : "") + (exitDown ? "↓" : "");
+            }
 
-                    if(locationFound){
-                        int placeXpx = (int)((tileX + placeXpxConst) * tileSize);
-                        int placeYpx = (int)((tileY + placeYpxConst) * tileSize);
+            g.setColor(Color.BLACK);
+            final int border = (int) (tileBorderWidthScaled + getInformationColorStrokeWidth(tileSize));
+            drawText(g, placeXpx + border, placeYpx + border, tileSize - 2 * border, tileSize - 2 * border, text, flags, exits);
+        }
 
-                        drawCursor(g, Color.BLUE, placeXpx, placeYpx, selectionStrokeWidth);
-                    }
-                }
+        // mark the locations of copied places
+        if(showPlaceSelection && copiedPlaceLocations != null){
+            for(Pair<Integer, Integer> location: copiedPlaceLocations){
+                final int tileX = placeSelectedX + location.first - placeXOffset;
+                final int tileY = tileYBase - (placeSelectedY + location.second);
 
-                // draw cursor / place selection
-                if(showPlaceCursor && placeX == placeSelectedX && placeY == placeSelectedY){
+                if(tileX >= tileXMin && tileX <= tileXMax && tileY >= tileYMin && tileY <= tileYMax){
                     int placeXpx = (int)((tileX + placeXpxConst) * tileSize);
                     int placeYpx = (int)((tileY + placeYpxConst) * tileSize);
 
-                    drawCursor(g, TILE_SELECTION_COLOR, placeXpx, placeYpx, selectionStrokeWidth);
+                    drawCursor(g, Color.BLUE, placeXpx, placeYpx, selectionStrokeWidth);
                 }
             }
         }
 
+        // draw cursor / place selection
+        if(showPlaceCursor){
+            final int tileX = placeSelectedX - placeXOffset;
+            final int tileY = tileYBase - placeSelectedY;
+
+            if(tileX >= tileXMin && tileX <= tileXMax && tileY >= tileYMin && tileY <= tileYMax){
+                int placeXpx = (int)((tileX + placeXpxConst) * tileSize);
+                int placeYpx = (int)((tileY + placeYpxConst) * tileSize);
+
+                drawCursor(g, TILE_SELECTION_COLOR, placeXpx, placeYpx, selectionStrokeWidth);
+            }
+        }
+
         // mask out tile positions on graphicPath
         ((Graphics2D) graphicPath).setBackground(new Color(0,0,0,0));
         int clearTileSize = tileSize - 2 * tileBorderWidthScaled;
@@ -0,0 +1,36 @@
+package mudmap2.frontend.GUIElement.WorldPanel;
+
+import java.awt.Component;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.JOptionPane;
+
+import mudmap2.backend.Path;
+
+/**
+ * asks for the weight of a path, if called
+ */
+public class PathWeightActionListener implements ActionListener {
+
+    final Component parent;
+    final Path path;
+
+    public PathWeightActionListener(final Component parent, final Path path) {
+        this.parent = parent;
+        this.path = path;
+    }
+
+    @Override
+    public void actionPerformed(final ActionEvent e) {
+        final String input = JOptionPane.showInputDialog(parent,
+                "Path weight (cost of using this path, default: 1)", path.getWeight());
+        if (input != null) {
+            try {
+                path.setWeight(Double.parseDouble(input.trim()));
+            } catch (final IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(parent, "Invalid weight: " + input, "Path weight", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+}
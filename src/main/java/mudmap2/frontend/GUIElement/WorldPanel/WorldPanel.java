@@ -32,6 +32,8 @@ import mudmap2.backend.Layer;
 import mudmap2.backend.Place;
 import mudmap2.backend.World;
 import mudmap2.backend.WorldChangeListener;
+import mudmap2.backend.WorldChangeEvent;
+import mudmap2.backend.WorldChangeSet;
 import mudmap2.backend.WorldCoordinate;
 
 /**
@@ -542,13 +544,8 @@ public class WorldPanel extends JPanel implements WorldChangeListener {
 
             final Layer layer = getWorld().getLayer(placeGroupBoxEnd.getLayer());
 
-            for (int x = x_min; x <= x_max; ++x) {
-                for (int y = y_min; y <= y_max; ++y) {
-                    final Place pl = layer.get(x, y);
-                    if (pl != null) {
-                        placeGroup.add(pl);
-                    }
-                }
+            if (layer != null) {
+                placeGroup.addAll(layer.getPlaces(x_min, y_min, x_max, y_max));
             }
         }
         placeGroupBoxResetSelection();
@@ -765,10 +762,15 @@ public class WorldPanel extends JPanel implements WorldChangeListener {
 
     @Override
     public void worldChanged(final Object source) {
+        worldChanged(WorldChangeEvent.fromSource(source));
+    }
+
+    @Override
+    public void worldChanged(final WorldChangeEvent event) {
         Layer layer = world.getLayer(getPosition().getLayer());
         
-        if(source instanceof Place && (layer == null || layer.isEmpty())){ // if place got added and current layer is empty or doesn't exist
-            pushPosition(((Place) source).getCoordinate());
+        if(event.getType() == WorldChangeEvent.Type.PLACE_ADDED && (layer == null || layer.isEmpty())){ // if place got added and current layer is empty or doesn't exist
+            pushPosition(((Place) event.getSource()).getCoordinate());
         } else if(layer == null) { // if layer got removed
             gotoHome();
         }
@@ -776,6 +778,18 @@ public class WorldPanel extends JPanel implements WorldChangeListener {
         repaint();
     }
 
+    @Override
+    public void worldChangedBatch(final WorldChangeSet changes) {
+        // handle the first added place like a single change, repaint once
+        for(final WorldChangeEvent event: changes.getEvents()){
+            if(event.getType() == WorldChangeEvent.Type.PLACE_ADDED){
+                worldChanged(event);
+                return;
+            }
+        }
+        worldChanged((Object) null);
+    }
+
     public WorldCoordinate getPlaceGroupBoxStart() {
         return placeGroupBoxStart;
     }
@@ -74,6 +74,7 @@ import mudmap2.frontend.dialog.QuickHelpDialog;
 import mudmap2.frontend.dialog.SaveMapDialog;
 import mudmap2.frontend.dialog.SaveWorldDialog;
 import mudmap2.frontend.dialog.UpdateDialog;
+import mudmap2.frontend.dialog.WorldStatisticsDialog;
 import mudmap2.frontend.dialog.pathColor.PathColorListDialog;
 import mudmap2.frontend.dialog.placeGroup.PlaceGroupListDialog;
 import mudmap2.frontend.dialog.informationColor.InformationColorListDialog;
@@ -108,6 +109,7 @@ public final class Mainwindow extends JFrame implements KeyEventDispatcher, Acti
     JMenuItem menuWorldPathColors;
     JMenuItem menuWorldPlaceGroups;
     JMenuItem menuWorldRiskLevels;
+    JMenuItem menuWorldStatistics;
 
     JMenuItem menuWorldSetHomePosition;
     JMenuItem menuWorldGotoHomePosition;
@@ -192,6 +194,7 @@ public final class Mainwindow extends JFrame implements KeyEventDispatcher, Acti
         menuWorldPathColors = MenuHelper.addMenuItem(menuWorld, "Path Colors", "path_colors", this);
         menuWorldPlaceGroups = MenuHelper.addMenuItem(menuWorld, "Place Groups", "place_group_dialog", this);
         menuWorldRiskLevels = MenuHelper.addMenuItem(menuWorld, "Info Ring Colors", "risk_level_dialog", this);
+        menuWorldStatistics = MenuHelper.addMenuItem(menuWorld, "Statistics", "statistics_dialog", this);
         menuWorld.addSeparator();
         menuWorldSetHomePosition = MenuHelper.addMenuItem(menuWorld, "Set Home Position", "set_home", this);
         menuWorldGotoHomePosition = MenuHelper.addMenuItem(menuWorld, "Go to Home Position", "goto_home", this);
@@ -331,6 +334,7 @@ public final class Mainwindow extends JFrame implements KeyEventDispatcher, Acti
         menuWorldSetHomePosition.setEnabled(enabled);
         menuWorldPlaceGroups.setEnabled(enabled);
         menuWorldRiskLevels.setEnabled(enabled);
+        menuWorldStatistics.setEnabled(enabled);
         //menuWorldShowCursor.setEnabled(enabled);
         //menuWorldShowGrid.setEnabled(enabled);
         /* TODO: deactivated for toggle buttons since they did not accept
@@ -418,6 +422,11 @@ public final class Mainwindow extends JFrame implements KeyEventDispatcher, Acti
                 new InformationColorListDialog(Mainwindow.this, wt.getWorld()).setVisible(true);
             }
             break;
+        case "statistics_dialog":
+            if (wt != null) {
+                new WorldStatisticsDialog(Mainwindow.this, wt.getWorld()).setVisible(true);
+            }
+            break;
         case "set_home": // set home position
             if (wt != null) {
                 wt.getWorldPanel().setHome();
@@ -32,12 +32,14 @@ import java.util.logging.Logger;
 import javax.swing.ButtonGroup;
 import javax.swing.ButtonModel;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JRadioButton;
 import javax.swing.JSeparator;
 import javax.swing.JTextField;
 import mudmap2.backend.World;
+import mudmap2.backend.sssp.PathFinder;
 import mudmap2.frontend.GUIElement.ColorChooserButton;
 
 /**
@@ -59,6 +61,11 @@ public class EditWorldDialog extends ActionDialog {
     ButtonGroup buttongroup_place_id;
     JRadioButton radiobutton_place_id_none, radiobutton_place_id_unique, radiobutton_place_id_all;
 
+    ButtonGroup buttongroup_spatial_index;
+    JRadioButton radiobutton_spatial_index_quadtree, radiobutton_spatial_index_hash;
+
+    JCheckBox checkbox_landmarks;
+
     public EditWorldDialog(JFrame parent, World world) {
         super(parent, "Edit world - " + world.getName(), true);
         this.world = world;
@@ -121,6 +128,28 @@ public class EditWorldDialog extends ActionDialog {
                 break;
         }
 
+        constraints.gridy = constraints_l.gridy = ++constraints_r.gridy;
+        add(new JSeparator(), constraints);
+
+        buttongroup_spatial_index = new ButtonGroup();
+        radiobutton_spatial_index_quadtree = new JRadioButton("Store places in quadtrees (dense maps)");
+        radiobutton_spatial_index_hash = new JRadioButton("Store places in hash tables (large, sparse maps)");
+        buttongroup_spatial_index.add(radiobutton_spatial_index_quadtree);
+        buttongroup_spatial_index.add(radiobutton_spatial_index_hash);
+        constraints_l.gridy = ++constraints_r.gridy;
+        add(radiobutton_spatial_index_quadtree, constraints_l);
+        constraints_l.gridy = ++constraints_r.gridy;
+        add(radiobutton_spatial_index_hash, constraints_l);
+        if(world.getSpatialIndexType() == World.SpatialIndexType.HASH){
+            buttongroup_spatial_index.setSelected(radiobutton_spatial_index_hash.getModel(), true);
+        } else {
+            buttongroup_spatial_index.setSelected(radiobutton_spatial_index_quadtree.getModel(), true);
+        }
+
+        constraints_l.gridy = ++constraints_r.gridy;
+        add(checkbox_landmarks = new JCheckBox("Precompute landmarks for faster routing (large maps)"), constraints_l);
+        checkbox_landmarks.setSelected(world.getLandmarkCount() > 0);
+
         constraints_l.insets = constraints_r.insets = new Insets(0, 2, 0, 2);
         constraints_l.gridy = ++constraints_r.gridy;
 
@@ -171,6 +200,12 @@ public class EditWorldDialog extends ActionDialog {
         else if(selection == radiobutton_place_id_all.getModel()) world.setShowPlaceID(World.ShowPlaceID.ALL);
         else world.setShowPlaceID(World.ShowPlaceID.UNIQUE);
 
+        if(buttongroup_spatial_index.getSelection() == radiobutton_spatial_index_hash.getModel()) world.setSpatialIndexType(World.SpatialIndexType.HASH);
+        else world.setSpatialIndexType(World.SpatialIndexType.QUADTREE);
+
+        if(!checkbox_landmarks.isSelected()) world.setLandmarkCount(0);
+        else if(world.getLandmarkCount() == 0) world.setLandmarkCount(PathFinder.DEFAULT_LANDMARK_COUNT);
+
         getParent().repaint();
     }
 
@@ -64,6 +64,7 @@ public class PlaceRemoveDialog implements ActionListener {
 
         if(ret == 0){
             places_removed = true;
+            world.beginBatch();
             try {
                 if(place != null){ // removePlace single place
                     place.removeConnections();
@@ -71,13 +72,15 @@ public class PlaceRemoveDialog implements ActionListener {
                 } else if(places != null){ // removePlace multiple places
                     for(Place pl: places){
                         pl.removeConnections();
-                        place.getLayer().remove(place);
+                        pl.getLayer().remove(pl);
                     }
                 }
-                parent.repaint();
             } catch (RuntimeException ex) {
                 Logger.getLogger(PlaceRemoveDialog.class.getName()).log(Level.SEVERE, null, ex);
+            } finally {
+                world.endBatch();
             }
+            parent.repaint();
         }
     }
 
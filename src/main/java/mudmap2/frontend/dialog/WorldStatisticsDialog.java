@@ -0,0 +1,127 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2014  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*  File description
+ *
+ *  The World->Statistics dialog, it shows the size of the world, how many
+ *  unconnected regions it has and how well the route cache works
+ */
+
+package mudmap2.frontend.dialog;
+
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.HashSet;
+import javax.swing.JButton;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import mudmap2.backend.sssp.RouteCache;
+
+/**
+ * The World->Statistics dialog, it shows the number of layers, places, paths
+ * and connected regions of a world and the hit rate of the route cache
+ * @author neop
+ */
+public class WorldStatisticsDialog extends ActionDialog {
+
+    private static final long serialVersionUID = 1L;
+
+    World world;
+
+    /**
+     * Creates a statistics dialog
+     * @param parent
+     * @param world
+     */
+    public WorldStatisticsDialog(JFrame parent, World world){
+        super(parent, "Statistics - " + world.getName(), true);
+        this.world = world;
+    }
+
+    @Override
+    protected void create() {
+        setLayout(new GridBagLayout());
+
+        GridBagConstraints constraints_l = new GridBagConstraints();
+        GridBagConstraints constraints_r = new GridBagConstraints();
+        constraints_l.insets = constraints_r.insets = new Insets(3, 5, 4, 5);
+        constraints_l.anchor = GridBagConstraints.WEST;
+        constraints_r.anchor = GridBagConstraints.EAST;
+        constraints_r.gridx = 1;
+
+        int places = 0;
+        HashSet<Path> paths = new HashSet<>();
+        for(Layer layer: world.getLayers()){
+            places += layer.getPlaceCount();
+            for(Place place: layer.getPlacesView()){
+                paths.addAll(place.getPaths());
+            }
+        }
+        int regions = world.getPathFinder().getConnectedComponents().getComponentCount();
+        RouteCache routeCache = world.getPathFinder().getRouteCache();
+        long searches = routeCache.getHits() + routeCache.getMisses();
+
+        addRow("Layers:", Integer.toString(world.getLayers().size()), constraints_l, constraints_r);
+        addRow("Places:", Integer.toString(places), constraints_l, constraints_r);
+        addRow("Paths:", Integer.toString(paths.size()), constraints_l, constraints_r);
+        addRow("Connected regions:", Integer.toString(regions), constraints_l, constraints_r);
+        addRow("Cached routes:", Integer.toString(routeCache.size()), constraints_l, constraints_r);
+        addRow("Route cache hit rate:", Math.round(routeCache.getHitRate() * 100) + "% of " + searches + " searches", constraints_l, constraints_r);
+
+        ++constraints_l.gridy;
+        constraints_l.gridwidth = 2;
+        constraints_l.anchor = GridBagConstraints.CENTER;
+        if(regions > 1){
+            add(new JLabel(regions + " disconnected regions, there are no routes between them"), constraints_l);
+            ++constraints_l.gridy;
+        }
+
+        JButton button_ok = new JButton("Close");
+        add(button_ok, constraints_l);
+        getRootPane().setDefaultButton(button_ok);
+        button_ok.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                dispose();
+            }
+        });
+
+        pack();
+        setLocation(getParent().getX() + (getParent().getWidth() - getWidth()) / 2, getParent().getY() + (getParent().getHeight() - getHeight()) / 2);
+    }
+
+    /**
+     * Adds a row with a label and a value
+     * @param label label text
+     * @param value value
+     * @param constraints_l constraints of the label column
+     * @param constraints_r constraints of the value column
+     */
+    private void addRow(String label, String value, GridBagConstraints constraints_l, GridBagConstraints constraints_r){
+        ++constraints_l.gridy;
+        constraints_r.gridy = constraints_l.gridy;
+        add(new JLabel(label), constraints_l);
+        add(new JLabel(value), constraints_r);
+    }
+}
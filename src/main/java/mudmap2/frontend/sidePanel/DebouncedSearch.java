@@ -0,0 +1,167 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*  File description
+ *
+ *  This class runs a search some time after the last keystroke on a
+ *  background thread and passes the result of the latest query to the event
+ *  dispatch thread
+ */
+package mudmap2.frontend.sidePanel;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * Debounced search on a background thread. The snapshot of the searched data
+ * is taken on the event dispatch thread when the search starts, the search
+ * runs on the snapshot. A new query cancels the running search, only the
+ * result of the latest query gets published. All methods except search() have
+ * to be called on the event dispatch thread
+ * @author neop
+ * @param <S> snapshot type
+ * @param <R> result type
+ */
+public abstract class DebouncedSearch<S, R> {
+
+    // time after the last keystroke in ms
+    public static final int DELAY = 200;
+
+    // one search thread for all panels
+    static final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Search");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    final Timer timer;
+    String query = null;
+    // incremented on every new query, older results get discarded
+    int generation = 0;
+    Future<?> running = null;
+
+    public DebouncedSearch(){
+        timer = new Timer(DELAY, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                start();
+            }
+        });
+        timer.setRepeats(false);
+    }
+
+    /**
+     * Schedules a search, cancels the previous one
+     * @param query search query
+     */
+    public void schedule(String query){
+        cancel();
+        this.query = query;
+        timer.restart();
+    }
+
+    /**
+     * Cancels the scheduled or running search
+     */
+    public void cancel(){
+        timer.stop();
+        ++generation;
+        if(running != null){
+            running.cancel(true);
+            running = null;
+        }
+    }
+
+    /**
+     * Checks whether a search is scheduled or running
+     * @return true, if a result is pending
+     */
+    public boolean isPending(){
+        return timer.isRunning() || running != null;
+    }
+
+    /**
+     * Starts the search on the background thread
+     */
+    private void start(){
+        final int startGeneration = generation;
+        final String startQuery = query;
+        final S snapshot = createSnapshot();
+
+        running = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                R searchResult = null;
+                try {
+                    searchResult = search(snapshot, startQuery);
+                } catch (RuntimeException ex) {
+                    Logger.getLogger(DebouncedSearch.class.getName()).log(Level.WARNING, "Search failed", ex);
+                }
+                // a cancelled search has an outdated generation anyway
+                if(Thread.currentThread().isInterrupted()) return;
+
+                // clear running even without a result, so that isPending()
+                // doesn't stay true after a failed search
+                final R result = searchResult;
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(generation == startGeneration){
+                            running = null;
+                            if(result != null) publish(startQuery, result);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Creates a snapshot of the data to search, called on the event dispatch
+     * thread
+     * @return snapshot
+     */
+    protected abstract S createSnapshot();
+
+    /**
+     * Runs the search on a background thread, it should return null as soon
+     * as the thread gets interrupted
+     * @param snapshot data to search
+     * @param query search query
+     * @return result or null if cancelled
+     */
+    protected abstract R search(S snapshot, String query);
+
+    /**
+     * Shows the result, called on the event dispatch thread
+     * @param query search query
+     * @param result search result
+     */
+    protected abstract void publish(String query, R result);
+
+}
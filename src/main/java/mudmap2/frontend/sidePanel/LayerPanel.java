@@ -17,36 +17,48 @@
 package mudmap2.frontend.sidePanel;
 
 import java.awt.BorderLayout;
-import java.awt.Dimension;
+import java.awt.Component;
 import java.awt.GridLayout;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 import javax.swing.BorderFactory;
-import javax.swing.BoxLayout;
+import javax.swing.DefaultListModel;
+import javax.swing.JList;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
 import javax.swing.KeyStroke;
+import javax.swing.ListCellRenderer;
+import javax.swing.ListSelectionModel;
+import javax.swing.border.TitledBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import mudmap2.backend.Layer;
 import mudmap2.backend.World;
+import mudmap2.backend.WorldChangeEvent;
 import mudmap2.backend.WorldChangeListener;
+import mudmap2.backend.WorldChangeSet;
+import mudmap2.frontend.GUIElement.LayerPreviewCache;
 import mudmap2.frontend.GUIElement.LayerPreviewPanel;
 import mudmap2.utils.AlphanumComparator;
 import mudmap2.utils.MenuHelper;
 
 /**
- *
+ * List of layer previews. Only the visible rows get painted, the previews are
+ * taken from a LayerPreviewCache
  * @author neop
  */
 public class LayerPanel extends JPanel
@@ -65,15 +77,89 @@ public class LayerPanel extends JPanel
     JTextField textFieldSearch;
 
     HashSet<LayerPanelListener> layerListeners;
-    HashMap<JPanel, Layer> panels;
 
+    // sorted and filtered layers
+    final DefaultListModel<Layer> listModel = new DefaultListModel<>();
+    final JList<Layer> list = new JList<>(listModel);
+    // preview images, kept when the list gets recreated
+    final LayerPreviewCache previewCache = new LayerPreviewCache();
+
+    Layer activeLayer = null;
     Layer popupLayer = null;
+
+    // current search keywords, applied again when the layers change
+    String keyword = "";
+
+    // search as you type, runs on a copy of the layer names
+    final DebouncedSearch<LayerNames, List<Layer>> search = new DebouncedSearch<LayerNames, List<Layer>>() {
+        @Override
+        protected LayerNames createSnapshot() {
+            return new LayerNames(world);
+        }
+
+        @Override
+        protected List<Layer> search(LayerNames snapshot, String query) {
+            return snapshot.filter(query);
+        }
+
+        @Override
+        protected void publish(String query, List<Layer> result) {
+            setLayers(result);
+        }
+    };
+
+    /**
+     * Sorted layers and their lower case names, independent of later changes
+     */
+    private static class LayerNames {
+        final Layer[] layers;
+        final String[] names;
+
+        public LayerNames(World world){
+            ArrayList<Layer> layerList = new ArrayList<>(world.getLayers());
+            Collections.sort(layerList, new AlphanumComparator<>());
+
+            layers = layerList.toArray(new Layer[layerList.size()]);
+            names = new String[layers.length];
+            for(int i = 0; i < layers.length; ++i){
+                names[i] = layers[i].getName().toLowerCase();
+            }
+        }
+
+        /**
+         * Gets the layers whose names contain any keyword
+         * @param keyword search keywords, separated by space or empty
+         * @return sorted layers or null if the thread got interrupted
+         */
+        public List<Layer> filter(String keyword){
+            Boolean hasKeywords = keyword != null && !keyword.isEmpty();
+            String[] keywords;
+            if(keyword != null) keywords = keyword.toLowerCase().split(" ");
+            else keywords = new String[0];
+
+            ArrayList<Layer> ret = new ArrayList<>();
+            for(int i = 0; i < layers.length; ++i){
+                if(Thread.currentThread().isInterrupted()) return null;
+                if(hasKeywords){
+                    Boolean found = false;
+                    for(String key: keywords){
+                        if(names[i].contains(key)){
+                            found = true;
+                            break;
+                        }
+                    }
+                    if(!found) continue;
+                }
+                ret.add(layers[i]);
+            }
+            return ret;
+        }
+    }
     
     public LayerPanel(World world){
         this.world = world;
 
         layerListeners = new HashSet<>();
-        panels = new HashMap<>();
 
         setLayout(new BorderLayout());
 
@@ -86,109 +172,97 @@ public class LayerPanel extends JPanel
         textFieldSearch.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                // search immediately
                 update(((JTextField) e.getSource()).getText());
             }
         });
+        textFieldSearch.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTextChanged();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTextChanged();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {}
+        });
+        textFieldSearch.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusGained(FocusEvent e) {
+                // replace the text when typing
+                textFieldSearch.selectAll();
+            }
+        });
         textFieldSearch.addKeyListener(this);
 
         add(south, BorderLayout.SOUTH);
 
+        // fixed cell size, the list doesn't need to measure every cell
+        list.setCellRenderer(new LayerCellRenderer());
+        list.setFixedCellWidth(PREVIEW_WIDTH_X);
+        list.setFixedCellHeight(PREVIEW_WIDTH_Y);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = list.locationToIndex(e.getPoint());
+                Layer layer = null;
+                if(index >= 0 && list.getCellBounds(index, index).contains(e.getPoint())){
+                    layer = listModel.get(index);
+                }
+
+                if(e.getButton() == MouseEvent.BUTTON1){
+                    if(layer != null && e.getClickCount() == 1){
+                        for(LayerPanelListener listener: layerListeners){
+                            listener.layerSelected(layer);
+                        }
+                    }
+                } else if(e.getButton() == MouseEvent.BUTTON3){
+                    showPopupMenu(e, layer);
+                }
+            }
+        });
+
+        scrollPane = new JScrollPane(list,
+                JScrollPane.VERTICAL_SCROLLBAR_ALWAYS,
+                JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
+        scrollPane.getVerticalScrollBar().setUnitIncrement(10);
+        add(scrollPane, BorderLayout.CENTER);
+
         update();
     }
 
     public void setActiveLayer(Layer l){
-        for(Map.Entry<JPanel, Layer> entry : panels.entrySet()){
-            if(entry.getValue() == l){
-                ((LayerPreviewPanel) entry.getKey().getComponent(0)).setMarked(true);
-            } else {
-                ((LayerPreviewPanel) entry.getKey().getComponent(0)).setMarked(false);
-            }
-        }
+        activeLayer = l;
+        list.repaint();
     }
 
     public final void update(){
         update("");
     }
 
+    /**
+     * Recreates the list of layers
+     * @param keyword search keywords, separated by space
+     */
     public final void update(String keyword){
-        panels.clear();
-        if(scrollPane != null){
-            BorderLayout layout = (BorderLayout) getLayout();
-            remove(layout.getLayoutComponent(BorderLayout.CENTER));
-        }
-
-        // create content panel
-        JPanel contentPanel = new JPanel();
-        contentPanel.setLayout(new BoxLayout(contentPanel, BoxLayout.Y_AXIS));
-
-        // create scrollPane
-        scrollPane = new JScrollPane(contentPanel,
-                JScrollPane.VERTICAL_SCROLLBAR_ALWAYS,
-                JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-        scrollPane.getVerticalScrollBar().setUnitIncrement(10);
-        add(scrollPane, BorderLayout.CENTER);
-
-        ArrayList<Layer> layerList = new ArrayList<>(world.getLayers());
-        Collections.sort(layerList, new AlphanumComparator<>());
-
-        Boolean hasKeywords = keyword != null && !keyword.isEmpty();
-        String[] keywords;
-        if(keyword != null) keywords = keyword.toLowerCase().split(" ");
-        else keywords = new String[0];
-
-        // add layers to content panel
-        for(Layer layer: layerList){
-            if(hasKeywords){
-                Boolean found = false;
-                for(String key: keywords){
-                    if(layer.getName().toLowerCase().contains(key)){
-                        found = true;
-                        break;
-                    };
-                }
-                if(!found) continue;
-            }
-
-            JPanel preview = createLayerPanel(layer);
-            contentPanel.add(preview);
+        search.cancel();
+        this.keyword = keyword;
+        setLayers(new LayerNames(world).filter(keyword));
+    }
 
-            panels.put(preview, layer);
-            preview.addMouseListener(new MouseAdapter() {
-                @Override
-                public void mouseClicked(MouseEvent e) {
-                    if(e.getSource() instanceof JPanel && panels.containsKey((JPanel) e.getSource())){
-                        Layer layer = panels.get((JPanel) e.getSource());
-
-                        if(e.getButton() == MouseEvent.BUTTON1){
-                            if(e.getClickCount() == 1){
-                                for(LayerPanelListener listener: layerListeners){
-                                    listener.layerSelected(layer);
-                                }
-                            }
-                        } else if(e.getButton() == MouseEvent.BUTTON3){
-                            showPopupMenu(e, layer);
-                        }
-                    }
-                }
-            });
-            scrollPane.addMouseListener(new MouseAdapter() {
-                @Override
-                public void mouseClicked(MouseEvent e) {
-                    if(e.getSource() instanceof JPanel && panels.containsKey((JPanel) e.getSource())){
-                        Layer layer = panels.get((JPanel) e.getSource());
-
-                        if(e.getButton() == MouseEvent.BUTTON1){
-                            if(e.getClickCount() == 1){
-                                for(LayerPanelListener listener: layerListeners){
-                                    listener.layerSelected(layer);
-                                }
-                            }
-                        } else if(e.getButton() == MouseEvent.BUTTON3){
-                            showPopupMenu(e, layer);
-                        }
-                    }
-                }
-            });
+    /**
+     * Shows the layers in the list
+     * @param layers sorted layers
+     */
+    private void setLayers(List<Layer> layers){
+        listModel.clear();
+        for(Layer layer: layers){
+            listModel.addElement(layer);
         }
 
         revalidate();
@@ -196,25 +270,52 @@ public class LayerPanel extends JPanel
     }
 
     /**
-     * Creates a layer preview panel
-     *
-     * @param layer
-     * @return layer preview
+     * Starts a search in the background or shows all layers if the search
+     * box is empty
      */
-    private JPanel createLayerPanel(Layer layer){
-        // create panel
-        JPanel panel = new JPanel();
-        panel.setLayout(new BorderLayout());
-        panel.setBorder(BorderFactory.createTitledBorder(layer.getName()));
+    private void searchTextChanged(){
+        String text = textFieldSearch.getText();
+        if(text.isEmpty()){
+            update();
+        } else {
+            keyword = text;
+            search.schedule(text);
+        }
+    }
 
-        panel.setPreferredSize(new Dimension(PREVIEW_WIDTH_X, PREVIEW_WIDTH_Y));
-        panel.setMinimumSize(new Dimension(PREVIEW_WIDTH_X, PREVIEW_WIDTH_Y));
+    /**
+     * Renders a layer preview with the layer name as title
+     */
+    private class LayerCellRenderer extends JPanel implements ListCellRenderer<Layer> {
+        private static final long serialVersionUID = 1L;
 
-        // create layer preview
-        LayerPreviewPanel layerPreviewPanel = new LayerPreviewPanel(layer);
-        panel.add(layerPreviewPanel, BorderLayout.CENTER);
+        final TitledBorder border = BorderFactory.createTitledBorder("");
+        final LayerPreviewPanel preview = new LayerPreviewPanel(null, previewCache);
+
+        public LayerCellRenderer(){
+            setLayout(new BorderLayout());
+            setBorder(border);
+            add(preview, BorderLayout.CENTER);
+        }
 
-        return panel;
+        @Override
+        public Component getListCellRendererComponent(JList<? extends Layer> list, final Layer layer, int index, boolean isSelected, boolean cellHasFocus) {
+            border.setTitle(layer.getName());
+            preview.setLayer(layer);
+            preview.setMarked(layer == activeLayer);
+            // repaint the row of the layer when its new preview is available
+            preview.setUpdateListener(new Runnable() {
+                @Override
+                public void run() {
+                    int row = listModel.indexOf(layer);
+                    if(row >= 0){
+                        Rectangle bounds = LayerPanel.this.list.getCellBounds(row, row);
+                        if(bounds != null) LayerPanel.this.list.repaint(bounds);
+                    }
+                }
+            });
+            return this;
+        }
     }
 
     public void focusSearchBox(){
@@ -281,14 +382,50 @@ public class LayerPanel extends JPanel
         }
     }
 
+    @Override
+    public void worldChangedBatch(WorldChangeSet changes) {
+        for(WorldChangeEvent event: changes.getEvents()){
+            if(event.getType() == WorldChangeEvent.Type.LAYER_REMOVED){
+                previewCache.remove((Layer) event.getSource());
+            }
+        }
+        // recreate panel once, if any layer changed
+        if(changes.contains(WorldChangeEvent.Type.LAYER_ADDED)
+                || changes.contains(WorldChangeEvent.Type.LAYER_REMOVED)
+                || changes.contains(WorldChangeEvent.Type.LAYER_CHANGED)
+                || changes.contains(WorldChangeEvent.Type.WORLD_CHANGED)){
+            update(keyword);
+        } else {
+            list.repaint();
+        }
+    }
+
+    @Override
+    public void worldChanged(WorldChangeEvent event) {
+        if(event.getType() == WorldChangeEvent.Type.LAYER_REMOVED){
+            previewCache.remove((Layer) event.getSource());
+        }
+        switch(event.getType()){
+            case LAYER_ADDED:
+            case LAYER_REMOVED:
+            case LAYER_CHANGED:
+            case WORLD_CHANGED:
+                // only recreate panel on layer change, keep the search
+                update(keyword);
+                break;
+            default:
+                list.repaint();
+                break;
+        }
+    }
+
     @Override
     public void worldChanged(Object source) {
         // only recreate panel on layer change
         if(source == null || source instanceof Layer){
-            update();
+            update(keyword);
         } else {
-            revalidate();
-            repaint();
+            list.repaint();
         }
     }
 
@@ -301,8 +438,8 @@ public class LayerPanel extends JPanel
     @Override
     public void keyReleased(KeyEvent ke) {
         if(ke.getExtendedKeyCode() == KeyEvent.VK_ESCAPE){
+            // shows all layers
             textFieldSearch.setText("");
-            update();
         }
     }
 
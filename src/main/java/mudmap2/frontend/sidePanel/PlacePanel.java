@@ -19,25 +19,26 @@ package mudmap2.frontend.sidePanel;
 import java.awt.BorderLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
 import javax.swing.JTree;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
-import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
-import mudmap2.backend.Layer;
 import mudmap2.backend.Place;
+import mudmap2.backend.PlaceSearchIndex;
 import mudmap2.backend.World;
+import mudmap2.backend.WorldChangeEvent;
 import mudmap2.backend.WorldChangeListener;
-import mudmap2.utils.AlphanumComparator;
+import mudmap2.backend.WorldChangeSet;
 
 /**
  *
@@ -51,25 +52,38 @@ public class PlacePanel extends JPanel
     World world;
 
     JTree tree;
-    DefaultMutableTreeNode root;
+    PlaceTreeModel model;
 
     JTextField textFieldSearch;
 
-    HashMap<Layer, LayerTreeNode> layerNodes;
-    HashMap<Place, PlaceTreeNode> placeNodes;
-
     HashSet<LayerPanelListener> layerListeners;
     HashSet<PlacePanelListener> placeListeners;
 
     Boolean useKeywords;
 
+    // search as you type, runs on a snapshot of the search index
+    final DebouncedSearch<PlaceSearchIndex.Snapshot, List<Place>> search = new DebouncedSearch<PlaceSearchIndex.Snapshot, List<Place>>() {
+        @Override
+        protected PlaceSearchIndex.Snapshot createSnapshot() {
+            return world.getSearchSnapshot();
+        }
+
+        @Override
+        protected List<Place> search(PlaceSearchIndex.Snapshot snapshot, String query) {
+            return snapshot.find(query.split(" "));
+        }
+
+        @Override
+        protected void publish(String query, List<Place> result) {
+            useKeywords = true;
+            model.setSearchResults(query.split(" "), result);
+        }
+    };
+
     public PlacePanel(World world){
         this.world = world;
         setLayout(new BorderLayout());
 
-        layerNodes = new HashMap<>();
-        placeNodes = new HashMap<>();
-
         layerListeners = new HashSet<>();
         placeListeners = new HashSet<>();
 
@@ -80,14 +94,38 @@ public class PlacePanel extends JPanel
         textFieldSearch.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                // search immediately
                 update(((JTextField) e.getSource()).getText());
             }
         });
+        textFieldSearch.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTextChanged();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTextChanged();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {}
+        });
+        textFieldSearch.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusGained(FocusEvent e) {
+                // replace the text when typing
+                textFieldSearch.selectAll();
+            }
+        });
         textFieldSearch.addKeyListener(this);
         add(textFieldSearch, BorderLayout.SOUTH);
 
-        root = new DefaultMutableTreeNode(world.getName());
-        tree = new JTree(root);
+        model = new PlaceTreeModel(world);
+        tree = new JTree(model);
+        tree.setShowsRootHandles(true);
+        tree.setRootVisible(false);
         tree.getSelectionModel().addTreeSelectionListener(this);
 
         JScrollPane scrollPane = new JScrollPane(tree,
@@ -103,54 +141,28 @@ public class PlacePanel extends JPanel
     }
 
     /**
-     * Creates the
-     * @param keyword
+     * Recreates the tree, places of a layer get collected when it's expanded
+     * @param keyword search keywords, separated by space or empty
      */
     public final void update(String keyword){
-        root.removeAllChildren();
-        layerNodes.clear();
-        placeNodes.clear();
-
-        ArrayList<Layer> layerList = new ArrayList<>(world.getLayers());
-        Collections.sort(layerList, new AlphanumComparator<>());
-
-        String[] keywords;
+        search.cancel();
         if(keyword.isEmpty()){
-            keywords = new String[0];
             useKeywords = false;
+            model.setKeywords(null);
         } else {
-            keywords = keyword.split(" ");
             useKeywords = true;
+            model.setKeywords(keyword.split(" "));
         }
+    }
 
-        for(Layer layer: layerList){
-            LayerTreeNode layerNode = new LayerTreeNode(layer);
-            root.add(layerNode);
-            layerNodes.put(layer, layerNode);
-
-            HashSet<Place> places = layer.getPlaces();
-            ArrayList<Place> placeList = new ArrayList<>(places);
-            Collections.sort(placeList, new AlphanumComparator<>());
-
-            for(Place place: placeList){
-                if(!useKeywords || place.matchKeywords(keywords)){
-                    PlaceTreeNode placeNode = new PlaceTreeNode(place);
-                    layerNode.add(placeNode);
-                    placeNodes.put(place, placeNode);
-                }
-            }
-        }
-
-        // remove empty layer nodes
-        if(useKeywords){
-            for(LayerTreeNode layerNode: layerNodes.values()){
-                if(layerNode.getChildCount() == 0) layerNode.removeFromParent();
-            }
-        }
-
-        ((DefaultTreeModel) tree.getModel()).reload();
-        tree.setShowsRootHandles(true);
-        tree.setRootVisible(false);
+    /**
+     * Starts a search in the background or shows all places if the search
+     * box is empty
+     */
+    private void searchTextChanged(){
+        String text = textFieldSearch.getText();
+        if(text.isEmpty()) update();
+        else search.schedule(text);
     }
 
     public void focusSearchBox(){
@@ -193,9 +205,9 @@ public class PlacePanel extends JPanel
     @Override
     public void valueChanged(TreeSelectionEvent e) {
         Object component = e.getPath().getLastPathComponent();
-        if(component instanceof PlaceTreeNode){
+        if(component instanceof Place){
             for(PlacePanelListener listener: placeListeners){
-                listener.placeSelected(((PlaceTreeNode) component).getPlace());
+                listener.placeSelected((Place) component);
             }
         }
     }
@@ -203,48 +215,19 @@ public class PlacePanel extends JPanel
     @Override
     public void worldChanged(Object source) {
         if(!useKeywords){ // don't update when keywords/search is in use
-            update();
+            model.reload();
         }
     }
 
-    private class LayerTreeNode extends DefaultMutableTreeNode {
-        private static final long serialVersionUID = 1L;
-
-        Layer layer;
-
-        public LayerTreeNode(Layer layer){
-            super(layer.getName());
-            this.layer = layer;
-        }
-
-        public Layer getLayer() {
-            return layer;
-        }
-
-        public void update(){
-            setUserObject(layer.getName());
-        }
-
+    @Override
+    public void worldChanged(WorldChangeEvent event) {
+        // the model ignores changes while keywords/search is in use
+        model.apply(event);
     }
 
-    private class PlaceTreeNode extends DefaultMutableTreeNode {
-        private static final long serialVersionUID = 1L;
-
-        Place place;
-
-        public PlaceTreeNode(Place place){
-            super(place.toString());
-            this.place = place;
-        }
-
-        public Place getPlace() {
-            return place;
-        }
-
-        public void update(){
-            setUserObject(place.toString());
-        }
-
+    @Override
+    public void worldChangedBatch(WorldChangeSet changes) {
+        model.apply(changes);
     }
 
     @Override
@@ -258,8 +241,8 @@ public class PlacePanel extends JPanel
         int keyCode = ke.getKeyCode();
 
         if(ke.getExtendedKeyCode() == KeyEvent.VK_ESCAPE){
+            // shows all places
             textFieldSearch.setText("");
-            update();
         }
     }
 
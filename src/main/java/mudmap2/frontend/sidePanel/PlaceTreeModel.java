@@ -0,0 +1,538 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*  File description
+ *
+ *  This class is the tree model of the place panel. It holds the layers of a
+ *  world and their places, sorted by name. The places of a layer are only
+ *  collected when the layer node gets expanded, world changes are applied
+ *  incrementally
+ */
+
+package mudmap2.frontend.sidePanel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import javax.swing.event.EventListenerList;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import mudmap2.backend.WorldChangeEvent;
+import mudmap2.backend.WorldChangeSet;
+import mudmap2.backend.WorldCoordinate;
+import mudmap2.utils.AlphanumComparator;
+
+/**
+ * Lazy tree model: root -> LayerNode -> Place
+ * @author neop
+ */
+public class PlaceTreeModel implements TreeModel {
+
+    final World world;
+    final Object root;
+
+    final AlphanumComparator<Object> comparator = new AlphanumComparator<>();
+    final EventListenerList listeners = new EventListenerList();
+
+    // sorted layer nodes
+    final ArrayList<LayerNode> layerNodes = new ArrayList<>();
+    final HashMap<Layer, LayerNode> layerNodeMap = new HashMap<>();
+
+    // search keywords or null
+    String[] keywords = null;
+    // search results per layer, while keywords are set
+    final HashMap<Layer, ArrayList<Place>> searchResults = new HashMap<>();
+
+    /**
+     * Constructs the model, places get collected on demand
+     * @param world world
+     */
+    public PlaceTreeModel(final World world){
+        this.world = world;
+        root = new Object(){
+            @Override
+            public String toString(){
+                return world.getName();
+            }
+        };
+        createLayerNodes();
+    }
+
+    /**
+     * Tree node of a layer, the places are null until they are requested
+     */
+    public class LayerNode {
+        final Layer layer;
+        ArrayList<Place> places = null;
+
+        LayerNode(Layer layer){
+            this.layer = layer;
+        }
+
+        public Layer getLayer(){
+            return layer;
+        }
+
+        /**
+         * Checks whether the places of this layer have been collected
+         * @return true, if the places are available
+         */
+        public boolean isLoaded(){
+            return places != null;
+        }
+
+        /**
+         * Gets the sorted places, collects them if necessary
+         * @return places of this layer that match the keywords
+         */
+        ArrayList<Place> getPlaces(){
+            if(places == null){
+                if(keywords == null){
+                    places = new ArrayList<>(layer.getPlacesView());
+                } else {
+                    ArrayList<Place> results = searchResults.get(layer);
+                    places = results != null ? results : new ArrayList<Place>();
+                }
+                Collections.sort(places, comparator);
+            }
+            return places;
+        }
+
+        @Override
+        public String toString(){
+            return layer.getName();
+        }
+    }
+
+    /**
+     * Creates the layer nodes, removes all places
+     */
+    private void createLayerNodes(){
+        layerNodes.clear();
+        layerNodeMap.clear();
+
+        for(Layer layer: world.getLayers()){
+            LayerNode node = new LayerNode(layer);
+            // layers without matching places are hidden while searching
+            if(keywords == null || !node.getPlaces().isEmpty()){
+                layerNodes.add(node);
+                layerNodeMap.put(layer, node);
+            }
+        }
+        Collections.sort(layerNodes, comparator);
+    }
+
+    /**
+     * Sorts search results by layer
+     * @param places matching places
+     */
+    private void setSearchResults(Collection<Place> places){
+        searchResults.clear();
+        for(Place place: places){
+            ArrayList<Place> results = searchResults.get(place.getLayer());
+            if(results == null){
+                searchResults.put(place.getLayer(), results = new ArrayList<>());
+            }
+            results.add(place);
+        }
+    }
+
+    /**
+     * Recreates the whole tree, searches again if keywords are set
+     */
+    public void reload(){
+        if(keywords != null) setSearchResults(world.findPlaces(keywords));
+        else searchResults.clear();
+        createLayerNodes();
+        fireTreeStructureChanged(new TreePath(root));
+    }
+
+    /**
+     * Sets search keywords and recreates the tree, only matching places are
+     * shown. Changes of the world won't be applied while searching
+     * @param keywords keywords or null to show all places
+     */
+    public void setKeywords(String[] keywords){
+        this.keywords = (keywords != null && keywords.length > 0) ? keywords : null;
+        reload();
+    }
+
+    /**
+     * Sets search keywords and the places that match them, eg. if the search
+     * ran on a background thread, and recreates the tree
+     * @param keywords keywords or null to show all places
+     * @param places matching places, ignored if keywords is null
+     */
+    public void setSearchResults(String[] keywords, Collection<Place> places){
+        this.keywords = (keywords != null && keywords.length > 0) ? keywords : null;
+        if(this.keywords != null) setSearchResults(places);
+        else searchResults.clear();
+        createLayerNodes();
+        fireTreeStructureChanged(new TreePath(root));
+    }
+
+    /**
+     * Checks whether search keywords are set
+     * @return true, if keywords are set
+     */
+    public boolean hasKeywords(){
+        return keywords != null;
+    }
+
+    /**
+     * Gets the tree path of a place, collects the places of its layer
+     * @param place place
+     * @return path or null, if the place isn't in the tree
+     */
+    public TreePath getPath(Place place){
+        LayerNode node = layerNodeMap.get(place.getLayer());
+        if(node == null || !node.getPlaces().contains(place)){
+            return null;
+        }
+        return new TreePath(new Object[]{root, node, place});
+    }
+
+    // --------- world changes -------------------------------------------------
+
+    /**
+     * Applies a single world change
+     * @param event change event
+     */
+    public void apply(WorldChangeEvent event){
+        if(keywords != null) return;
+
+        switch(event.getType()){
+            case PLACE_ADDED:
+                placeAdded((Place) event.getSource(), getLayerNode((WorldCoordinate) event.getNewValue()));
+                break;
+            case PLACE_REMOVED:
+                placeRemoved((Place) event.getSource(), getLayerNode((WorldCoordinate) event.getOldValue()));
+                break;
+            case PLACE_RENAMED:
+                placeRenamed((Place) event.getSource());
+                break;
+            case LAYER_ADDED:
+            case LAYER_REMOVED:
+            case LAYER_CHANGED:
+            case WORLD_CHANGED:
+                applyLayerChange(event);
+                break;
+            default:
+                // the tree only shows place names
+                break;
+        }
+    }
+
+    /**
+     * Applies the changes of a batch. Changed layers that have been expanded
+     * are collected again once instead of inserting each place
+     * @param changes changes
+     */
+    public void apply(WorldChangeSet changes){
+        if(keywords != null) return;
+
+        HashSet<LayerNode> changed = new HashSet<>();
+        for(WorldChangeEvent event: changes.getEvents()){
+            LayerNode node = null;
+            switch(event.getType()){
+                case PLACE_ADDED:
+                    node = getLayerNode((WorldCoordinate) event.getNewValue());
+                    break;
+                case PLACE_REMOVED:
+                    node = getLayerNode((WorldCoordinate) event.getOldValue());
+                    break;
+                case PLACE_RENAMED:
+                    node = layerNodeMap.get(((Place) event.getSource()).getLayer());
+                    break;
+                default:
+                    applyLayerChange(event);
+                    break;
+            }
+            if(node != null) changed.add(node);
+        }
+
+        for(LayerNode node: changed){
+            int index = layerNodes.indexOf(node);
+            if(index < 0) continue; // layer got removed
+
+            if(node.isLoaded()){
+                node.places = null;
+                fireTreeStructureChanged(new TreePath(new Object[]{root, node}));
+            } else {
+                fireTreeNodesChanged(new TreePath(root), index, node);
+            }
+        }
+    }
+
+    /**
+     * Applies a change of a layer or of the whole world
+     * @param event change event
+     */
+    private void applyLayerChange(WorldChangeEvent event){
+        switch(event.getType()){
+            case LAYER_ADDED:
+                if(!layerNodeMap.containsKey((Layer) event.getSource())){
+                    insertLayerNode(new LayerNode((Layer) event.getSource()));
+                }
+                break;
+            case LAYER_REMOVED:
+                removeLayerNode(layerNodeMap.get((Layer) event.getSource()));
+                break;
+            case LAYER_CHANGED:
+                // name or many places changed, collect places again
+                Layer layer = (Layer) event.getSource();
+                LayerNode node = layerNodeMap.get(layer);
+                if(node == null){
+                    if(world.getLayer(layer.getId()) == layer){
+                        insertLayerNode(new LayerNode(layer));
+                    }
+                } else {
+                    int index = layerNodes.indexOf(node);
+                    layerNodes.remove(index);
+                    int newIndex = getInsertIndex(layerNodes, node);
+                    layerNodes.add(newIndex, node);
+                    node.places = null;
+                    if(index == newIndex){
+                        fireTreeStructureChanged(new TreePath(new Object[]{root, node}));
+                    } else {
+                        fireTreeNodesRemoved(new TreePath(root), index, node);
+                        fireTreeNodesInserted(new TreePath(root), newIndex, node);
+                    }
+                }
+                break;
+            case WORLD_CHANGED:
+                // unknown change
+                if(event.getSource() == null) reload();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Gets the layer node of a coordinate
+     * @param coordinate coordinate or null
+     * @return layer node or null
+     */
+    private LayerNode getLayerNode(WorldCoordinate coordinate){
+        if(coordinate == null) return null;
+        Layer layer = world.getLayer(coordinate.getLayer());
+        return layer == null ? null : layerNodeMap.get(layer);
+    }
+
+    /**
+     * Inserts a layer node at its sorted position
+     * @param node layer node
+     */
+    private void insertLayerNode(LayerNode node){
+        int index = getInsertIndex(layerNodes, node);
+        layerNodes.add(index, node);
+        layerNodeMap.put(node.getLayer(), node);
+        fireTreeNodesInserted(new TreePath(root), index, node);
+    }
+
+    /**
+     * Removes a layer node
+     * @param node layer node or null
+     */
+    private void removeLayerNode(LayerNode node){
+        if(node == null) return;
+        int index = layerNodes.indexOf(node);
+        layerNodes.remove(index);
+        layerNodeMap.remove(node.getLayer());
+        fireTreeNodesRemoved(new TreePath(root), index, node);
+    }
+
+    /**
+     * Inserts a place into the sorted places of its layer node
+     * @param place new place
+     * @param node layer node or null
+     */
+    private void placeAdded(Place place, LayerNode node){
+        if(node == null) return;
+        if(node.isLoaded()){
+            if(indexOf(node.places, place) >= 0) return;
+            int index = getInsertIndex(node.places, place);
+            node.places.add(index, place);
+            fireTreeNodesInserted(new TreePath(new Object[]{root, node}), index, place);
+        } else {
+            // child count and leaf state of the layer node might change
+            fireTreeNodesChanged(new TreePath(root), layerNodes.indexOf(node), node);
+        }
+    }
+
+    /**
+     * Removes a place from its layer node
+     * @param place removed place
+     * @param node layer node or null
+     */
+    private void placeRemoved(Place place, LayerNode node){
+        if(node == null) return;
+        if(node.isLoaded()){
+            int index = indexOf(node.places, place);
+            if(index >= 0){
+                node.places.remove(index);
+                fireTreeNodesRemoved(new TreePath(new Object[]{root, node}), index, place);
+            }
+        } else {
+            fireTreeNodesChanged(new TreePath(root), layerNodes.indexOf(node), node);
+        }
+    }
+
+    /**
+     * Moves a renamed place to its new sorted position
+     * @param place renamed place
+     */
+    private void placeRenamed(Place place){
+        LayerNode node = layerNodeMap.get(place.getLayer());
+        if(node == null || !node.isLoaded()) return;
+
+        int index = indexOf(node.places, place);
+        if(index < 0) return;
+        node.places.remove(index);
+        int newIndex = getInsertIndex(node.places, place);
+        node.places.add(newIndex, place);
+
+        TreePath path = new TreePath(new Object[]{root, node});
+        if(index == newIndex){
+            fireTreeNodesChanged(path, index, place);
+        } else {
+            fireTreeNodesRemoved(path, index, place);
+            fireTreeNodesInserted(path, newIndex, place);
+        }
+    }
+
+    /**
+     * Gets the index of an object in a list by identity
+     * @param list list
+     * @param object object
+     * @return index or -1
+     */
+    private int indexOf(ArrayList<?> list, Object object){
+        for(int i = 0; i < list.size(); ++i){
+            if(list.get(i) == object) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the position of an object in a sorted list
+     * @param list sorted list
+     * @param object object to insert
+     * @return index
+     */
+    private int getInsertIndex(ArrayList<?> list, Object object){
+        int index = Collections.binarySearch(list, object, comparator);
+        return index >= 0 ? index : -(index + 1);
+    }
+
+    // --------- TreeModel -----------------------------------------------------
+
+    @Override
+    public Object getRoot() {
+        return root;
+    }
+
+    @Override
+    public Object getChild(Object parent, int index) {
+        if(parent == root){
+            return layerNodes.get(index);
+        } else if(parent instanceof LayerNode){
+            return ((LayerNode) parent).getPlaces().get(index);
+        }
+        return null;
+    }
+
+    @Override
+    public int getChildCount(Object parent) {
+        if(parent == root){
+            return layerNodes.size();
+        } else if(parent instanceof LayerNode){
+            LayerNode node = (LayerNode) parent;
+            // don't collect the places to count them
+            if(!node.isLoaded() && keywords == null){
+                return node.getLayer().getPlaceCount();
+            }
+            return node.getPlaces().size();
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean isLeaf(Object node) {
+        return node != root && getChildCount(node) == 0;
+    }
+
+    @Override
+    public void valueForPathChanged(TreePath path, Object newValue) {}
+
+    @Override
+    public int getIndexOfChild(Object parent, Object child) {
+        if(parent == root){
+            return layerNodes.indexOf(child);
+        } else if(parent instanceof LayerNode){
+            return indexOf(((LayerNode) parent).getPlaces(), child);
+        }
+        return -1;
+    }
+
+    @Override
+    public void addTreeModelListener(TreeModelListener listener) {
+        listeners.add(TreeModelListener.class, listener);
+    }
+
+    @Override
+    public void removeTreeModelListener(TreeModelListener listener) {
+        listeners.remove(TreeModelListener.class, listener);
+    }
+
+    private void fireTreeNodesInserted(TreePath parent, int index, Object child){
+        TreeModelEvent event = new TreeModelEvent(this, parent, new int[]{index}, new Object[]{child});
+        for(TreeModelListener listener: listeners.getListeners(TreeModelListener.class)){
+            listener.treeNodesInserted(event);
+        }
+    }
+
+    private void fireTreeNodesRemoved(TreePath parent, int index, Object child){
+        TreeModelEvent event = new TreeModelEvent(this, parent, new int[]{index}, new Object[]{child});
+        for(TreeModelListener listener: listeners.getListeners(TreeModelListener.class)){
+            listener.treeNodesRemoved(event);
+        }
+    }
+
+    private void fireTreeNodesChanged(TreePath parent, int index, Object child){
+        TreeModelEvent event = new TreeModelEvent(this, parent, new int[]{index}, new Object[]{child});
+        for(TreeModelListener listener: listeners.getListeners(TreeModelListener.class)){
+            listener.treeNodesChanged(event);
+        }
+    }
+
+    private void fireTreeStructureChanged(TreePath path){
+        TreeModelEvent event = new TreeModelEvent(this, path);
+        for(TreeModelListener listener: listeners.getListeners(TreeModelListener.class)){
+            listener.treeStructureChanged(event);
+        }
+    }
+
+}
@@ -16,9 +16,14 @@
  */
 package mudmap2.backend;
 
+import java.awt.Color;
 import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import mudmap2.backend.prquadtree.Quadtree;
@@ -371,6 +376,61 @@ public class LayerTest {
         }
     }
 
+    /**
+     * Test of the bounding box after removing and moving places, of class Layer.
+     */
+    @Test
+    public void testGetBoundsAfterEdit() {
+        System.out.println("getXMin / getXMax / getYMin / getYMax after edits");
+
+        World world1 = new World();
+        Layer instance = world1.getNewLayer();
+
+        Place place1 = new Place("Place1", 3, 5, instance);
+        Place place2 = new Place("Place2", -6, -8, instance);
+        Place place3 = new Place("Place3", 3, 0, instance);
+        try {
+            instance.put(place1);
+            instance.put(place2);
+            instance.put(place3);
+            assertEquals(-6, instance.getXMin());
+            assertEquals(3, instance.getXMax());
+            assertEquals(-8, instance.getYMin());
+            assertEquals(5, instance.getYMax());
+
+            // two places at x = 3, removing one keeps the max
+            instance.remove(place1);
+            assertEquals(3, instance.getXMax());
+            assertEquals(0, instance.getYMax());
+
+            instance.move(place2, -2, 1);
+            assertEquals(-2, instance.getXMin());
+            assertEquals(0, instance.getYMin());
+            assertEquals(1, instance.getYMax());
+
+            instance.shift(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 10, -10);
+            assertEquals(8, instance.getXMin());
+            assertEquals(13, instance.getXMax());
+            assertEquals(-10, instance.getYMin());
+            assertEquals(-9, instance.getYMax());
+
+            // move to another layer
+            Layer layer2 = world1.getNewLayer();
+            layer2.put(place3);
+            assertEquals(8, instance.getXMin());
+            assertEquals(8, instance.getXMax());
+            assertEquals(13, layer2.getXMin());
+
+            instance.remove(place2);
+            assertEquals(0, instance.getXMin());
+            assertEquals(0, instance.getXMax());
+            assertEquals(0, instance.getYMin());
+            assertEquals(0, instance.getYMax());
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
     /**
      * Test of putPlace method, of class Layer.
      */
@@ -520,6 +580,58 @@ public class LayerTest {
         }
     }
 
+    /**
+     * Test of putAll method, of class Layer.
+     */
+    @Test
+    public void testPutAll() {
+        System.out.println("putAll");
+
+        World world1 = new World();
+        Layer instance = world1.getNewLayer();
+
+        final int[] calls = {0};
+        world1.addChangeListener(new WorldChangeListener() {
+            @Override
+            public void worldChanged(Object source) {
+                ++calls[0];
+            }
+        });
+
+        Place place1 = new Place("Place1", 0, 0, instance);
+        Place place2 = new Place("Place2", -4, 2, instance);
+        Place place3 = new Place("Place3", 7, -1, instance);
+        try {
+            instance.putAll(Arrays.asList(place1, place2, place3));
+            assertEquals(1, calls[0]);
+            assertEquals(place1, instance.get(0, 0));
+            assertEquals(place2, instance.get(-4, 2));
+            assertEquals(place3, instance.get(7, -1));
+            assertEquals(instance, place2.getLayer());
+            assertEquals(-4, instance.getXMin());
+            assertEquals(7, instance.getXMax());
+
+            // non-empty layer
+            Place place4 = new Place("Place4", 1, 1, instance);
+            instance.putAll(Arrays.asList(place4));
+            assertEquals(place4, instance.get(1, 1));
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+
+        // position is occupied
+        Layer instance2 = world1.getNewLayer();
+        Place place5 = new Place("Place5", 3, 3, instance2);
+        Place place6 = new Place("Place6", 3, 3, instance2);
+        try {
+            instance2.putAll(Arrays.asList(place5, place6));
+            fail();
+        } catch (Layer.PlaceNotInsertedException ex) {
+            // expected
+        }
+        assertEquals(place5, instance2.get(3, 3));
+    }
+
     /**
      * Test of getPlace method, of class Layer.
      */
@@ -691,6 +803,126 @@ public class LayerTest {
         }
     }
 
+    /**
+     * Test of move method, of class Layer.
+     */
+    @Test
+    public void testMove() {
+        System.out.println("move");
+
+        World world1 = new World();
+        Layer instance = world1.getNewLayer();
+        Layer other = world1.getNewLayer();
+
+        final int[] calls = {0};
+        world1.addChangeListener(new WorldChangeListener() {
+            @Override
+            public void worldChanged(Object source) {
+                ++calls[0];
+            }
+        });
+
+        try {
+            Place place1 = new Place("Place1", 0, 0, instance);
+            Place place2 = new Place("Place2", 1, 0, instance);
+            instance.put(place1);
+            instance.put(place2);
+
+            calls[0] = 0;
+            instance.move(place1, 4, -2);
+            assertEquals(1, calls[0]);
+            assertFalse(instance.exist(0, 0));
+            assertEquals(place1, instance.get(4, -2));
+            assertEquals(4, place1.getX());
+            assertEquals(-2, place1.getY());
+            assertEquals(4, instance.getXMax());
+            assertEquals(-2, instance.getYMin());
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+
+        // position occupied
+        try {
+            instance.move(instance.get(4, -2), 1, 0);
+            fail();
+        } catch (Layer.PlaceNotInsertedException ex) {
+            // expected
+        }
+        assertNotNull(instance.get(4, -2));
+
+        // place is on another layer
+        try {
+            instance.move(instance.get(4, -2), 5, 5);
+            other.move(instance.get(5, 5), 6, 6);
+            fail();
+        } catch (Layer.PlaceNotInsertedException ex) {
+            // expected
+        }
+        assertNotNull(instance.get(5, 5));
+    }
+
+    /**
+     * Test of shift method, of class Layer.
+     */
+    @Test
+    public void testShift() {
+        System.out.println("shift");
+
+        World world1 = new World();
+        Layer instance = world1.getNewLayer();
+
+        final int[] calls = {0};
+        world1.addChangeListener(new WorldChangeListener() {
+            @Override
+            public void worldChanged(Object source) {
+                ++calls[0];
+            }
+        });
+
+        Place place1 = new Place("Place1", 0, 0, instance);
+        Place place2 = new Place("Place2", 0, 1, instance);
+        Place place3 = new Place("Place3", 3, 2, instance);
+        Place place4 = new Place("Place4", 1, -1, instance);
+        try {
+            instance.put(place1);
+            instance.put(place2);
+            instance.put(place3);
+            instance.put(place4);
+
+            // move everything north of y = 0 by one
+            calls[0] = 0;
+            instance.shift(Integer.MIN_VALUE, 1, Integer.MAX_VALUE, Integer.MAX_VALUE, 0, 1);
+            assertEquals(1, calls[0]);
+            assertEquals(place1, instance.get(0, 0));
+            assertNull(instance.get(0, 1));
+            assertEquals(place2, instance.get(0, 2));
+            assertEquals(place3, instance.get(3, 3));
+            assertEquals(place4, instance.get(1, -1));
+            assertEquals(2, place2.getY());
+            assertEquals(3, instance.getYMax());
+
+            // move the north east quadrant
+            instance.shift(1, 1, Integer.MAX_VALUE, Integer.MAX_VALUE, 1, 1);
+            assertEquals(place3, instance.get(4, 4));
+            assertEquals(4, place3.getX());
+            assertEquals(place2, instance.get(0, 2));
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+
+        // collision with a place outside of the rectangle, nothing moves
+        try {
+            instance.shift(0, 1, 0, Integer.MAX_VALUE, 1, -3);
+            fail();
+        } catch (Layer.PlaceNotInsertedException ex) {
+            // position of the colliding place
+            assertEquals(1, ex.x);
+            assertEquals(-1, ex.y);
+        }
+        assertEquals(place2, instance.get(0, 2));
+        assertEquals(place4, instance.get(1, -1));
+    }
+
     /**
      * Test of exist method, of class Layer.
      */
@@ -810,6 +1042,257 @@ public class LayerTest {
         }
     }
 
+    /**
+     * Test of getPlacesView method, of class Layer.
+     */
+    @Test
+    public void testGetPlacesView() {
+        System.out.println("getPlacesView");
+
+        Layer instance = new Layer(world);
+
+        Collection<Place> result = instance.getPlacesView();
+        assertNotNull(result);
+        assertTrue(result.isEmpty());
+
+        Place el1 = new Place("Place1", 0, 0, instance);
+        Place el2 = new Place("Place2", -1, 2, instance);
+        try {
+            instance.put(el1);
+            instance.put(el2);
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+
+        // the view reflects changes of the layer
+        assertEquals(2, result.size());
+        assertTrue(result.contains(el1));
+        assertTrue(result.contains(el2));
+        HashSet<Place> iterated = new HashSet<>(result);
+        assertEquals(instance.getPlaces(), iterated);
+
+        instance.remove(el1);
+        assertEquals(1, result.size());
+        assertFalse(result.contains(el1));
+
+        // read-only
+        try {
+            result.add(el1);
+            fail();
+        } catch (UnsupportedOperationException ex) {}
+        try {
+            result.iterator().next();
+            result.iterator().remove();
+            fail();
+        } catch (UnsupportedOperationException | IllegalStateException ex) {}
+        assertEquals(1, result.size());
+    }
+
+    /**
+     * Test of forEachPlace method, of class Layer.
+     */
+    @Test
+    public void testForEachPlace() {
+        System.out.println("forEachPlace");
+
+        Layer instance = new Layer(world);
+        Place el1 = new Place("Place1", 0, 0, instance);
+        Place el2 = new Place("Place2", 5, 2, instance);
+        try {
+            instance.put(el1);
+            instance.put(el2);
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+
+        final HashSet<Place> result = new HashSet<>();
+        instance.forEachPlace(new Consumer<Place>() {
+            @Override
+            public void accept(Place place) {
+                result.add(place);
+            }
+        });
+        assertEquals(2, result.size());
+        assertTrue(result.contains(el1));
+        assertTrue(result.contains(el2));
+    }
+
+    /**
+     * Test of getModificationCount method, of class Layer.
+     */
+    @Test
+    public void testGetModificationCount() {
+        System.out.println("getModificationCount");
+
+        World world1 = new World();
+        Layer instance = world1.getNewLayer();
+        Layer other = world1.getNewLayer();
+        long count = instance.getModificationCount();
+        long otherCount = other.getModificationCount();
+
+        Place el1 = new Place("Place1", 0, 0, instance);
+        Place el2 = new Place("Place2", 1, 0, other);
+        try {
+            instance.put(el1);
+            assertTrue(count < instance.getModificationCount());
+            count = instance.getModificationCount();
+
+            el1.setName("Place1b");
+            assertTrue(count < instance.getModificationCount());
+            count = instance.getModificationCount();
+            assertEquals(otherCount, other.getModificationCount());
+
+            // paths change both layers
+            other.put(el2);
+            otherCount = other.getModificationCount();
+            el1.connectPath(new Path(el1, "n", el2, "s"));
+            assertTrue(count < instance.getModificationCount());
+            assertTrue(otherCount < other.getModificationCount());
+            count = instance.getModificationCount();
+            otherCount = other.getModificationCount();
+
+            // moving to another layer changes both
+            other.put(el1, 5, 5);
+            assertTrue(count < instance.getModificationCount());
+            assertTrue(otherCount < other.getModificationCount());
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Test of getPathModificationCount method, of class Layer.
+     */
+    @Test
+    public void testGetPathModificationCount() {
+        System.out.println("getPathModificationCount");
+
+        World world1 = new World();
+        Layer instance = world1.getNewLayer();
+        Place el1 = new Place("Place1", 0, 0, instance);
+        Place el2 = new Place("Place2", 1, 0, instance);
+        try {
+            instance.put(el1);
+            instance.put(el2);
+            long count = instance.getPathModificationCount();
+
+            // names, comments and colors don't change paths
+            el1.setName("Place1b");
+            el1.setComments("comment");
+            world1.setTileCenterColor(Color.yellow);
+            assertEquals(count, instance.getPathModificationCount());
+
+            Path path = new Path(el1, "e", el2, "w");
+            el1.connectPath(path);
+            assertTrue(count < instance.getPathModificationCount());
+            count = instance.getPathModificationCount();
+
+            path.setWeight(2.0);
+            assertTrue(count < instance.getPathModificationCount());
+            count = instance.getPathModificationCount();
+
+            instance.put(el2, 3, 0);
+            assertTrue(count < instance.getPathModificationCount());
+            count = instance.getPathModificationCount();
+
+            el1.connectChild(el2);
+            assertTrue(count < instance.getPathModificationCount());
+            count = instance.getPathModificationCount();
+
+            instance.shift(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 0, 1);
+            assertTrue(count < instance.getPathModificationCount());
+            count = instance.getPathModificationCount();
+
+            instance.remove(el2);
+            assertTrue(count < instance.getPathModificationCount());
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Test of getPlaceCount method, of class Layer.
+     */
+    @Test
+    public void testGetPlaceCount() {
+        System.out.println("getPlaceCount");
+
+        World world1 = new World();
+        Layer instance = world1.getNewLayer();
+        assertEquals(0, instance.getPlaceCount());
+
+        Place el1 = new Place("Place1", 0, 0, instance);
+        Place el2 = new Place("Place2", 1, 0, instance);
+        Place el3 = new Place("Place3", 2, 0, instance);
+        try {
+            instance.put(el1);
+            assertEquals(1, instance.getPlaceCount());
+            instance.putAll(Arrays.asList(el2, el3));
+            assertEquals(3, instance.getPlaceCount());
+
+            // occupied position
+            try {
+                instance.put(new Place("Place4", 0, 0, instance));
+                fail();
+            } catch (Layer.PlaceNotInsertedException ex) {}
+            assertEquals(3, instance.getPlaceCount());
+
+            instance.move(el1, 4, 4);
+            assertEquals(3, instance.getPlaceCount());
+
+            instance.remove(el2);
+            instance.remove(el2);
+            assertEquals(2, instance.getPlaceCount());
+
+            // move to another layer
+            Layer layer2 = world1.getNewLayer();
+            layer2.put(el3);
+            assertEquals(1, instance.getPlaceCount());
+            assertEquals(1, layer2.getPlaceCount());
+
+            // rebuilding the index keeps the count
+            world1.setSpatialIndexType(World.SpatialIndexType.HASH);
+            assertEquals(1, instance.getPlaceCount());
+            assertEquals(instance.getPlaces().size(), instance.getPlaceCount());
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Test of getPlaces method with a rectangle, of class Layer.
+     */
+    @Test
+    public void testGetPlaces_Rectangle() {
+        System.out.println("getPlaces");
+
+        Layer instance = new Layer(world);
+
+        List<Place> result = instance.getPlaces(-5, -5, 5, 5);
+        assertNotNull(result);
+        assertTrue(result.isEmpty());
+
+        Place el1 = new Place("Place1", 0, 0, instance);
+        Place el2 = new Place("Place2", -5, 5, instance);
+        Place el3 = new Place("Place3", 6, 0, instance);
+        try {
+            instance.put(el1);
+            instance.put(el2);
+            instance.put(el3);
+
+            result = instance.getPlaces(-5, -5, 5, 5);
+            assertEquals(2, result.size());
+            assertTrue(result.contains(el1));
+            assertTrue(result.contains(el2));
+
+            result = instance.getPlaces(1, -1, 6, 1);
+            assertEquals(1, result.size());
+            assertTrue(result.contains(el3));
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
     /**
      * Test of toString method, of class Layer.
      */
@@ -854,6 +1337,21 @@ public class LayerTest {
             instance.remove(place3);
             instance.remove(place2);
             assertTrue(instance.isPlaceNameUnique("PlaceName"));
+
+            // renaming updates both names
+            instance.put(place2);
+            assertFalse(instance.isPlaceNameUnique("PlaceName"));
+            place2.setName("OtherName");
+            assertTrue(instance.isPlaceNameUnique("PlaceName"));
+            assertTrue(instance.isPlaceNameUnique("OtherName"));
+            place1.setName("OtherName");
+            assertFalse(instance.isPlaceNameUnique("OtherName"));
+
+            // renaming a place that isn't on the layer
+            place3.setName("OtherName");
+            assertFalse(instance.isPlaceNameUnique("OtherName"));
+            place1.setName("PlaceName");
+            assertTrue(instance.isPlaceNameUnique("OtherName"));
         } catch (Layer.PlaceNotInsertedException | RuntimeException ex) {
             Logger.getLogger(LayerTest.class.getName()).log(Level.SEVERE, null, ex);
         }
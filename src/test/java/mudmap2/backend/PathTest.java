@@ -131,6 +131,49 @@ public class PathTest {
         } catch(Exception ex){}
     }
 
+    /**
+     * Test of isPassableFrom method, of class Path.
+     */
+    @Test
+    public void testIsPassableFrom() {
+        System.out.println("isPassableFrom");
+
+        Path instance = new Path(places[0], "n", places[1], "s");
+        assertTrue(instance.isPassableFrom(places[0]));
+        assertTrue(instance.isPassableFrom(places[1]));
+
+        instance = new Path(places[0], "-", places[1], "s");
+        assertFalse(instance.isPassableFrom(places[0]));
+        assertTrue(instance.isPassableFrom(places[1]));
+        try {
+            instance.isPassableFrom(places[2]);
+            fail();
+        } catch(Exception ex){}
+    }
+
+    /**
+     * Test of setWeight method, of class Path.
+     */
+    @Test
+    public void testSetWeight() {
+        System.out.println("setWeight");
+
+        Path instance = new Path(places[0], "n", places[1], "s");
+        assertEquals(Path.DEFAULT_WEIGHT, instance.getWeight(), 0.0);
+        instance.setWeight(3.5);
+        assertEquals(3.5, instance.getWeight(), 0.0);
+        instance.setWeight(0);
+        assertEquals(0.0, instance.getWeight(), 0.0);
+
+        for(double weight: new double[]{-1, Double.NaN, Double.POSITIVE_INFINITY}){
+            try {
+                instance.setWeight(weight);
+                fail();
+            } catch(IllegalArgumentException ex){}
+        }
+        assertEquals(0.0, instance.getWeight(), 0.0);
+    }
+
     /**
      * Test of removePlace method, of class Path.
      */
@@ -0,0 +1,278 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class PlaceSearchIndexTest {
+
+    public PlaceSearchIndexTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of find method, of class PlaceSearchIndex.
+     */
+    @Test
+    public void testFind() {
+        System.out.println("find");
+
+        World world = new World();
+        Layer layer = world.getNewLayer();
+        Place place1 = new Place("Town Square", 0, 0, layer);
+        place1.setComments("A fountain in the middle");
+        Place place2 = new Place("Dark Forest", 1, 0, layer);
+        place2.setFlag("shop", true);
+        Place place3 = new Place("Forest path", 2, 0, layer);
+
+        PlaceSearchIndex instance = new PlaceSearchIndex();
+        instance.update(place1);
+        instance.update(place2);
+        instance.update(place3);
+        assertEquals(3, instance.size());
+
+        List<Place> result = instance.find(new String[]{"forest"});
+        assertEquals(2, result.size());
+        assertTrue(result.contains(place2));
+        assertTrue(result.contains(place3));
+
+        // all keywords have to match, case insensitive
+        result = instance.find(new String[]{"FOR", "dark"});
+        assertEquals(1, result.size());
+        assertEquals(place2, result.get(0));
+
+        // comments, flags, short keywords
+        assertEquals(place1, instance.find(new String[]{"fountain"}).get(0));
+        assertEquals(place2, instance.find(new String[]{"shop"}).get(0));
+        assertEquals(3, instance.find(new String[]{"a"}).size());
+        assertTrue(instance.find(new String[]{"lake"}).isEmpty());
+        assertTrue(instance.find(new String[]{""}).isEmpty());
+
+        // changes
+        place3.setName("Lake");
+        instance.update(place3);
+        assertEquals(1, instance.find(new String[]{"forest"}).size());
+        assertEquals(place3, instance.find(new String[]{"lake"}).get(0));
+
+        instance.remove(place2);
+        assertTrue(instance.find(new String[]{"forest"}).isEmpty());
+        assertFalse(instance.contains(place2));
+        assertEquals(2, instance.size());
+    }
+
+    /**
+     * Test of findFuzzy method, of class PlaceSearchIndex.
+     */
+    @Test
+    public void testFindFuzzy() {
+        System.out.println("findFuzzy");
+
+        World world = new World();
+        Layer layer = world.getNewLayer();
+        Place place1 = new Place("Blacksmith", 0, 0, layer);
+        Place place2 = new Place("Black market", 1, 0, layer);
+        Place place3 = new Place("Temple", 2, 0, layer);
+
+        PlaceSearchIndex instance = new PlaceSearchIndex();
+        instance.update(place1);
+        instance.update(place2);
+        instance.update(place3);
+
+        // typo
+        List<Place> result = instance.findFuzzy(new String[]{"blacksmiht"});
+        assertFalse(result.isEmpty());
+        assertEquals(place1, result.get(0));
+        assertFalse(result.contains(place3));
+
+        // exact match first
+        result = instance.findFuzzy(new String[]{"black market"});
+        assertEquals(place2, result.get(0));
+
+        assertTrue(instance.findFuzzy(new String[]{"xyzzy"}).isEmpty());
+    }
+
+    /**
+     * Test of getSnapshot method, of class PlaceSearchIndex.
+     */
+    @Test
+    public void testGetSnapshot() {
+        System.out.println("getSnapshot");
+
+        World world = new World();
+        Layer layer = world.getNewLayer();
+        Place place1 = new Place("Dark Forest", 0, 0, layer);
+        Place place2 = new Place("Forest path", 1, 0, layer);
+
+        PlaceSearchIndex instance = new PlaceSearchIndex();
+        instance.update(place1);
+        instance.update(place2);
+
+        PlaceSearchIndex.Snapshot snapshot = instance.getSnapshot();
+        assertEquals(2, snapshot.size());
+        assertSame(snapshot, instance.getSnapshot());
+        List<Place> result = snapshot.find(new String[]{"FOREST"});
+        assertEquals(2, result.size());
+        assertTrue(snapshot.find(new String[]{""}).isEmpty());
+
+        // the snapshot doesn't change with the index
+        place2.setName("Lake");
+        instance.update(place2);
+        instance.remove(place1);
+        assertEquals(2, snapshot.find(new String[]{"forest"}).size());
+        assertTrue(snapshot.find(new String[]{"lake"}).isEmpty());
+
+        PlaceSearchIndex.Snapshot newSnapshot = instance.getSnapshot();
+        assertNotSame(snapshot, newSnapshot);
+        assertEquals(1, newSnapshot.size());
+        assertEquals(place2, newSnapshot.find(new String[]{"lake"}).get(0));
+
+        // cancelled search
+        Thread.currentThread().interrupt();
+        assertNull(newSnapshot.find(new String[]{"lake"}));
+        assertTrue(Thread.interrupted());
+    }
+
+    /**
+     * Compares find with Place.matchKeywords on random places
+     */
+    @Test
+    public void testCompareMatchKeywords() {
+        System.out.println("compare with matchKeywords");
+
+        World world = new World();
+        Layer layer = world.getNewLayer();
+        Random random = new Random(7);
+        String chars = "abcde ";
+        PlaceSearchIndex instance = new PlaceSearchIndex();
+
+        for(int i = 0; i < 200; ++i){
+            StringBuilder name = new StringBuilder();
+            for(int c = random.nextInt(10); c >= 0; --c){
+                name.append(chars.charAt(random.nextInt(chars.length())));
+            }
+            Place place = new Place(name.toString(), i, 0, layer);
+            try {
+                layer.put(place);
+            } catch (Layer.PlaceNotInsertedException ex) {
+                fail(ex.getMessage());
+            }
+            instance.update(place);
+        }
+
+        for(int i = 0; i < 100; ++i){
+            // one keyword with up to four characters, one with a single one
+            StringBuilder keyword = new StringBuilder();
+            for(int c = random.nextInt(4); c >= 0; --c){
+                keyword.append(chars.charAt(random.nextInt(5)));
+            }
+            String[] keywords = new String[]{keyword.toString(), String.valueOf(chars.charAt(random.nextInt(5)))};
+            List<Place> result = instance.find(keywords);
+            int count = 0;
+            for(Place place: layer.getPlacesView()){
+                if(place.matchKeywords(keywords)){
+                    ++count;
+                    assertTrue(result.contains(place));
+                }
+            }
+            assertEquals(count, result.size());
+        }
+    }
+
+    /**
+     * Old snapshots have to keep their results while the index changes,
+     * new ones have to match the index, of class PlaceSearchIndex.
+     */
+    @Test
+    public void testGetSnapshotRandom() {
+        System.out.println("getSnapshot random");
+
+        World world = new World();
+        Layer layer = world.getNewLayer();
+        Random random = new Random(11);
+        String chars = "abcd";
+        PlaceSearchIndex instance = new PlaceSearchIndex();
+        ArrayList<Place> places = new ArrayList<>();
+        String[][] keywords = {{"abc"}, {"bad"}, {"cab", "a"}, {"d"}};
+
+        ArrayList<PlaceSearchIndex.Snapshot> snapshots = new ArrayList<>();
+        ArrayList<List<List<Place>>> expected = new ArrayList<>();
+        for(int step = 0; step < 600; ++step){
+            int action = random.nextInt(10);
+            if(action < 5 || places.isEmpty()){
+                StringBuilder name = new StringBuilder();
+                for(int c = random.nextInt(8); c >= 0; --c){
+                    name.append(chars.charAt(random.nextInt(chars.length())));
+                }
+                Place place = new Place(name.toString(), step, 0, layer);
+                places.add(place);
+                instance.update(place);
+            } else if(action < 7){
+                instance.remove(places.remove(random.nextInt(places.size())));
+            } else if(action < 9){
+                Place place = places.get(random.nextInt(places.size()));
+                place.setName(place.getName() + chars.charAt(random.nextInt(chars.length())));
+                instance.update(place);
+            } else {
+                PlaceSearchIndex.Snapshot snapshot = instance.getSnapshot();
+                assertEquals(places.size(), snapshot.size());
+                ArrayList<List<Place>> results = new ArrayList<>();
+                for(String[] keyword: keywords){
+                    List<Place> result = snapshot.find(keyword);
+                    assertEquals(new HashSet<>(instance.find(keyword)), new HashSet<>(result));
+                    results.add(result);
+                }
+                snapshots.add(snapshot);
+                expected.add(results);
+            }
+        }
+
+        for(int i = 0; i < snapshots.size(); ++i){
+            for(int k = 0; k < keywords.length; ++k){
+                assertEquals(new HashSet<>(expected.get(i).get(k)), new HashSet<>(snapshots.get(i).find(keywords[k])));
+            }
+        }
+    }
+
+}
@@ -925,49 +925,4 @@ public class PlaceTest {
         assertEquals(instance.getComments(), result.getComments());
         assertEquals(instance.getFlags().entrySet().toString(), result.getFlags().entrySet().toString());
     }
-
-    /**
-     * Test of breadthSearchReset method, of class Place.
-     */
-    @Test
-    public void testBreadthSearchReset() {
-        System.out.println("breadthSearchReset");
-
-        Place instance = new Place("MyPlace", 1, 2, layer);
-        Place place1 = new Place("MyPlace", 1, 3, layer);
-        Place place2 = new Place("MyPlace", 1, 4, layer);
-
-        instance.connectPath(new Path(instance, "n", place1, "s"));
-        place1.connectPath(new Path(place1, "n", place2, "s"));
-
-        world.breadthSearch(instance, place2);
-
-        assertTrue(instance.getBreadthSearchData().marked);
-
-        instance.breadthSearchReset();
-        assertFalse(instance.getBreadthSearchData().marked);
-    }
-
-    /**
-     * Test of getBreadthSearchData method, of class Place.
-     */
-    @Test
-    public void testGetBreadthSearchData() {
-        System.out.println("getBreadthSearchData");
-
-        Place instance = new Place("MyPlace", 1, 2, layer);
-        Place place1 = new Place("MyPlace", 1, 3, layer);
-        Place place2 = new Place("MyPlace", 1, 4, layer);
-
-        instance.connectPath(new Path(instance, "n", place1, "s"));
-        place1.connectPath(new Path(place1, "n", place2, "s"));
-
-        assertFalse(instance.getBreadthSearchData().marked);
-
-        world.breadthSearch(instance, place2);
-
-        assertTrue(instance.getBreadthSearchData().marked);
-        assertNull(instance.getBreadthSearchData().predecessor);
-        assertNotNull(place2.getBreadthSearchData().predecessor);
-    }
 }
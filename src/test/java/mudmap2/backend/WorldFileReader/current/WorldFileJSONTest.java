@@ -96,6 +96,7 @@ public class WorldFileJSONTest {
 
         Path path0 = new Path(pl0, "n", pl1, "s");
         Path path1 = new Path(pl1, "e", pl0, "w");
+        path1.setWeight(2.5);
         pl0.connectPath(path0);
         pl1.connectPath(path1);
 
@@ -120,6 +121,8 @@ public class WorldFileJSONTest {
         String comment0 = "This is a test comment";
         pl0.setComments(comment0);
 
+        world.setLandmarkCount(4);
+
         String wfjFile = folder.getRoot() + "/wfj";
         WorldFileJSON instanceWriter = new WorldFileJSON(wfjFile);
         instanceWriter.writeFile(world);
@@ -129,6 +132,7 @@ public class WorldFileJSONTest {
 
         assertEquals(worldName, result.getName());
         assertEquals(2, result.getLayers().size());
+        assertEquals(4, result.getLandmarkCount());
 
         int placeNum = 0;
         Layer layer1new = null;
@@ -189,6 +193,8 @@ public class WorldFileJSONTest {
         assertEquals(1, pl1re.size());
         assertEquals(pl0rn.toArray(new Path[1])[0], pl1rs.toArray(new Path[1])[0]);
         assertEquals(pl0rw.toArray(new Path[1])[0], pl1re.toArray(new Path[1])[0]);
+        assertEquals(Path.DEFAULT_WEIGHT, pl0rn.toArray(new Path[1])[0].getWeight(), 0.0);
+        assertEquals(2.5, pl0rw.toArray(new Path[1])[0].getWeight(), 0.0);
         //assertEquals(pl0r.getPathTo("n"), pl1r.getPathTo("s"));
         //assertEquals(pl0r.getPathTo("w"), pl1r.getPathTo("e"));
 
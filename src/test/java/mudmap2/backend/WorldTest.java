@@ -18,10 +18,11 @@ package mudmap2.backend;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import mudmap2.backend.WorldFileReader.current.WorldFileDefault;
-import mudmap2.backend.sssp.BreadthSearch;
 import org.json.JSONObject;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -623,6 +624,360 @@ public class WorldTest {
         assertEquals(expResult, result);
     }
 
+    /**
+     * Test of setSpatialIndexType method, of class World.
+     */
+    @Test
+    public void testSetSpatialIndexType() {
+        System.out.println("setSpatialIndexType");
+
+        World instance = new World("MyWorld");
+        assertEquals(World.SpatialIndexType.QUADTREE, instance.getSpatialIndexType());
+
+        Layer layer = instance.getNewLayer();
+        Place place1 = new Place("Place1", 2, 3, layer);
+        Place place2 = new Place("Place2", -5, 1, layer);
+        try {
+            layer.put(place1);
+            layer.put(place2);
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+
+        // existing layers keep their places
+        instance.setSpatialIndexType(World.SpatialIndexType.HASH);
+        assertEquals(World.SpatialIndexType.HASH, instance.getSpatialIndexType());
+        assertEquals(place1, layer.get(2, 3));
+        assertEquals(place2, layer.get(-5, 1));
+        assertEquals(2, layer.getPlaces().size());
+
+        // new layers use the new type
+        Layer layer2 = instance.getNewLayer();
+        Place place3 = new Place("Place3", 0, 0, layer2);
+        try {
+            layer2.put(place3);
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        assertEquals(place3, layer2.get(0, 0));
+
+        instance.setSpatialIndexType(World.SpatialIndexType.QUADTREE);
+        assertEquals(place1, layer.get(2, 3));
+        assertEquals(place3, layer2.get(0, 0));
+    }
+
+    /**
+     * Test of batch method, of class World.
+     */
+    @Test
+    public void testBatch() {
+        System.out.println("batch");
+
+        final World instance = new World("MyWorld");
+        final Layer layer = instance.getNewLayer();
+
+        final int[] calls = {0};
+        final Object[] lastSource = {null};
+        final WorldChangeSet[] lastChanges = {null};
+        instance.addChangeListener(new WorldChangeListener() {
+            @Override
+            public void worldChanged(Object source) {
+                ++calls[0];
+                lastSource[0] = source;
+            }
+
+            @Override
+            public void worldChangedBatch(WorldChangeSet changes) {
+                lastChanges[0] = changes;
+                WorldChangeListener.super.worldChangedBatch(changes);
+            }
+        });
+
+        final Place place1 = new Place("Place1", 0, 0, layer);
+        final Place place2 = new Place("Place2", 1, 0, layer);
+        instance.batch(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    layer.put(place1);
+                    layer.put(place2);
+                    // nested batch
+                    instance.batch(new Runnable() {
+                        @Override
+                        public void run() {
+                            place1.setName("Place1b");
+                        }
+                    });
+                    assertTrue(instance.isBatchRunning());
+                    place2.setName("Place2b");
+                } catch (Layer.PlaceNotInsertedException ex) {
+                    fail(ex.getMessage());
+                }
+                assertEquals(0, calls[0]);
+            }
+        });
+        assertFalse(instance.isBatchRunning());
+        // called once, with null, since more than one object changed
+        assertEquals(1, calls[0]);
+        assertNull(lastSource[0]);
+        assertEquals(2, lastChanges[0].size());
+        assertTrue(lastChanges[0].containsSource(place1));
+        assertTrue(lastChanges[0].containsSource(place2));
+        assertEquals(2, lastChanges[0].getSources(Place.class).size());
+        assertFalse(lastChanges[0].contains(Layer.class));
+
+        // single changed object gets passed to worldChanged()
+        calls[0] = 0;
+        instance.beginBatch();
+        place1.setName("Place1c");
+        place1.setComments("");
+        place1.setRecLevelMin(3);
+        instance.endBatch();
+        assertEquals(1, calls[0]);
+        assertEquals(place1, lastSource[0]);
+
+        // empty batch, listeners don't get called
+        calls[0] = 0;
+        instance.beginBatch();
+        instance.endBatch();
+        assertEquals(0, calls[0]);
+
+        // no batch to end
+        try {
+            instance.endBatch();
+            fail();
+        } catch (IllegalStateException ex) {}
+
+        // exception within a batch ends it
+        try {
+            instance.batch(new Runnable() {
+                @Override
+                public void run() {
+                    place2.setName("Place2c");
+                    throw new RuntimeException();
+                }
+            });
+            fail();
+        } catch (RuntimeException ex) {}
+        assertFalse(instance.isBatchRunning());
+        assertEquals(1, calls[0]);
+    }
+
+    /**
+     * Test of typed change events, of class World.
+     */
+    @Test
+    public void testWorldChangeEvents() {
+        System.out.println("worldChangeEvents");
+
+        final World instance = new World("MyWorld");
+        final ArrayList<WorldChangeEvent> events = new ArrayList<>();
+        instance.addChangeListener(new WorldChangeListener() {
+            @Override
+            public void worldChanged(Object source) {}
+
+            @Override
+            public void worldChanged(WorldChangeEvent event) {
+                events.add(event);
+            }
+        });
+
+        final Layer layer = instance.getNewLayer();
+        assertEquals(WorldChangeEvent.Type.LAYER_ADDED, events.get(0).getType());
+        assertEquals(layer, events.get(0).getSource());
+
+        try {
+            final Place place1 = new Place("Place1", 0, 0, layer);
+            final Place place2 = new Place("Place2", 1, 0, layer);
+
+            events.clear();
+            layer.put(place1);
+            assertEquals(1, events.size());
+            assertEquals(WorldChangeEvent.Type.PLACE_ADDED, events.get(0).getType());
+            assertEquals(place1, events.get(0).getSource());
+            assertEquals(0, ((WorldCoordinate) events.get(0).getNewValue()).compareTo(new WorldCoordinate(layer.getId(), 0, 0)));
+            layer.put(place2);
+
+            events.clear();
+            layer.move(place1, 5, 6);
+            assertEquals(1, events.size());
+            assertEquals(WorldChangeEvent.Type.PLACE_MOVED, events.get(0).getType());
+            assertEquals(0, ((WorldCoordinate) events.get(0).getOldValue()).compareTo(new WorldCoordinate(layer.getId(), 0, 0)));
+            assertEquals(0, ((WorldCoordinate) events.get(0).getNewValue()).compareTo(new WorldCoordinate(layer.getId(), 5, 6)));
+
+            events.clear();
+            place1.setName("Place1b");
+            assertEquals(1, events.size());
+            assertEquals(WorldChangeEvent.Type.PLACE_RENAMED, events.get(0).getType());
+            assertEquals("Place1", events.get(0).getOldValue());
+            assertEquals("Place1b", events.get(0).getNewValue());
+
+            events.clear();
+            place1.setRecLevelMin(4);
+            assertEquals(WorldChangeEvent.Type.PLACE_CHANGED, events.get(0).getType());
+
+            events.clear();
+            Path path = new Path(place1, "n", place2, "s");
+            place1.connectPath(path);
+            assertEquals(1, events.size());
+            assertEquals(WorldChangeEvent.Type.PATH_CONNECTED, events.get(0).getType());
+            assertEquals(path, events.get(0).getSource());
+
+            events.clear();
+            place1.connectChild(place2);
+            assertEquals(WorldChangeEvent.Type.CHILD_CONNECTED, events.get(0).getType());
+            assertEquals(place1, events.get(0).getSource());
+            assertEquals(place2, events.get(0).getNewValue());
+
+            // removing a place's connections is a single batch
+            events.clear();
+            final WorldChangeSet[] batch = {null};
+            instance.addChangeListener(new WorldChangeListener() {
+                @Override
+                public void worldChanged(Object source) {}
+
+                @Override
+                public void worldChangedBatch(WorldChangeSet changes) {
+                    batch[0] = changes;
+                }
+            });
+            place2.removeConnections();
+            assertTrue(events.isEmpty());
+            assertTrue(batch[0].contains(WorldChangeEvent.Type.PATH_REMOVED));
+            assertTrue(batch[0].contains(WorldChangeEvent.Type.CHILD_REMOVED));
+            assertEquals(2, batch[0].getEvents().size());
+
+            events.clear();
+            layer.remove(place2);
+            assertEquals(1, events.size());
+            assertEquals(WorldChangeEvent.Type.PLACE_REMOVED, events.get(0).getType());
+            assertEquals(0, ((WorldCoordinate) events.get(0).getOldValue()).compareTo(new WorldCoordinate(layer.getId(), 1, 0)));
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+
+        // untyped changes get a type derived from the changed object
+        events.clear();
+        instance.setName("MyWorld2");
+        assertEquals(WorldChangeEvent.Type.WORLD_CHANGED, events.get(0).getType());
+        assertEquals(instance, events.get(0).getSource());
+    }
+
+    /**
+     * Test of getPlace method, of class World.
+     */
+    @Test
+    public void testGetPlace() {
+        System.out.println("getPlace");
+
+        World instance = new World("MyWorld");
+        Layer layer = instance.getNewLayer();
+        Layer layer2 = instance.getNewLayer();
+        Place place1 = new Place("Place1", 0, 0, layer);
+        Place place2 = new Place("Place2", 1, 0, layer);
+        assertNull(instance.getPlace(place1.getId()));
+        assertEquals(0, instance.getPlaceCount());
+
+        try {
+            layer.put(place1);
+            assertEquals(place1, instance.getPlace(place1.getId()));
+            assertNull(instance.getPlace(place2.getId()));
+
+            // bulk insert
+            layer2.putAll(Arrays.asList(place2));
+            assertEquals(place2, instance.getPlace(place2.getId()));
+            assertEquals(2, instance.getPlaceCount());
+
+            // move to another layer
+            layer2.put(place1, 5, 5);
+            assertEquals(place1, instance.getPlace(place1.getId()));
+            assertEquals(2, instance.getPlaceCount());
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        layer2.remove(place1);
+        assertNull(instance.getPlace(place1.getId()));
+        assertEquals(1, instance.getPlaceCount());
+
+        instance.deleteLayer(layer2);
+        assertNull(instance.getPlace(place2.getId()));
+        assertEquals(0, instance.getPlaceCount());
+    }
+
+    /**
+     * Test of findPlaces method, of class World.
+     */
+    @Test
+    public void testFindPlaces() {
+        System.out.println("findPlaces");
+
+        World instance = new World("MyWorld");
+        Layer layer = instance.getNewLayer();
+        Place place1 = new Place("Market", 0, 0, layer);
+        Place place2 = new Place("Harbour", 1, 0, layer);
+        try {
+            layer.put(place1);
+            // the index gets created on the first search
+            assertEquals(place1, instance.findPlaces(new String[]{"mark"}).get(0));
+
+            // and updated on changes
+            layer.put(place2);
+            assertEquals(place2, instance.findPlaces(new String[]{"harb"}).get(0));
+            place2.setComments("ships and a market");
+            assertEquals(2, instance.findPlaces(new String[]{"market"}).size());
+            place1.setName("Square");
+            assertEquals(1, instance.findPlaces(new String[]{"market"}).size());
+            layer.remove(place2);
+            assertTrue(instance.findPlaces(new String[]{"market"}).isEmpty());
+            assertEquals(place1, instance.findPlacesFuzzy(new String[]{"squarr"}).get(0));
+
+            // bulk insert and shift
+            Layer layer2 = instance.getNewLayer();
+            Place place3 = new Place("Lighthouse", 0, 0, layer2);
+            layer2.putAll(Arrays.asList(place3));
+            assertEquals(place3, instance.findPlaces(new String[]{"light"}).get(0));
+            layer2.shift(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 1, 1);
+            assertEquals(place3, instance.findPlaces(new String[]{"light"}).get(0));
+            assertEquals(place3, instance.getPlace(place3.getId()));
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Test of findPlacesByName method, of class World.
+     */
+    @Test
+    public void testFindPlacesByName() {
+        System.out.println("findPlacesByName");
+
+        World instance = new World("MyWorld");
+        Layer layer = instance.getNewLayer();
+        Place place1 = new Place("Place", 0, 0, layer);
+        Place place2 = new Place("Place", 1, 0, layer);
+        assertTrue(instance.findPlacesByName("Place").isEmpty());
+
+        try {
+            layer.put(place1);
+            layer.put(place2);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+        List<Place> result = instance.findPlacesByName("Place");
+        assertEquals(2, result.size());
+        assertTrue(result.contains(place1));
+        assertTrue(result.contains(place2));
+
+        place1.setName("Renamed");
+        assertEquals(1, instance.findPlacesByName("Place").size());
+        assertEquals(place1, instance.findPlacesByName("Renamed").get(0));
+
+        layer.remove(place2);
+        assertTrue(instance.findPlacesByName("Place").isEmpty());
+        assertEquals(1, instance.findPlacesByName("Renamed").size());
+    }
+
     /**
      * Test of getPlaceGroups method, of class World.
      */
@@ -835,87 +1190,4 @@ public class WorldTest {
         assertNotSame(orig, instance.getPreferences());
     }
 
-
-    /**
-     * Test of breadthSearch method, of class World.
-     */
-    @Test
-    public void testBreadthSearch() {
-        try {
-            System.out.println("breadthSearch");
-
-            World instance = new World();
-            Layer layer1 = instance.getNewLayer();
-            Layer layer2 = instance.getNewLayer();
-
-            // create places
-            Place place11 = new Place("", 0, 0, layer1);
-            Place place12 = new Place("", 1, 0, layer1);
-            Place place13 = new Place("", 2, 1, layer1);
-            Place place14 = new Place("", 5, 1, layer1);
-            // inaccessible place
-            Place place15 = new Place("", 5, 4, layer1);
-
-            layer1.put(place11);
-            layer1.put(place12);
-            layer1.put(place13);
-            layer1.put(place14);
-            layer1.put(place15);
-
-            // create connections
-            place11.connectPath(new Path(place11, "n", place12, "s"));
-            place12.connectPath(new Path(place12, "e", place13, "w"));
-            place13.connectPath(new Path(place13, "u", place14, "d"));
-            place14.connectPath(new Path(place14, "u", place11, "d"));
-
-            // first test 11 -> 11
-            Place result1 = instance.breadthSearch(place11, place11);
-            assertEquals(place11, result1);
-
-            BreadthSearch.BreadthSearchData breadthSearchData1 = result1.getBreadthSearchData();
-            assertNotNull(breadthSearchData1);
-            assertNull(breadthSearchData1.predecessor);
-
-            // second test 11 -> 12
-            Place result2 = instance.breadthSearch(place11, place12);
-            assertEquals(place12, result2);
-
-            BreadthSearch.BreadthSearchData breadthSearchData2 = result2.getBreadthSearchData();
-            assertNotNull(breadthSearchData2);
-            assertEquals(place11, breadthSearchData2.predecessor);
-            assertNull(breadthSearchData2.predecessor.breadthSearchData.predecessor);
-
-            // second test 11 -> 13
-            Place result3 = instance.breadthSearch(place11, place13);
-            assertEquals(place13, result3);
-
-            BreadthSearch.BreadthSearchData breadthSearchData3 = result3.getBreadthSearchData();
-            assertNotNull(breadthSearchData3);
-
-            assertTrue(place12 == breadthSearchData3.predecessor || place14 == breadthSearchData3.predecessor);
-            breadthSearchData3 = breadthSearchData3.predecessor.getBreadthSearchData();
-            assertNotNull(breadthSearchData3);
-
-            assertEquals(place11, breadthSearchData3.predecessor);
-            breadthSearchData3 = breadthSearchData3.predecessor.getBreadthSearchData();
-            assertNull(breadthSearchData3.predecessor);
-
-            // third test 11 -> 14
-            Place result4 = instance.breadthSearch(place11, place14);
-            assertEquals(place14, result4);
-
-            BreadthSearch.BreadthSearchData breadthSearchData4 = result4.getBreadthSearchData();
-            assertNotNull(breadthSearchData4);
-            assertEquals(place11, breadthSearchData4.predecessor);
-            assertNull(breadthSearchData4.predecessor.breadthSearchData.predecessor);
-
-            // fourth test 11 -> 15
-            Place result5 = instance.breadthSearch(place11, place15);
-            assertNull(result5);
-        } catch (Layer.PlaceNotInsertedException ex) {
-            fail(ex.getMessage());
-        }
-
-    }
-
 }
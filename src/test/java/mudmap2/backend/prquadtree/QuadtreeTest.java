@@ -16,7 +16,10 @@
  */
 package mudmap2.backend.prquadtree;
 
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import mudmap2.backend.spatialindex.SpatialIndexVisitor;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -396,6 +399,77 @@ public class QuadtreeTest {
         //testIsEmpty(); // also tests remove
     }
 
+    /**
+     * Test of remove method by object, of class Quadtree.
+     */
+    @Test
+    public void testRemove_Object() {
+        System.out.println("remove");
+
+        Quadtree<Object> instance = new Quadtree<>();
+        Object object1 = new Object();
+        Object object2 = new Object();
+
+        // removing an object that isn't in the tree does nothing
+        instance.remove(object1);
+        assertTrue(instance.isEmpty());
+
+        try {
+            instance.insert(object1, 2, 3);
+            instance.insert(object2, -2, 3);
+        } catch (Exception ex) {
+            fail();
+        }
+
+        instance.remove(object1);
+        assertFalse(instance.exist(2, 3));
+        assertFalse(instance.contains(object1));
+        assertEquals(object2, instance.get(-2, 3));
+
+        // position can be reused
+        try {
+            instance.insert(object1, 2, 3);
+            assertEquals(object1, instance.get(2, 3));
+        } catch (Exception ex) {
+            fail();
+        }
+
+        instance.remove(-2, 3);
+        assertFalse(instance.contains(object2));
+        instance.remove(object1);
+        assertTrue(instance.isEmpty());
+    }
+
+    /**
+     * Test of contains method, of class Quadtree.
+     */
+    @Test
+    public void testContains() {
+        System.out.println("contains");
+
+        Quadtree<Object> instance = new Quadtree<>();
+        Object object = new Object();
+        assertFalse(instance.contains(object));
+
+        try {
+            instance.insert(object, 5, -1);
+            assertTrue(instance.contains(object));
+            assertFalse(instance.contains(new Object()));
+        } catch (Exception ex) {
+            fail();
+        }
+
+        // the same object can't be inserted twice
+        try {
+            instance.insert(object, 6, -1);
+            fail();
+        } catch (Exception ex) {}
+        assertFalse(instance.exist(6, -1));
+
+        instance.remove(object);
+        assertFalse(instance.contains(object));
+    }
+
     /**
      * Test of move method, of class Quadtree.
      */
@@ -434,6 +508,99 @@ public class QuadtreeTest {
         } catch (Exception ex) {}
     }
 
+    /**
+     * Test of move method by object, of class Quadtree.
+     */
+    @Test
+    public void testMove_Object() {
+        System.out.println("move");
+
+        Quadtree<Object> instance = new Quadtree<>();
+        Object object1 = new Object();
+        Object object2 = new Object();
+
+        // object isn't in the tree
+        try {
+            instance.move(object1, 1, 1);
+            fail();
+        } catch (Exception ex) {}
+
+        try {
+            instance.insert(object1, 0, 0);
+            instance.insert(object2, 1, 0);
+
+            instance.move(object1, -3, 4);
+            assertFalse(instance.exist(0, 0));
+            assertEquals(object1, instance.get(-3, 4));
+            assertTrue(instance.contains(object1));
+
+            // move to the same position
+            instance.move(object1, -3, 4);
+            assertEquals(object1, instance.get(-3, 4));
+        } catch (Exception ex) {
+            fail();
+        }
+
+        // target position is occupied, object stays at its position
+        try {
+            instance.move(object1, 1, 0);
+            fail();
+        } catch (Exception ex) {}
+        assertEquals(object1, instance.get(-3, 4));
+        assertEquals(object2, instance.get(1, 0));
+
+        // target position is out of range, object stays at its position
+        try {
+            instance.move(object1, Integer.MAX_VALUE, 0);
+            fail();
+        } catch (Exception ex) {}
+        assertEquals(object1, instance.get(-3, 4));
+        assertTrue(instance.contains(object1));
+        assertEquals(2, instance.size());
+    }
+
+    /**
+     * Test of shift method, of class Quadtree.
+     */
+    @Test
+    public void testShift() {
+        System.out.println("shift");
+
+        Quadtree<Object> instance = new Quadtree<>();
+        Object object1 = new Object();
+        Object object2 = new Object();
+        Object object3 = new Object();
+        try {
+            instance.insert(object1, 0, 0);
+            instance.insert(object2, 1, 0);
+            instance.insert(object3, 3, 0);
+
+            List<Object> result = instance.shift(0, 0, 1, 0, 1, 0);
+            assertEquals(2, result.size());
+            assertEquals(object1, instance.get(1, 0));
+            assertEquals(object2, instance.get(2, 0));
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+
+        // collision outside of the rectangle, nothing moves
+        try {
+            instance.shift(1, 0, 2, 0, 1, 0);
+            fail();
+        } catch (Exception ex) {}
+        // out of range, nothing moves
+        try {
+            instance.shift(0, 0, 3, 0, Integer.MAX_VALUE - 2, 0);
+            fail();
+        } catch (Exception ex) {}
+
+        assertEquals(object1, instance.get(1, 0));
+        assertEquals(object2, instance.get(2, 0));
+        assertEquals(object3, instance.get(3, 0));
+        assertEquals(3, instance.size());
+        assertEquals(3, instance.values().size());
+    }
+
     /**
      * Test of values method, of class Quadtree.
      */
@@ -468,4 +635,135 @@ public class QuadtreeTest {
         assertTrue(result.contains(object2));
     }
 
+    /**
+     * Test of query method, of class Quadtree.
+     */
+    @Test
+    public void testQuery() {
+        System.out.println("query");
+
+        Quadtree<Object> instance = new Quadtree<>();
+        final HashSet<Object> result = new HashSet<>();
+        SpatialIndexVisitor<Object> visitor = new SpatialIndexVisitor<Object>() {
+            @Override
+            public void visit(Object element, int x, int y) {
+                result.add(element);
+            }
+        };
+
+        // empty tree
+        instance.query(-10, -10, 10, 10, visitor);
+        assertTrue(result.isEmpty());
+
+        Object object1 = new Object();
+        Object object2 = new Object();
+        Object object3 = new Object();
+        Object object4 = new Object();
+        try {
+            instance.insert(object1, 0, 0);
+            instance.insert(object2, 3, -2);
+            instance.insert(object3, -7, 5);
+            instance.insert(object4, 100, 100);
+        } catch (Exception ex) {
+            fail();
+        }
+
+        instance.query(-10, -10, 10, 10, visitor);
+        assertEquals(3, result.size());
+        assertTrue(result.contains(object1));
+        assertTrue(result.contains(object2));
+        assertTrue(result.contains(object3));
+
+        // borders are inclusive
+        result.clear();
+        instance.query(3, -2, 100, 100, visitor);
+        assertEquals(2, result.size());
+        assertTrue(result.contains(object2));
+        assertTrue(result.contains(object4));
+
+        // single point
+        result.clear();
+        instance.query(-7, 5, -7, 5, visitor);
+        assertEquals(1, result.size());
+        assertTrue(result.contains(object3));
+
+        // no elements in range
+        result.clear();
+        instance.query(1, 1, 99, 99, visitor);
+        assertTrue(result.isEmpty());
+
+        // invalid range
+        instance.query(10, 10, -10, -10, visitor);
+        assertTrue(result.isEmpty());
+    }
+
+    /**
+     * Test of insertAll method, of class Quadtree.
+     */
+    @Test
+    public void testInsertAll() {
+        System.out.println("insertAll");
+
+        Object object1 = new Object();
+        Object object2 = new Object();
+        Object object3 = new Object();
+        Object object4 = new Object();
+        List<Object> objects = Arrays.asList(object1, object2, object3, object4);
+        int[] x = {0, 3, -7, 100};
+        int[] y = {0, -2, 5, 100};
+
+        // bulk loaded tree has the same structure as an incrementally built one
+        Quadtree<Object> incremental = new Quadtree<>(1, -1);
+        Quadtree<Object> instance = new Quadtree<>(1, -1);
+        try {
+            for(int i = 0; i < objects.size(); ++i){
+                incremental.insert(objects.get(i), x[i], y[i]);
+            }
+            instance.insertAll(objects, x, y);
+        } catch (Exception ex) {
+            fail();
+        }
+        assertEquals(incremental.toString(), instance.toString());
+        for(int i = 0; i < objects.size(); ++i){
+            assertEquals(objects.get(i), instance.get(x[i], y[i]));
+            assertTrue(instance.contains(objects.get(i)));
+        }
+
+        // root is created at the center of the elements
+        Quadtree<Object> instance3 = new Quadtree<>();
+        try {
+            instance3.insertAll(objects, x, y);
+        } catch (Exception ex) {
+            fail();
+        }
+        for(int i = 0; i < objects.size(); ++i){
+            assertEquals(objects.get(i), instance3.get(x[i], y[i]));
+        }
+
+        // insertAll on a non-empty tree
+        Object object5 = new Object();
+        try {
+            instance.insertAll(Arrays.asList(object5), new int[]{-1}, new int[]{-1});
+        } catch (Exception ex) {
+            fail();
+        }
+        assertEquals(object5, instance.get(-1, -1));
+
+        // duplicate positions, nothing gets inserted
+        Quadtree<Object> instance2 = new Quadtree<>();
+        try {
+            instance2.insertAll(Arrays.asList(object1, object2), new int[]{1, 1}, new int[]{2, 2});
+            fail();
+        } catch (Exception ex) {}
+        assertTrue(instance2.isEmpty());
+        assertFalse(instance2.contains(object1));
+
+        // duplicate objects
+        try {
+            instance2.insertAll(Arrays.asList(object1, object1), new int[]{1, 2}, new int[]{2, 2});
+            fail();
+        } catch (Exception ex) {}
+        assertTrue(instance2.isEmpty());
+    }
+
 }
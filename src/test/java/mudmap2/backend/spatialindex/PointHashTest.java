@@ -0,0 +1,370 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.spatialindex;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import mudmap2.backend.prquadtree.Quadtree;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class PointHashTest {
+
+    public PointHashTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of get and insert methods, of class PointHash.
+     */
+    @Test
+    public void testInsertGet() {
+        System.out.println("insert / get");
+
+        PointHash<Object> instance = new PointHash<>();
+        assertTrue(instance.isEmpty());
+        assertNull(instance.get(0, 0));
+
+        Object object1 = new Object();
+        Object object2 = new Object();
+        Object object3 = new Object();
+        try {
+            instance.insert(object1, 0, 0);
+            instance.insert(object2, -1, 0);
+            instance.insert(object3, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        } catch (Exception ex) {
+            fail();
+        }
+        assertEquals(3, instance.size());
+        assertFalse(instance.isEmpty());
+        assertEquals(object1, instance.get(0, 0));
+        assertEquals(object2, instance.get(-1, 0));
+        assertEquals(object3, instance.get(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertNull(instance.get(0, -1));
+        assertTrue(instance.exist(-1, 0));
+        assertFalse(instance.exist(1, 0));
+        assertTrue(instance.contains(object2));
+
+        // position is occupied
+        try {
+            instance.insert(new Object(), 0, 0);
+            fail();
+        } catch (Exception ex) {}
+        // object is already in the index
+        try {
+            instance.insert(object1, 5, 5);
+            fail();
+        } catch (Exception ex) {}
+        assertEquals(3, instance.size());
+        assertFalse(instance.exist(5, 5));
+    }
+
+    /**
+     * Test of insertAll method, of class PointHash.
+     */
+    @Test
+    public void testInsertAll() {
+        System.out.println("insertAll");
+
+        PointHash<Object> instance = new PointHash<>();
+        Object object1 = new Object();
+        Object object2 = new Object();
+        Object object3 = new Object();
+
+        try {
+            instance.insertAll(Arrays.asList(object1, object2), new int[]{1, 2}, new int[]{1, 2});
+        } catch (Exception ex) {
+            fail();
+        }
+        assertEquals(object1, instance.get(1, 1));
+        assertEquals(object2, instance.get(2, 2));
+
+        // duplicate position, nothing gets inserted
+        try {
+            instance.insertAll(Arrays.asList(object3, new Object()), new int[]{3, 2}, new int[]{3, 2});
+            fail();
+        } catch (Exception ex) {}
+        assertEquals(2, instance.size());
+        assertFalse(instance.contains(object3));
+        assertFalse(instance.exist(3, 3));
+        assertEquals(object2, instance.get(2, 2));
+    }
+
+    /**
+     * Test of remove methods, of class PointHash.
+     */
+    @Test
+    public void testRemove() {
+        System.out.println("remove");
+
+        PointHash<Object> instance = new PointHash<>();
+        Object object1 = new Object();
+        Object object2 = new Object();
+        try {
+            instance.insert(object1, 3, 4);
+            instance.insert(object2, 4, 3);
+        } catch (Exception ex) {
+            fail();
+        }
+
+        instance.remove(3, 4);
+        assertFalse(instance.exist(3, 4));
+        assertFalse(instance.contains(object1));
+        assertEquals(1, instance.size());
+
+        instance.remove(object2);
+        assertFalse(instance.exist(4, 3));
+        assertTrue(instance.isEmpty());
+
+        // remove missing elements
+        instance.remove(object2);
+        instance.remove(0, 0);
+        assertTrue(instance.isEmpty());
+    }
+
+    /**
+     * Test of move methods, of class PointHash.
+     */
+    @Test
+    public void testMove() {
+        System.out.println("move");
+
+        PointHash<Object> instance = new PointHash<>();
+        Object object1 = new Object();
+        Object object2 = new Object();
+
+        try {
+            instance.move(object1, 1, 1);
+            fail();
+        } catch (Exception ex) {}
+
+        try {
+            instance.insert(object1, 0, 0);
+            instance.insert(object2, 1, 0);
+
+            instance.move(object1, -3, 4);
+            assertFalse(instance.exist(0, 0));
+            assertEquals(object1, instance.get(-3, 4));
+
+            instance.move(-3, 4, 7, 7);
+            assertEquals(object1, instance.get(7, 7));
+            assertFalse(instance.exist(-3, 4));
+        } catch (Exception ex) {
+            fail();
+        }
+
+        // target position is occupied
+        try {
+            instance.move(object1, 1, 0);
+            fail();
+        } catch (Exception ex) {}
+        assertEquals(object1, instance.get(7, 7));
+        assertEquals(object2, instance.get(1, 0));
+    }
+
+    /**
+     * Test of shift method, of class PointHash.
+     */
+    @Test
+    public void testShift() {
+        System.out.println("shift");
+
+        PointHash<Object> instance = new PointHash<>();
+        Object object1 = new Object();
+        Object object2 = new Object();
+        Object object3 = new Object();
+        try {
+            instance.insert(object1, 0, 0);
+            instance.insert(object2, 0, 1);
+            instance.insert(object3, 0, 2);
+
+            // elements inside the rectangle may move onto each other's positions
+            List<Object> moved = instance.shift(0, 1, 0, Integer.MAX_VALUE, 0, 1);
+            assertEquals(2, moved.size());
+            assertEquals(object1, instance.get(0, 0));
+            assertFalse(instance.exist(0, 1));
+            assertEquals(object2, instance.get(0, 2));
+            assertEquals(object3, instance.get(0, 3));
+        } catch (Exception ex) {
+            fail();
+        }
+
+        // collision with an element outside of the rectangle
+        try {
+            instance.shift(0, 2, 0, 3, 0, -2);
+            fail();
+        } catch (Exception ex) {}
+        assertEquals(object2, instance.get(0, 2));
+        assertEquals(object3, instance.get(0, 3));
+
+        // targets out of the int range, nothing gets moved
+        Object object4 = new Object();
+        try {
+            instance.insert(object4, 0, Integer.MAX_VALUE);
+        } catch (Exception ex) {
+            fail();
+        }
+        try {
+            instance.shift(0, 2, 0, Integer.MAX_VALUE, 0, 1);
+            fail();
+        } catch (Exception ex) {}
+        assertEquals(object2, instance.get(0, 2));
+        assertEquals(object3, instance.get(0, 3));
+        assertEquals(object4, instance.get(0, Integer.MAX_VALUE));
+        assertFalse(instance.exist(0, Integer.MIN_VALUE));
+    }
+
+    /**
+     * Test of query method, of class PointHash.
+     */
+    @Test
+    public void testQuery() {
+        System.out.println("query");
+
+        PointHash<Object> instance = new PointHash<>();
+        final HashSet<Object> result = new HashSet<>();
+        SpatialIndexVisitor<Object> visitor = new SpatialIndexVisitor<Object>() {
+            @Override
+            public void visit(Object element, int x, int y) {
+                result.add(element);
+            }
+        };
+
+        Object object1 = new Object();
+        Object object2 = new Object();
+        Object object3 = new Object();
+        try {
+            instance.insert(object1, 0, 0);
+            instance.insert(object2, 3, -2);
+            instance.insert(object3, 100, 100);
+        } catch (Exception ex) {
+            fail();
+        }
+
+        // large rectangle, scans the table
+        instance.query(-10, -10, 10, 10, visitor);
+        assertEquals(2, result.size());
+        assertTrue(result.contains(object1));
+        assertTrue(result.contains(object2));
+
+        // small rectangle, probes each position
+        result.clear();
+        instance.query(100, 100, 100, 100, visitor);
+        assertEquals(1, result.size());
+        assertTrue(result.contains(object3));
+
+        result.clear();
+        instance.query(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, visitor);
+        assertEquals(3, result.size());
+    }
+
+    /**
+     * Test of iterator method, of class PointHash.
+     */
+    @Test
+    public void testIterator() {
+        System.out.println("iterator");
+
+        PointHash<Object> instance = new PointHash<>();
+        assertFalse(instance.iterator().hasNext());
+
+        HashSet<Object> objects = new HashSet<>();
+        try {
+            for(int i = 0; i < 100; ++i){
+                Object object = new Object();
+                objects.add(object);
+                instance.insert(object, i * 1000, -i);
+            }
+        } catch (Exception ex) {
+            fail();
+        }
+
+        HashSet<Object> result = new HashSet<>();
+        for(Object object: instance){
+            result.add(object);
+        }
+        assertEquals(objects, result);
+    }
+
+    /**
+     * Compares PointHash with Quadtree on random operations
+     */
+    @Test
+    public void testCompareQuadtree() {
+        System.out.println("compare with quadtree");
+
+        Random random = new Random(42);
+        PointHash<Integer> instance = new PointHash<>();
+        Quadtree<Integer> reference = new Quadtree<>();
+        Integer[] objects = new Integer[500];
+        for(int i = 0; i < objects.length; ++i){
+            objects[i] = new Integer(i);
+        }
+
+        for(int step = 0; step < 5000; ++step){
+            Integer object = objects[random.nextInt(objects.length)];
+            int x = random.nextInt(40) - 20;
+            int y = random.nextInt(40) - 20;
+
+            boolean referenceFailed = false, instanceFailed = false;
+            switch(random.nextInt(3)){
+                case 0:
+                    try { reference.insert(object, x, y); } catch (Exception ex) { referenceFailed = true; }
+                    try { instance.insert(object, x, y); } catch (Exception ex) { instanceFailed = true; }
+                    break;
+                case 1:
+                    try { reference.move(object, x, y); } catch (Exception ex) { referenceFailed = true; }
+                    try { instance.move(object, x, y); } catch (Exception ex) { instanceFailed = true; }
+                    break;
+                default:
+                    reference.remove(object);
+                    instance.remove(object);
+                    break;
+            }
+            assertEquals(referenceFailed, instanceFailed);
+            assertEquals(reference.size(), instance.size());
+            assertEquals(reference.get(x, y), instance.get(x, y));
+        }
+        assertEquals(reference.values(), instance.values());
+    }
+
+}
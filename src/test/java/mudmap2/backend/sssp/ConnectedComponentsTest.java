@@ -0,0 +1,187 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class ConnectedComponentsTest {
+
+    public ConnectedComponentsTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of isConnected method, of class ConnectedComponents.
+     */
+    @Test
+    public void testIsConnected() {
+        try {
+            System.out.println("isConnected");
+
+            World world = new World();
+            Layer layer1 = world.getNewLayer();
+            Layer layer2 = world.getNewLayer();
+            ConnectedComponents instance = world.getPathFinder().getConnectedComponents();
+
+            Place place1 = new Place("", 0, 0, layer1);
+            Place place2 = new Place("", 1, 0, layer1);
+            Place place3 = new Place("", 2, 0, layer1);
+            Place place4 = new Place("", 0, 0, layer2);
+            layer1.put(place1);
+            layer1.put(place2);
+            layer1.put(place3);
+
+            assertTrue(instance.isConnected(place1, place1));
+            assertFalse(instance.isConnected(place1, place2));
+            assertEquals(3, instance.getComponentCount());
+            // place4 isn't part of the world yet
+            assertTrue(instance.isConnected(place1, place4));
+            assertEquals(-1, instance.getComponentId(place4));
+
+            // incremental updates
+            layer2.put(place4);
+            assertEquals(4, instance.getComponentCount());
+            // one-way paths connect places, too
+            Path path12 = new Path(place1, "e", place2, "-");
+            place1.connectPath(path12);
+            assertTrue(instance.isConnected(place1, place2));
+            assertTrue(instance.isConnected(place2, place1));
+            assertEquals(instance.getComponentId(place1), instance.getComponentId(place2));
+            assertEquals(2, instance.getComponentSize(place2));
+            place3.connectChild(place4);
+            assertTrue(instance.isConnected(place4, place3));
+            assertFalse(instance.isConnected(place1, place4));
+            assertEquals(2, instance.getComponentCount());
+
+            Path path23 = new Path(place2, "e", place3, "w");
+            place2.connectPath(path23);
+            assertTrue(instance.isConnected(place1, place4));
+            assertEquals(1, instance.getComponentCount());
+            assertEquals(4, instance.getComponentSize(place1));
+            assertNotNull(world.getPathFinder().findRoute(place1, place4));
+
+            // removed connections split the components
+            place2.removePath(path23);
+            assertFalse(instance.isConnected(place1, place4));
+            assertEquals(2, instance.getComponentCount());
+            assertNull(world.getPathFinder().findRoute(place1, place4));
+            assertNull(world.getPathFinder().findRouteDijkstra(place1, place3));
+
+            place3.removeChild(place4);
+            assertFalse(instance.isConnected(place3, place4));
+            assertEquals(3, instance.getComponentCount());
+
+            layer1.remove(place2);
+            assertEquals(3, instance.getComponentCount());
+            assertTrue(instance.isConnected(place1, place2));
+
+            // world settings, shifts and bulk inserts keep the components
+            world.setName("world");
+            layer1.shift(0, 0, 2, 0, 0, 1);
+            assertTrue(instance.valid);
+            Place place5 = new Place("", 1, 1, layer2);
+            Place place6 = new Place("", 2, 1, layer2);
+            place5.connectPath(new Path(place5, "e", place6, "w"));
+            assertEquals(3, instance.getComponentCount());
+            layer2.putAll(Arrays.asList(place5, place6));
+            assertTrue(instance.valid);
+            assertTrue(instance.isConnected(place5, place6));
+            assertFalse(instance.isConnected(place4, place5));
+            assertEquals(4, instance.getComponentCount());
+        } catch(Exception ex){
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Test of getComponentCount method, of class ConnectedComponents.
+     * Incremental updates have to match a rebuild
+     */
+    @Test
+    public void testGetComponentCount() {
+        try {
+            System.out.println("getComponentCount");
+
+            final int size = 12;
+            Random random = new Random(23);
+            World world = new World();
+            Layer layer = world.getNewLayer();
+            ConnectedComponents instance = world.getPathFinder().getConnectedComponents();
+            assertEquals(0, instance.getComponentCount());
+
+            ArrayList<Place> places = new ArrayList<>();
+            for(int i = 0; i < 60; ++i){
+                Place place = new Place("", random.nextInt(size), random.nextInt(size), layer);
+                if(layer.get(place.getX(), place.getY()) == null){
+                    layer.put(place);
+                    places.add(place);
+                }
+            }
+
+            for(int i = 0; i < 40; ++i){
+                Place place1 = places.get(random.nextInt(places.size()));
+                Place place2 = places.get(random.nextInt(places.size()));
+                if(random.nextInt(4) == 0){
+                    place1.connectChild(place2);
+                } else {
+                    place1.connectPath(new Path(place1, "a" + i, place2, "b" + i));
+                }
+
+                ConnectedComponents rebuilt = new ConnectedComponents(world);
+                assertEquals(rebuilt.getComponentCount(), instance.getComponentCount());
+                for(Place place: places){
+                    assertEquals(rebuilt.getComponentSize(place), instance.getComponentSize(place));
+                    assertEquals(rebuilt.isConnected(place, place1), instance.isConnected(place, place1));
+                }
+            }
+        } catch(Exception ex){
+            fail(ex.getMessage());
+        }
+    }
+
+}
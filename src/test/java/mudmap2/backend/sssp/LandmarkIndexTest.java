@@ -0,0 +1,190 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class LandmarkIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public LandmarkIndexTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Creates a world with two layers of random one-way paths, links and
+     * non-grid exits
+     * @param random random number generator
+     * @param places list for the created places
+     * @return world
+     */
+    private static World createWorld(Random random, ArrayList<Place> places) throws Layer.PlaceNotInsertedException{
+        World world = new World();
+        final int size = 8;
+        for(int l = 0; l < 2; ++l){
+            Layer layer = world.getNewLayer();
+            for(int i = 0; i < size * size; ++i){
+                Place place = new Place("", i % size, i / size, layer);
+                layer.put(place);
+                places.add(place);
+            }
+        }
+        for(int i = 0; i < 150; ++i){
+            Place place1 = places.get(random.nextInt(places.size()));
+            Place place2 = places.get(random.nextInt(places.size()));
+            if(place1 != place2){
+                Path path = new Path(place1, "a" + i, place2, random.nextInt(4) == 0 ? "-" : "b" + i);
+                path.setWeight(1 + random.nextInt(5));
+                place1.connectPath(path);
+            }
+        }
+        for(int i = 0; i < 6; ++i){
+            places.get(random.nextInt(places.size())).connectChild(places.get(random.nextInt(places.size())));
+        }
+        return world;
+    }
+
+    /**
+     * Test of estimate method, of class LandmarkIndex.
+     */
+    @Test
+    public void testEstimate() {
+        try {
+            System.out.println("estimate");
+
+            Random random = new Random(5);
+            ArrayList<Place> places = new ArrayList<>();
+            World world = createWorld(random, places);
+            PathFinder pathFinder = world.getPathFinder();
+
+            LandmarkIndex instance = LandmarkIndex.create(new LandmarkIndex.Graph(world, pathFinder.getLinkWeight()), 6);
+            assertEquals(6, instance.getLandmarkCount());
+            assertEquals(6, instance.getLandmarks().size());
+            assertEquals(places.size(), instance.getGraph().size());
+
+            for(int i = 0; i < 300; ++i){
+                Place start = places.get(random.nextInt(places.size()));
+                Place end = places.get(random.nextInt(places.size()));
+                Route route = pathFinder.findRouteAcrossLayers(start, end);
+                double estimate = instance.estimate(start, end);
+                if(route != null){
+                    assertTrue(estimate <= route.getCost() + 1e-9);
+                } else {
+                    assertTrue(estimate >= 0.0);
+                }
+            }
+            // each landmark knows its own distances exactly
+            for(Place landmark: instance.getLandmarks()){
+                for(int i = 0; i < 20; ++i){
+                    Place end = places.get(random.nextInt(places.size()));
+                    Route route = pathFinder.findRouteAcrossLayers(landmark, end);
+                    if(route != null) assertEquals(route.getCost(), instance.estimate(landmark, end), 1e-9);
+                }
+            }
+
+            // places that aren't part of the index
+            Place unknown = new Place("", 0, 0, world.getNewLayer());
+            assertEquals(0.0, instance.estimate(unknown, places.get(0)), 0.0);
+
+            // no landmarks
+            instance = LandmarkIndex.create(new LandmarkIndex.Graph(new World(), 1.0), 4);
+            assertEquals(0, instance.getLandmarkCount());
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Test of write and read methods, of class LandmarkIndex.
+     */
+    @Test
+    public void testWriteRead() {
+        try {
+            System.out.println("write / read");
+
+            Random random = new Random(8);
+            ArrayList<Place> places = new ArrayList<>();
+            World world = createWorld(random, places);
+
+            LandmarkIndex.Graph graph = new LandmarkIndex.Graph(world, 1.0);
+            LandmarkIndex instance = LandmarkIndex.create(graph, 4);
+            File file = new File(folder.getRoot(), "world" + LandmarkIndex.FILE_EXTENSION);
+            instance.write(file);
+
+            // the same graph in another snapshot
+            LandmarkIndex.Graph graph2 = new LandmarkIndex.Graph(world, 1.0);
+            assertEquals(graph.getFingerprint(), graph2.getFingerprint());
+            LandmarkIndex result = LandmarkIndex.read(file, graph2);
+            assertNotNull(result);
+            assertEquals(instance.getLandmarks(), result.getLandmarks());
+            for(int i = 0; i < 100; ++i){
+                Place start = places.get(random.nextInt(places.size()));
+                Place end = places.get(random.nextInt(places.size()));
+                assertEquals(instance.estimate(start, end), result.estimate(start, end), 0.0);
+            }
+
+            // outdated files are ignored
+            assertNull(LandmarkIndex.read(file, new LandmarkIndex.Graph(world, 2.0)));
+            Path path = places.get(0).getPaths().isEmpty() ? null : places.get(0).getPaths().iterator().next();
+            if(path == null){
+                path = new Path(places.get(0), "x", places.get(1), "y");
+                places.get(0).connectPath(path);
+            } else {
+                path.setWeight(path.getWeight() + 1);
+            }
+            assertNull(LandmarkIndex.read(file, new LandmarkIndex.Graph(world, 1.0)));
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,767 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class PathFinderTest {
+
+    public PathFinderTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of findRoute method, of class PathFinder.
+     */
+    @Test
+    public void testFindRoute() {
+        try {
+            System.out.println("findRoute");
+
+            World world = new World();
+            Layer layer1 = world.getNewLayer();
+            PathFinder instance = world.getPathFinder();
+            assertSame(instance, world.getPathFinder());
+
+            // create places
+            Place place11 = new Place("", 0, 0, layer1);
+            Place place12 = new Place("", 1, 0, layer1);
+            Place place13 = new Place("", 2, 1, layer1);
+            Place place14 = new Place("", 5, 1, layer1);
+            // inaccessible place
+            Place place15 = new Place("", 5, 4, layer1);
+
+            layer1.put(place11);
+            layer1.put(place12);
+            layer1.put(place13);
+            layer1.put(place14);
+            layer1.put(place15);
+
+            // create connections
+            place11.connectPath(new Path(place11, "n", place12, "s"));
+            place12.connectPath(new Path(place12, "e", place13, "w"));
+            place13.connectPath(new Path(place13, "u", place14, "d"));
+            place14.connectPath(new Path(place14, "u", place11, "d"));
+
+            // 11 -> 11
+            Route result = instance.findRoute(place11, place11);
+            assertEquals(Arrays.asList(place11), result.getPlaces());
+            assertEquals(0, result.getLength());
+
+            // 11 -> 12
+            result = instance.findRoute(place11, place12);
+            assertEquals(Arrays.asList(place11, place12), result.getPlaces());
+
+            // 11 -> 13, two routes of the same length
+            result = instance.findRoute(place11, place13);
+            assertEquals(2, result.getLength());
+            assertEquals(place11, result.getStart());
+            assertEquals(place13, result.getEnd());
+            assertTrue(result.getPlaces().get(1) == place12 || result.getPlaces().get(1) == place14);
+
+            // 11 -> 14
+            result = instance.findRoute(place11, place14);
+            assertEquals(Arrays.asList(place11, place14), result.getPlaces());
+
+            // 11 -> 15
+            assertNull(instance.findRoute(place11, place15));
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Test of findRoute method with one-way paths, of class PathFinder.
+     */
+    @Test
+    public void testFindRouteOneWay() {
+        try {
+            System.out.println("findRoute one-way");
+
+            World world = new World();
+            Layer layer = world.getNewLayer();
+            PathFinder instance = world.getPathFinder();
+
+            Place place1 = new Place("", 0, 0, layer);
+            Place place2 = new Place("", 1, 0, layer);
+            Place place3 = new Place("", 2, 0, layer);
+            layer.put(place1);
+            layer.put(place2);
+            layer.put(place3);
+
+            // place2 -> place3 only
+            place1.connectPath(new Path(place1, "e", place2, "w"));
+            place2.connectPath(new Path(place2, "e", place3, "-"));
+
+            assertEquals(Arrays.asList(place1, place2, place3), instance.findRoute(place1, place3).getPlaces());
+            assertNull(instance.findRoute(place3, place1));
+            assertEquals(Arrays.asList(place2, place1), instance.findRoute(place2, place1).getPlaces());
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Test of findRouteDijkstra method, of class PathFinder.
+     */
+    @Test
+    public void testFindRouteDijkstra() {
+        try {
+            System.out.println("findRouteDijkstra");
+
+            World world = new World();
+            Layer layer = world.getNewLayer();
+            PathFinder instance = world.getPathFinder();
+
+            Place place1 = new Place("", 0, 0, layer);
+            Place place2 = new Place("", 1, 0, layer);
+            Place place3 = new Place("", 1, 1, layer);
+            Place place4 = new Place("", 2, 0, layer);
+            layer.put(place1);
+            layer.put(place2);
+            layer.put(place3);
+            layer.put(place4);
+
+            // a door on the direct way, a detour around it
+            Path door = new Path(place2, "e", place4, "w");
+            door.setWeight(5);
+            place1.connectPath(new Path(place1, "e", place2, "w"));
+            place2.connectPath(door);
+            place2.connectPath(new Path(place2, "s", place3, "n"));
+            place3.connectPath(new Path(place3, "ne", place4, "sw"));
+
+            Route result = instance.findRouteDijkstra(place1, place4);
+            assertEquals(Arrays.asList(place1, place2, place3, place4), result.getPlaces());
+            assertEquals(3.0, result.getCost(), 0.0);
+            assertEquals(result.getPlaces(), instance.findRouteAStar(place1, place4).getPlaces());
+
+            // the breadth search ignores weights
+            result = instance.findRouteBreadthFirst(place1, place4);
+            assertEquals(Arrays.asList(place1, place2, place4), result.getPlaces());
+            assertEquals(6.0, result.getCost(), 0.0);
+
+            // the door gets cheaper
+            door.setWeight(0.5);
+            result = instance.findRouteAStar(place1, place4);
+            assertEquals(Arrays.asList(place1, place2, place4), result.getPlaces());
+            assertEquals(1.5, result.getCost(), 0.0);
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Compares A* with Dijkstra on random grids, of class PathFinder.
+     */
+    @Test
+    public void testFindRouteAStar() {
+        try {
+            System.out.println("findRouteAStar");
+
+            Random random = new Random(11);
+            for(int run = 0; run < 5; ++run){
+                World world = new World();
+                Layer layer = world.getNewLayer();
+                PathFinder instance = world.getPathFinder();
+
+                final int size = 20;
+                Place[][] places = new Place[size][size];
+                for(int x = 0; x < size; ++x){
+                    for(int y = 0; y < size; ++y){
+                        places[x][y] = new Place("", x, y, layer);
+                        layer.put(places[x][y]);
+                    }
+                }
+                // random weights, some paths missing or one-way
+                for(int x = 0; x < size; ++x){
+                    for(int y = 0; y < size; ++y){
+                        if(x + 1 < size && random.nextInt(5) > 0){
+                            Path path = new Path(places[x][y], "e", places[x + 1][y], random.nextInt(8) == 0 ? "-" : "w");
+                            path.setWeight(1 + random.nextInt(4));
+                            places[x][y].connectPath(path);
+                        }
+                        if(y + 1 < size && random.nextInt(5) > 0){
+                            Path path = new Path(places[x][y], "n", places[x][y + 1], "s");
+                            path.setWeight(1 + random.nextInt(4));
+                            places[x][y].connectPath(path);
+                        }
+                    }
+                }
+                // a cheap long distance path, A* must not overestimate it
+                Path portal = new Path(places[0][0], "u", places[size - 1][size - 1], "d");
+                portal.setWeight(2);
+                places[0][0].connectPath(portal);
+
+                for(int i = 0; i < 50; ++i){
+                    Place start = places[random.nextInt(size)][random.nextInt(size)];
+                    Place end = places[random.nextInt(size)][random.nextInt(size)];
+                    Route dijkstra = instance.findRouteDijkstra(start, end);
+                    Route aStar = instance.findRouteAStar(start, end);
+                    if(dijkstra == null){
+                        assertNull(aStar);
+                    } else {
+                        assertEquals(dijkstra.getCost(), aStar.getCost(), 1e-9);
+                        assertTrue(aStar.getExpandedCount() <= dijkstra.getExpandedCount());
+                    }
+                }
+            }
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Compares the number of expanded places of A* and breadth search on an
+     * open grid, of class PathFinder.
+     */
+    @Test
+    public void testFindRouteAStarExpanded() {
+        try {
+            System.out.println("findRouteAStar expanded places");
+
+            World world = new World();
+            Layer layer = world.getNewLayer();
+            PathFinder instance = world.getPathFinder();
+
+            final int size = 50;
+            Place[][] places = new Place[size][size];
+            for(int x = 0; x < size; ++x){
+                for(int y = 0; y < size; ++y){
+                    places[x][y] = new Place("", x, y, layer);
+                    layer.put(places[x][y]);
+                    if(x > 0) places[x][y].connectPath(new Path(places[x - 1][y], "e", places[x][y], "w"));
+                    if(y > 0) places[x][y].connectPath(new Path(places[x][y - 1], "n", places[x][y], "s"));
+                }
+            }
+
+            Route aStar = instance.findRouteAStar(places[10][25], places[40][25]);
+            Route breadthFirst = instance.findRouteBreadthFirst(places[10][25], places[40][25]);
+            assertEquals(30, aStar.getLength());
+            assertEquals(30, breadthFirst.getLength());
+            assertTrue(aStar.getExpandedCount() * 10 < breadthFirst.getExpandedCount());
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Compares the bidirectional search with Dijkstra on random grids with
+     * one-way paths, of class PathFinder.
+     */
+    @Test
+    public void testFindRouteBidirectional() {
+        try {
+            System.out.println("findRouteBidirectional");
+
+            Random random = new Random(5);
+            for(int run = 0; run < 5; ++run){
+                World world = new World();
+                Layer layer = world.getNewLayer();
+                PathFinder instance = world.getPathFinder();
+
+                final int size = 15;
+                Place[][] places = new Place[size][size];
+                for(int x = 0; x < size; ++x){
+                    for(int y = 0; y < size; ++y){
+                        places[x][y] = new Place("", x, y, layer);
+                        layer.put(places[x][y]);
+                    }
+                }
+                for(int x = 0; x < size; ++x){
+                    for(int y = 0; y < size; ++y){
+                        if(x + 1 < size && random.nextInt(4) > 0){
+                            // one-way in either direction
+                            int type = random.nextInt(6);
+                            Path path = new Path(places[x][y], type == 0 ? "-" : "e", places[x + 1][y], type == 1 ? "-" : "w");
+                            path.setWeight(random.nextInt(4));
+                            places[x][y].connectPath(path);
+                        }
+                        if(y + 1 < size && random.nextInt(4) > 0){
+                            int type = random.nextInt(6);
+                            Path path = new Path(places[x][y], type == 0 ? "-" : "n", places[x][y + 1], type == 1 ? "-" : "s");
+                            path.setWeight(random.nextInt(4));
+                            places[x][y].connectPath(path);
+                        }
+                    }
+                }
+
+                for(int i = 0; i < 100; ++i){
+                    Place start = places[random.nextInt(size)][random.nextInt(size)];
+                    Place end = places[random.nextInt(size)][random.nextInt(size)];
+                    Route dijkstra = instance.findRouteDijkstra(start, end);
+                    Route bidirectional = instance.findRouteBidirectional(start, end);
+                    if(dijkstra == null){
+                        assertNull(bidirectional);
+                    } else {
+                        assertEquals(dijkstra.getCost(), bidirectional.getCost(), 1e-9);
+                        assertEquals(start, bidirectional.getStart());
+                        assertEquals(end, bidirectional.getEnd());
+
+                        // the route is connected, in the right direction
+                        double cost = 0;
+                        List<Place> routePlaces = bidirectional.getPlaces();
+                        for(int j = 0; j + 1 < routePlaces.size(); ++j){
+                            Path best = null;
+                            for(Path path: routePlaces.get(j).getPaths(routePlaces.get(j + 1))){
+                                if(path.isPassableFrom(routePlaces.get(j)) && (best == null || path.getWeight() < best.getWeight())){
+                                    best = path;
+                                }
+                            }
+                            assertNotNull(best);
+                            cost += best.getWeight();
+                        }
+                        assertEquals(bidirectional.getCost(), cost, 1e-9);
+                    }
+                }
+            }
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Compares the number of expanded places of the bidirectional search and
+     * Dijkstra on a tree, of class PathFinder.
+     */
+    @Test
+    public void testFindRouteBidirectionalExpanded() {
+        try {
+            System.out.println("findRouteBidirectional expanded places");
+
+            World world = new World();
+            Layer layer = world.getNewLayer();
+            PathFinder instance = world.getPathFinder();
+
+            // ternary tree, a route between two leaves crosses the root
+            ArrayList<Place> level = new ArrayList<>();
+            Place root = new Place("", 0, 0, layer);
+            layer.put(root);
+            level.add(root);
+            int x = 1;
+            for(int depth = 1; depth <= 7; ++depth){
+                ArrayList<Place> next = new ArrayList<>();
+                for(Place parent: level){
+                    for(int i = 0; i < 3; ++i){
+                        Place child = new Place("", x++, depth, layer);
+                        layer.put(child);
+                        child.connectPath(new Path(parent, "d", child, "u"));
+                        next.add(child);
+                    }
+                }
+                level = next;
+            }
+
+            Place start = level.get(0);
+            Place end = level.get(level.size() - 1);
+            Route dijkstra = instance.findRouteDijkstra(start, end);
+            Route bidirectional = instance.findRouteBidirectional(start, end);
+            assertEquals(14, dijkstra.getLength());
+            assertEquals(14, bidirectional.getLength());
+            assertTrue(bidirectional.getExpandedCount() * 10 < dijkstra.getExpandedCount());
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Test of findRouteAcrossLayers method, of class PathFinder.
+     */
+    @Test
+    public void testFindRouteAcrossLayers() {
+        try {
+            System.out.println("findRouteAcrossLayers");
+
+            World world = new World();
+            Layer outside = world.getNewLayer();
+            Layer inside = world.getNewLayer();
+            PathFinder instance = world.getPathFinder();
+
+            // a street with two entrances of a building
+            Place[] street = new Place[10];
+            for(int i = 0; i < street.length; ++i){
+                street[i] = new Place("", i, 0, outside);
+                outside.put(street[i]);
+                if(i > 0) street[i].connectPath(new Path(street[i - 1], "e", street[i], "w"));
+            }
+            Place hall1 = new Place("", 0, 0, inside);
+            Place hall2 = new Place("", 1, 0, inside);
+            Place room = new Place("", 0, 1, inside);
+            inside.put(hall1);
+            inside.put(hall2);
+            inside.put(room);
+            hall1.connectPath(new Path(hall1, "e", hall2, "w"));
+            hall1.connectPath(new Path(hall1, "n", room, "s"));
+            street[1].connectChild(hall1);
+            street[8].connectChild(hall2);
+
+            // into the building
+            Route result = instance.findRoute(street[0], room);
+            assertEquals(Arrays.asList(street[0], street[1], hall1, room), result.getPlaces());
+            assertEquals(3.0, result.getCost(), 0.0);
+
+            // through the building is shorter than the street
+            result = instance.findRouteAcrossLayers(street[0], street[9]);
+            assertEquals(Arrays.asList(street[0], street[1], hall1, hall2, street[8], street[9]), result.getPlaces());
+            assertEquals(5.0, result.getCost(), 0.0);
+            assertEquals(result.getPlaces(), instance.findRoute(street[0], street[9]).getPlaces());
+
+            // expensive links
+            instance.setLinkWeight(10);
+            assertEquals(10.0, instance.getLinkWeight(), 0.0);
+            result = instance.findRoute(street[0], street[9]);
+            assertEquals(9, result.getLength());
+            assertEquals(9.0, result.getCost(), 0.0);
+            assertEquals(12.0, instance.findRoute(street[0], room).getCost(), 0.0);
+            try {
+                instance.setLinkWeight(-1);
+                fail();
+            } catch(IllegalArgumentException ex){}
+
+            // changes of a layer are noticed
+            street[1].removeChild(hall1);
+            result = instance.findRoute(street[0], room);
+            assertEquals(Arrays.asList(street[0], street[1], street[2], street[3], street[4],
+                    street[5], street[6], street[7], street[8], hall2, hall1, room), result.getPlaces());
+
+            // unreachable
+            Layer island = world.getNewLayer();
+            Place lonely = new Place("", 0, 0, island);
+            island.put(lonely);
+            assertNull(instance.findRoute(street[0], lonely));
+            assertNull(instance.findRoute(lonely, room));
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Compares findRoute with a plain Dijkstra over paths and links on random
+     * worlds with several layers, of class PathFinder.
+     */
+    @Test
+    public void testFindRouteAcrossLayersRandom() {
+        try {
+            System.out.println("findRouteAcrossLayers random");
+
+            Random random = new Random(3);
+            for(int run = 0; run < 5; ++run){
+                World world = new World();
+                PathFinder instance = world.getPathFinder();
+                instance.setLinkWeight(random.nextInt(3));
+
+                final int size = 6;
+                ArrayList<Place> all = new ArrayList<>();
+                for(int l = 0; l < 4; ++l){
+                    Layer layer = world.getNewLayer();
+                    Place[][] places = new Place[size][size];
+                    for(int x = 0; x < size; ++x){
+                        for(int y = 0; y < size; ++y){
+                            places[x][y] = new Place("", x, y, layer);
+                            layer.put(places[x][y]);
+                            all.add(places[x][y]);
+                        }
+                    }
+                    for(int x = 0; x < size; ++x){
+                        for(int y = 0; y < size; ++y){
+                            if(x + 1 < size && random.nextInt(3) > 0){
+                                Path path = new Path(places[x][y], random.nextInt(6) == 0 ? "-" : "e", places[x + 1][y], "w");
+                                path.setWeight(1 + random.nextInt(3));
+                                places[x][y].connectPath(path);
+                            }
+                            if(y + 1 < size && random.nextInt(3) > 0){
+                                Path path = new Path(places[x][y], "n", places[x][y + 1], random.nextInt(6) == 0 ? "-" : "s");
+                                path.setWeight(1 + random.nextInt(3));
+                                places[x][y].connectPath(path);
+                            }
+                        }
+                    }
+                }
+                // links and a few paths between layers
+                for(int i = 0; i < 8; ++i){
+                    all.get(random.nextInt(all.size())).connectChild(all.get(random.nextInt(all.size())));
+                }
+                for(int i = 0; i < 3; ++i){
+                    Place place1 = all.get(random.nextInt(all.size()));
+                    Place place2 = all.get(random.nextInt(all.size()));
+                    if(place1 != place2) place1.connectPath(new Path(place1, "u", place2, "d"));
+                }
+
+                for(int i = 0; i < 50; ++i){
+                    Place start = all.get(random.nextInt(all.size()));
+                    Place end = all.get(random.nextInt(all.size()));
+                    Double expected = referenceDistance(start, end, instance.getLinkWeight());
+                    Route result = instance.findRoute(start, end);
+                    if(expected == null){
+                        assertNull(result);
+                    } else {
+                        assertNotNull(result);
+                        assertEquals(expected, result.getCost(), 1e-9);
+                        assertEquals(start, result.getStart());
+                        assertEquals(end, result.getEnd());
+
+                        // each step uses a path or a link
+                        double cost = 0;
+                        List<Place> routePlaces = result.getPlaces();
+                        for(int j = 0; j + 1 < routePlaces.size(); ++j){
+                            Place from = routePlaces.get(j);
+                            Place to = routePlaces.get(j + 1);
+                            double best = Double.POSITIVE_INFINITY;
+                            for(Path path: from.getPaths(to)){
+                                if(path.isPassableFrom(from)) best = Math.min(best, path.getWeight());
+                            }
+                            if(from.getChildren().contains(to) || from.getParents().contains(to)){
+                                best = Math.min(best, instance.getLinkWeight());
+                            }
+                            assertTrue(best < Double.POSITIVE_INFINITY);
+                            cost += best;
+                        }
+                        assertEquals(result.getCost(), cost, 1e-9);
+                    }
+                }
+            }
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Simple Dijkstra over paths and parent / child links
+     * @param start start place
+     * @param end end place
+     * @param linkWeight weight of links
+     * @return distance or null
+     */
+    private static Double referenceDistance(Place start, Place end, double linkWeight){
+        HashMap<Place, Double> distances = new HashMap<>();
+        HashSet<Place> settled = new HashSet<>();
+        distances.put(start, 0.0);
+        while(true){
+            Place v = null;
+            for(Map.Entry<Place, Double> entry: distances.entrySet()){
+                if(!settled.contains(entry.getKey()) && (v == null || entry.getValue() < distances.get(v))){
+                    v = entry.getKey();
+                }
+            }
+            if(v == null) return null;
+            if(v == end) return distances.get(v);
+            settled.add(v);
+
+            ArrayList<Place> neighbors = new ArrayList<>();
+            ArrayList<Double> weights = new ArrayList<>();
+            for(Path path: v.getPaths()){
+                if(path.isPassableFrom(v)){
+                    neighbors.add(path.getOtherPlace(v));
+                    weights.add(path.getWeight());
+                }
+            }
+            for(Place linked: v.getChildren()){
+                neighbors.add(linked);
+                weights.add(linkWeight);
+            }
+            for(Place linked: v.getParents()){
+                neighbors.add(linked);
+                weights.add(linkWeight);
+            }
+            for(int i = 0; i < neighbors.size(); ++i){
+                double distance = distances.get(v) + weights.get(i);
+                Double known = distances.get(neighbors.get(i));
+                if(known == null || distance < known) distances.put(neighbors.get(i), distance);
+            }
+        }
+    }
+
+    /**
+     * Test of findRouteLandmarks method, of class PathFinder.
+     */
+    @Test
+    public void testFindRouteLandmarks() {
+        try {
+            System.out.println("findRouteLandmarks");
+
+            World world = new World();
+            PathFinder instance = world.getPathFinder();
+            assertNull(instance.getLandmarkIndex());
+
+            // grid with up / down exits only, the grid distance doesn't help
+            final int size = 25;
+            Random random = new Random(11);
+            Layer layer = world.getNewLayer();
+            Place[][] places = new Place[size][size];
+            for(int x = 0; x < size; ++x){
+                for(int y = 0; y < size; ++y){
+                    places[x][y] = new Place("", x, y, layer);
+                    layer.put(places[x][y]);
+                }
+            }
+            for(int x = 0; x < size; ++x){
+                for(int y = 0; y < size; ++y){
+                    if(x + 1 < size){
+                        Path path = new Path(places[x][y], "u", places[x + 1][y], "d");
+                        path.setWeight(1 + random.nextInt(3));
+                        places[x][y].connectPath(path);
+                    }
+                    if(y + 1 < size){
+                        Path path = new Path(places[x][y], "u" + y, places[x][y + 1], "d" + y);
+                        path.setWeight(1 + random.nextInt(3));
+                        places[x][y].connectPath(path);
+                    }
+                }
+            }
+
+            world.setLandmarkCount(PathFinder.DEFAULT_LANDMARK_COUNT);
+            assertNull(instance.getLandmarkIndex());
+            Future<?> task = instance.landmarkTask;
+            if(task != null) task.get();
+            LandmarkIndex index = instance.getLandmarkIndex();
+            assertNotNull(index);
+            assertEquals(PathFinder.DEFAULT_LANDMARK_COUNT, index.getLandmarkCount());
+
+            int expandedLandmarks = 0;
+            int expandedDijkstra = 0;
+            for(int i = 0; i < 30; ++i){
+                Place start = places[random.nextInt(size)][random.nextInt(size)];
+                Place end = places[random.nextInt(size)][random.nextInt(size)];
+                Route expected = instance.findRouteDijkstra(start, end);
+                Route result = instance.findRoute(start, end);
+                assertEquals(expected.getCost(), result.getCost(), 1e-9);
+                assertEquals(start, result.getStart());
+                assertEquals(end, result.getEnd());
+                expandedLandmarks += result.getExpandedCount();
+                expandedDijkstra += expected.getExpandedCount();
+            }
+            assertTrue(expandedLandmarks * 2 < expandedDijkstra);
+
+            // path changes invalidate the index
+            places[0][0].getPaths().iterator().next().setWeight(10);
+            assertNotSame(index, instance.getLandmarkIndex());
+            task = instance.landmarkTask;
+            if(task != null) task.get();
+            index = instance.getLandmarkIndex();
+            assertNotNull(index);
+            Route result = instance.findRouteLandmarks(places[0][0], places[size - 1][size - 1]);
+            assertEquals(instance.findRouteDijkstra(places[0][0], places[size - 1][size - 1]).getCost(), result.getCost(), 1e-9);
+
+            // changes that don't affect distances keep it
+            places[1][1].setName("Renamed");
+            world.setTileCenterColor(Color.yellow);
+            layer.shift(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 1, 0);
+            layer.put(new Place("New", -5, -5, layer));
+            assertSame(index, instance.getLandmarkIndex());
+
+            // a new landmark count doesn't
+            world.setLandmarkCount(4);
+            assertNotSame(index, instance.getLandmarkIndex());
+
+            world.setLandmarkCount(0);
+            assertNull(instance.getLandmarkIndex());
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Test of concurrent searches, of class PathFinder.
+     */
+    @Test
+    public void testFindRouteConcurrent() throws Exception {
+        System.out.println("findRoute concurrent");
+
+        World world = new World();
+        Layer layer = world.getNewLayer();
+        final PathFinder instance = world.getPathFinder();
+
+        // a line of places
+        final int count = 2000;
+        final Place[] places = new Place[count];
+        for(int i = 0; i < count; ++i){
+            places[i] = new Place("", i, 0, layer);
+            layer.put(places[i]);
+            if(i > 0) places[i - 1].connectPath(new Path(places[i - 1], "e", places[i], "w"));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ArrayList<Future<Route>> futures = new ArrayList<>();
+            for(int i = 0; i < 40; ++i){
+                final Place start = places[i * 37 % count];
+                final Place end = places[(i * 53 + 11) % count];
+                futures.add(executor.submit(new Callable<Route>() {
+                    @Override
+                    public Route call() {
+                        return instance.findRoute(start, end);
+                    }
+                }));
+            }
+
+            for(int i = 0; i < 40; ++i){
+                int start = i * 37 % count;
+                int end = (i * 53 + 11) % count;
+                Route route = futures.get(i).get();
+                assertEquals(Math.abs(end - start), route.getLength());
+
+                List<Place> routePlaces = route.getPlaces();
+                int step = end >= start ? 1 : -1;
+                for(int j = 0; j < routePlaces.size(); ++j){
+                    assertSame(places[start + j * step], routePlaces.get(j));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.awt.Color;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class PortalGraphTest {
+
+    public PortalGraphTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of getLayerGraph method, of class PortalGraph.
+     */
+    @Test
+    public void testGetLayerGraph() {
+        try {
+            System.out.println("getLayerGraph");
+
+            World world = new World();
+            Layer layer1 = world.getNewLayer();
+            Layer layer2 = world.getNewLayer();
+            Place place1 = new Place("Place1", 0, 0, layer1);
+            Place place2 = new Place("Place2", 1, 0, layer1);
+            Place place3 = new Place("Place3", 0, 0, layer2);
+            layer1.put(place1);
+            layer1.put(place2);
+            layer2.put(place3);
+            place1.connectPath(new Path(place1, "e", place2, "w"));
+            place2.connectChild(place3);
+
+            PortalGraph instance = new PortalGraph();
+            PortalGraph.LayerGraph graph = instance.getLayerGraph(layer1);
+            assertEquals(1, graph.getPortals().size());
+            assertTrue(graph.getPortals().contains(place2));
+
+            // kept on changes that don't affect paths
+            place1.setName("Renamed");
+            place1.setComments("comment");
+            world.setTileCenterColor(Color.yellow);
+            assertSame(graph, instance.getLayerGraph(layer1));
+
+            // recreated if the paths change
+            place1.connectChild(place3);
+            PortalGraph.LayerGraph graph2 = instance.getLayerGraph(layer1);
+            assertNotSame(graph, graph2);
+            assertEquals(2, graph2.getPortals().size());
+            assertEquals(1.0, graph2.getDistances(place1).get(place2), 0.0);
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+}
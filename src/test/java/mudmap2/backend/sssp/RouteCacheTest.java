@@ -0,0 +1,261 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Path;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class RouteCacheTest {
+
+    public RouteCacheTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of update method, of class RouteCache.
+     */
+    @Test
+    public void testUpdate() {
+        try {
+            System.out.println("update");
+
+            World world = new World();
+            Layer layer = world.getNewLayer();
+            PathFinder pathFinder = world.getPathFinder();
+            RouteCache instance = pathFinder.getRouteCache();
+
+            // two separate streets: 0 - 1 - 2 and 3 - 4, 5 is unconnected
+            Place[] places = new Place[6];
+            for(int i = 0; i < places.length; ++i){
+                places[i] = new Place("", i, 0, layer);
+                layer.put(places[i]);
+            }
+            Path path01 = new Path(places[0], "e", places[1], "w");
+            Path path12 = new Path(places[1], "e", places[2], "w");
+            Path path34 = new Path(places[3], "e", places[4], "w");
+            places[0].connectPath(path01);
+            places[1].connectPath(path12);
+            places[3].connectPath(path34);
+
+            Route route02 = pathFinder.findRoute(places[0], places[2]);
+            Route route34 = pathFinder.findRoute(places[3], places[4]);
+            assertEquals(Arrays.asList(places[0], places[1], places[2]), route02.getPlaces());
+            assertEquals(0, instance.getHits());
+            assertEquals(2, instance.getMisses());
+            assertEquals(2, instance.size());
+
+            // cached queries return the same route
+            assertSame(route02, pathFinder.findRoute(places[0], places[2]));
+            assertEquals(1, instance.getHits());
+            assertEquals(1.0 / 3.0, instance.getHitRate(), 1e-9);
+
+            // removing a path only evicts the routes that use it
+            places[1].removePath(path12);
+            assertEquals(1, instance.size());
+            assertSame(route34, pathFinder.findRoute(places[3], places[4]));
+            assertNull(pathFinder.findRoute(places[0], places[2]));
+
+            // more expensive paths, too
+            path34.setWeight(3.0);
+            Route route34b = pathFinder.findRoute(places[3], places[4]);
+            assertNotSame(route34, route34b);
+            assertEquals(3.0, route34b.getCost(), 0.0);
+
+            // new paths keep routes that can't get cheaper
+            Route route01 = pathFinder.findRoute(places[0], places[1]);
+            Path path12b = new Path(places[1], "se", places[2], "nw");
+            path12b.setWeight(2.0);
+            places[1].connectPath(path12b);
+            assertSame(route01, pathFinder.findRoute(places[0], places[1]));
+            assertNotSame(route34b, pathFinder.findRoute(places[3], places[4]));
+            assertEquals(3.0, pathFinder.findRoute(places[0], places[2]).getCost(), 0.0);
+
+            // a cheaper connection
+            Path path24 = new Path(places[2], "e", places[4], "w");
+            path24.setWeight(0.5);
+            places[2].connectPath(path24);
+            assertEquals(2.5, pathFinder.findRoute(places[1], places[4]).getCost(), 0.0);
+            path12b.setWeight(1.0);
+            assertEquals(1.5, pathFinder.findRoute(places[1], places[4]).getCost(), 0.0);
+
+            // links
+            Route route05 = pathFinder.findRoute(places[0], places[5]);
+            assertNull(route05);
+            places[4].connectChild(places[5]);
+            assertEquals(3.5, pathFinder.findRoute(places[0], places[5]).getCost(), 0.0);
+            places[4].removeChild(places[5]);
+            assertNull(pathFinder.findRoute(places[0], places[5]));
+
+            // removed places
+            assertNotNull(pathFinder.findRoute(places[0], places[4]));
+            int size = instance.size();
+            layer.remove(places[4]);
+            assertTrue(instance.size() < size);
+
+            // world settings and shifts keep the cache
+            Route route01b = pathFinder.findRoute(places[0], places[1]);
+            size = instance.size();
+            world.setName("world");
+            world.setTileCenterColor(java.awt.Color.WHITE);
+            layer.shift(0, 0, 5, 0, 0, 1);
+            assertEquals(size, instance.size());
+            assertSame(route01b, pathFinder.findRoute(places[0], places[1]));
+
+            // bulk inserts of connected places evict routes that could get cheaper
+            Layer layer2 = world.getNewLayer();
+            Place place6 = new Place("", 0, 0, layer2);
+            Place place7 = new Place("", 1, 0, layer2);
+            place6.connectPath(new Path(place6, "e", place7, "w"));
+            route01b = pathFinder.findRoute(places[0], places[1]);
+            layer2.putAll(Arrays.asList(place6, place7));
+            assertNotSame(route01b, pathFinder.findRoute(places[0], places[1]));
+
+            instance.clear();
+            assertEquals(0, instance.size());
+        } catch(Exception ex){
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Test of put method, of class RouteCache.
+     */
+    @Test
+    public void testPut() {
+        try {
+            System.out.println("put");
+
+            World world = new World();
+            Layer layer = world.getNewLayer();
+            Place place1 = new Place("", 0, 0, layer);
+            Place place2 = new Place("", 1, 0, layer);
+            Place place3 = new Place("", 2, 0, layer);
+            layer.put(place1);
+            layer.put(place2);
+            layer.put(place3);
+
+            RouteCache instance = new RouteCache(2, world.getPathFinder().getConnectedComponents());
+            Route route = new Route(Arrays.asList(place1), 0.0, 1);
+            instance.put(place1, place1, 1.0, route);
+            instance.put(place2, place2, 1.0, null);
+            assertSame(route, instance.lookup(place1, place1, 1.0).route);
+            assertNull(instance.lookup(place1, place1, 2.0));
+            assertNotNull(instance.lookup(place2, place2, 1.0));
+
+            // the least recently used entry gets evicted
+            instance.lookup(place1, place1, 1.0);
+            instance.put(place3, place3, 1.0, null);
+            assertEquals(2, instance.size());
+            assertNotNull(instance.lookup(place1, place1, 1.0));
+            assertNull(instance.lookup(place2, place2, 1.0));
+            assertNotNull(instance.lookup(place3, place3, 1.0));
+            assertEquals(5, instance.getHits());
+            assertEquals(2, instance.getMisses());
+        } catch(Exception ex){
+            fail(ex.getMessage());
+        }
+    }
+
+    /**
+     * Cached routes have to match new searches after random changes, of
+     * class RouteCache.
+     */
+    @Test
+    public void testUpdateRandom() {
+        try {
+            System.out.println("update random");
+
+            Random random = new Random(17);
+            World world = new World();
+            Layer layer = world.getNewLayer();
+            PathFinder pathFinder = world.getPathFinder();
+
+            final int size = 5;
+            ArrayList<Place> places = new ArrayList<>();
+            for(int i = 0; i < size * size; ++i){
+                Place place = new Place("", i % size, i / size, layer);
+                layer.put(place);
+                places.add(place);
+            }
+            ArrayList<Path> paths = new ArrayList<>();
+            for(int step = 0; step < 400; ++step){
+                int action = random.nextInt(8);
+                if(action == 0 || paths.size() < 40){
+                    Place place1 = places.get(random.nextInt(places.size()));
+                    Place place2 = places.get(random.nextInt(places.size()));
+                    if(place1 != place2){
+                        Path path = new Path(place1, "a" + step, place2, random.nextInt(3) == 0 ? "-" : "b" + step);
+                        path.setWeight(1 + random.nextInt(3));
+                        place1.connectPath(path);
+                        paths.add(path);
+                    }
+                } else if(action == 1){
+                    Path path = paths.remove(random.nextInt(paths.size()));
+                    path.remove();
+                } else if(action == 2){
+                    paths.get(random.nextInt(paths.size())).setWeight(random.nextInt(4));
+                } else {
+                    // hubs, so that queries repeat
+                    Place start = places.get(random.nextInt(3));
+                    Place end = places.get(random.nextInt(3) + places.size() - 3);
+                    Route result = pathFinder.findRoute(start, end);
+                    Route expected = pathFinder.findRouteDijkstra(start, end);
+                    if(expected == null){
+                        assertNull(result);
+                    } else {
+                        assertNotNull(result);
+                        assertEquals(expected.getCost(), result.getCost(), 1e-9);
+                    }
+                }
+            }
+            assertTrue(pathFinder.getRouteCache().getHits() > 0);
+        } catch(Exception ex){
+            fail(ex.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.backend.sssp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class RouteTest {
+
+    public RouteTest() {
+    }
+
+    /**
+     * Test of getPlaces method, of class Route.
+     */
+    @Test
+    public void testGetPlaces() {
+        System.out.println("getPlaces");
+
+        World world = new World();
+        Layer layer = world.getNewLayer();
+        Place place1 = new Place("", 0, 0, layer);
+        Place place2 = new Place("", 1, 0, layer);
+
+        ArrayList<Place> places = new ArrayList<>(Arrays.asList(place1, place2));
+        Route instance = new Route(places, 2.5, 3);
+        assertEquals(place1, instance.getStart());
+        assertEquals(place2, instance.getEnd());
+        assertEquals(1, instance.getLength());
+        assertEquals(2.5, instance.getCost(), 0.0);
+        assertEquals(3, instance.getExpandedCount());
+
+        // the route doesn't change with the list
+        places.clear();
+        assertEquals(2, instance.getPlaces().size());
+        try {
+            instance.getPlaces().clear();
+            fail();
+        } catch(UnsupportedOperationException ex){}
+
+        try {
+            new Route(places, 0.0, 0);
+            fail();
+        } catch(IllegalArgumentException ex){}
+    }
+
+}
@@ -0,0 +1,125 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.frontend.sidePanel;
+
+import javax.swing.SwingUtilities;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class DebouncedSearchTest {
+
+    public DebouncedSearchTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Checks isPending() on the event dispatch thread
+     * @param instance search
+     * @return true, if a result is pending
+     */
+    private static boolean isPending(final DebouncedSearch<?, ?> instance) throws Exception {
+        final boolean[] ret = {true};
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                ret[0] = instance.isPending();
+            }
+        });
+        return ret[0];
+    }
+
+    /**
+     * Waits until no result is pending
+     * @param instance search
+     * @return false on timeout
+     */
+    private static boolean waitFor(DebouncedSearch<?, ?> instance) throws Exception {
+        for(int i = 0; i < 100; ++i){
+            if(!isPending(instance)) return true;
+            Thread.sleep(DebouncedSearch.DELAY / 4);
+        }
+        return false;
+    }
+
+    /**
+     * Test of schedule method, of class DebouncedSearch.
+     */
+    @Test
+    public void testSchedule() {
+        System.out.println("schedule");
+
+        final String[] published = {null};
+        final DebouncedSearch<String, String> instance = new DebouncedSearch<String, String>() {
+            @Override
+            protected String createSnapshot() {
+                return "data";
+            }
+
+            @Override
+            protected String search(String snapshot, String query) {
+                if(query.equals("fail")) throw new IllegalStateException("search failed");
+                if(query.equals("none")) return null;
+                return snapshot + " " + query;
+            }
+
+            @Override
+            protected void publish(String query, String result) {
+                published[0] = result;
+            }
+        };
+
+        try {
+            for(final String query: new String[]{"a", "fail", "none"}){
+                SwingUtilities.invokeAndWait(new Runnable() {
+                    @Override
+                    public void run() {
+                        instance.schedule(query);
+                    }
+                });
+                // failed searches and searches without result end, too
+                assertTrue(waitFor(instance));
+                assertEquals("data a", published[0]);
+            }
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+}
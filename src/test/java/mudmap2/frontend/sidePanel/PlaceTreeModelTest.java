@@ -0,0 +1,260 @@
+/*  MUD Map (v2) - A tool to create and organize maps for text-based games
+ *  Copyright (C) 2016  Neop (email: mneop@web.de)
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ *  or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ *  for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package mudmap2.frontend.sidePanel;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import mudmap2.backend.Layer;
+import mudmap2.backend.Place;
+import mudmap2.backend.World;
+import mudmap2.backend.WorldChangeEvent;
+import mudmap2.backend.WorldChangeListener;
+import mudmap2.backend.WorldChangeSet;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author neop
+ */
+public class PlaceTreeModelTest {
+
+    World world;
+    Layer layer;
+    PlaceTreeModel instance;
+    // inserted, removed, changed, structure changed
+    final int[] calls = new int[4];
+
+    public PlaceTreeModelTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        world = new World("Unittest");
+        layer = world.getNewLayer("Layer");
+        try {
+            layer.put(new Place("c", 0, 0, layer));
+            layer.put(new Place("a", 1, 0, layer));
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+
+        instance = new PlaceTreeModel(world);
+        world.addChangeListener(new WorldChangeListener() {
+            @Override
+            public void worldChanged(Object source) {
+                instance.reload();
+            }
+
+            @Override
+            public void worldChanged(WorldChangeEvent event) {
+                instance.apply(event);
+            }
+
+            @Override
+            public void worldChangedBatch(WorldChangeSet changes) {
+                instance.apply(changes);
+            }
+        });
+        instance.addTreeModelListener(new TreeModelListener() {
+            @Override
+            public void treeNodesInserted(TreeModelEvent e) {
+                ++calls[0];
+            }
+
+            @Override
+            public void treeNodesRemoved(TreeModelEvent e) {
+                ++calls[1];
+            }
+
+            @Override
+            public void treeNodesChanged(TreeModelEvent e) {
+                ++calls[2];
+            }
+
+            @Override
+            public void treeStructureChanged(TreeModelEvent e) {
+                ++calls[3];
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of getChild and getChildCount methods, of class PlaceTreeModel.
+     */
+    @Test
+    public void testLazyChildren() {
+        System.out.println("lazy children");
+
+        Object root = instance.getRoot();
+        assertEquals(1, instance.getChildCount(root));
+        PlaceTreeModel.LayerNode node = (PlaceTreeModel.LayerNode) instance.getChild(root, 0);
+        assertEquals(layer, node.getLayer());
+
+        // counting doesn't collect the places
+        assertEquals(2, instance.getChildCount(node));
+        assertFalse(instance.isLeaf(node));
+        assertFalse(node.isLoaded());
+
+        assertEquals("a", ((Place) instance.getChild(node, 0)).getName());
+        assertEquals("c", ((Place) instance.getChild(node, 1)).getName());
+        assertTrue(node.isLoaded());
+        assertTrue(instance.isLeaf(instance.getChild(node, 0)));
+    }
+
+    /**
+     * Test of incremental place changes, of class PlaceTreeModel.
+     */
+    @Test
+    public void testPlaceChanges() {
+        System.out.println("place changes");
+
+        Object root = instance.getRoot();
+        PlaceTreeModel.LayerNode node = (PlaceTreeModel.LayerNode) instance.getChild(root, 0);
+        instance.getChild(node, 0);
+
+        Place place = new Place("b", 2, 0, layer);
+        try {
+            layer.put(place);
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        assertEquals(1, calls[0]);
+        assertEquals(1, instance.getIndexOfChild(node, place));
+        assertEquals(3, instance.getChildCount(node));
+
+        // rename moves the place
+        place.setName("d");
+        assertEquals(2, calls[0]);
+        assertEquals(1, calls[1]);
+        assertEquals(2, instance.getIndexOfChild(node, place));
+
+        // rename without moving
+        place.setName("e");
+        assertEquals(1, calls[2]);
+        assertEquals(2, instance.getIndexOfChild(node, place));
+
+        // changes that don't affect the tree
+        place.setRecLevelMin(5);
+        assertEquals(1, calls[2]);
+
+        layer.remove(place);
+        assertEquals(2, calls[1]);
+        assertEquals(-1, instance.getIndexOfChild(node, place));
+        assertEquals(2, instance.getChildCount(node));
+        assertEquals(0, calls[3]);
+        assertNotNull(instance.getPath((Place) instance.getChild(node, 0)));
+        assertNull(instance.getPath(place));
+    }
+
+    /**
+     * Test of layer changes, of class PlaceTreeModel.
+     */
+    @Test
+    public void testLayerChanges() {
+        System.out.println("layer changes");
+
+        Object root = instance.getRoot();
+        Layer layer2 = world.getNewLayer("Another layer");
+        assertEquals(2, instance.getChildCount(root));
+        assertEquals(layer2, ((PlaceTreeModel.LayerNode) instance.getChild(root, 0)).getLayer());
+        assertTrue(instance.isLeaf(instance.getChild(root, 0)));
+
+        world.deleteLayer(layer);
+        assertEquals(1, instance.getChildCount(root));
+        assertEquals(layer2, ((PlaceTreeModel.LayerNode) instance.getChild(root, 0)).getLayer());
+    }
+
+    /**
+     * Test of apply method with a batch, of class PlaceTreeModel.
+     */
+    @Test
+    public void testBatch() {
+        System.out.println("batch");
+
+        Object root = instance.getRoot();
+        final PlaceTreeModel.LayerNode node = (PlaceTreeModel.LayerNode) instance.getChild(root, 0);
+        instance.getChild(node, 0);
+
+        world.batch(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for(int i = 0; i < 10; ++i){
+                        layer.put(new Place("p" + i, 10 + i, 0, layer));
+                    }
+                } catch (Layer.PlaceNotInsertedException ex) {
+                    fail(ex.getMessage());
+                }
+            }
+        });
+        // the layer gets collected again once
+        assertEquals(0, calls[0]);
+        assertEquals(1, calls[3]);
+        assertFalse(node.isLoaded());
+        assertEquals(12, instance.getChildCount(node));
+        assertEquals("p9", ((Place) instance.getChild(node, 11)).getName());
+    }
+
+    /**
+     * Test of setKeywords method, of class PlaceTreeModel.
+     */
+    @Test
+    public void testSetKeywords() {
+        System.out.println("setKeywords");
+
+        world.getNewLayer("Empty");
+        Object root = instance.getRoot();
+        assertEquals(2, instance.getChildCount(root));
+
+        instance.setKeywords(new String[]{"c"});
+        assertTrue(instance.hasKeywords());
+        // layers without results are hidden
+        assertEquals(1, instance.getChildCount(root));
+        PlaceTreeModel.LayerNode node = (PlaceTreeModel.LayerNode) instance.getChild(root, 0);
+        assertEquals(1, instance.getChildCount(node));
+
+        // changes are ignored while searching
+        try {
+            layer.put(new Place("cc", 5, 5, layer));
+        } catch (Layer.PlaceNotInsertedException ex) {
+            fail(ex.getMessage());
+        }
+        assertEquals(1, instance.getChildCount(node));
+
+        instance.setKeywords(null);
+        assertFalse(instance.hasKeywords());
+        assertEquals(2, instance.getChildCount(root));
+    }
+
+}